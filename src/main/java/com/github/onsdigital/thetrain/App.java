@@ -17,20 +17,27 @@ import com.github.onsdigital.thetrain.exception.handler.CatchAllHandler;
 import com.github.onsdigital.thetrain.exception.handler.PublishExceptionHandler;
 import com.github.onsdigital.thetrain.filters.AfterFilter;
 import com.github.onsdigital.thetrain.filters.BeforeFilter;
+import com.github.onsdigital.thetrain.response.JsonRoute;
+import com.github.onsdigital.thetrain.response.JsonTransformer;
 import com.github.onsdigital.thetrain.response.Message;
 import com.github.onsdigital.thetrain.routes.AddFileToTransaction;
+import com.github.onsdigital.thetrain.routes.AddRawFileToTransaction;
 import com.github.onsdigital.thetrain.routes.CommitTransaction;
 import com.github.onsdigital.thetrain.routes.GetContentHash;
+import com.github.onsdigital.thetrain.routes.GetRetention;
 import com.github.onsdigital.thetrain.routes.GetTransaction;
+import com.github.onsdigital.thetrain.routes.GetUploadStatus;
 import com.github.onsdigital.thetrain.routes.OpenTransaction;
 import com.github.onsdigital.thetrain.routes.RollbackTransaction;
 import com.github.onsdigital.thetrain.routes.SendManifest;
 import com.github.onsdigital.thetrain.storage.Publisher;
+import com.github.onsdigital.thetrain.storage.TransactionRetention;
 import com.github.onsdigital.thetrain.storage.Transactions;
 import spark.Filter;
-import spark.ResponseTransformer;
 import spark.Route;
 
+import java.io.IOException;
+
 import static com.github.onsdigital.thetrain.logging.TrainEvent.fatal;
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 import static spark.Spark.after;
@@ -91,9 +98,16 @@ public class App {
                 .create());
     }
 
-    private static void initServices(AppConfiguration config) {
-        Publisher.init(config.publishThreadPoolSize());
-        Transactions.init(config.transactionStore());
+    private static void initServices(AppConfiguration config) throws IOException {
+        Publisher.init(config.publishThreadPoolSize(), config.zipBufferSize(), config.zipBufferMemoryBudget(),
+                config.backupMode(), config.commitMode());
+        Transactions.init(config.transactionStore(), config.transactionFlushInterval(),
+                config.transactionWriterThreadPoolSize(), config.transactionProgressDurability(),
+                config.transactionStateDurability(), config.transactionCacheSize());
+        Transactions.recover(config.transactionRecoveryThreadPoolSize());
+        TransactionRetention.init(config.transactionStore(), config.transactionArchiveDir(),
+                config.transactionRetentionPolicy(), config.transactionRetentionIoLimit(),
+                config.transactionRetentionInterval());
     }
 
     private static void registerHTTPFilters() {
@@ -118,11 +132,15 @@ public class App {
     public static void registerEndpoints(AppConfiguration cfg) {
         Beans beans = new Beans(cfg);
 
-        ResponseTransformer transformer = beans.getResponseTransformer();
+        JsonTransformer transformer = beans.getResponseTransformer();
 
         registerPostHandler("/begin", openTransaction(beans), transformer);
 
-        registerPostHandler("/publish", addFiles(beans), transformer);
+        registerPostHandler("/publish", addFiles(beans, cfg.isZipStreamingEnabled()), transformer);
+
+        registerPostHandler("/publish/raw", addRawFile(beans, cfg.maxFileUploadSize()), transformer);
+
+        registerGetHandler("/publish/raw", getUploadStatus(beans), transformer);
 
         registerPostHandler("/commit", commitTransaction(beans), transformer);
 
@@ -130,10 +148,13 @@ public class App {
 
         registerPostHandler("/rollback", rollbackTransaction(beans), transformer);
 
-        registerGetHandler("/transaction", getTransaction(beans), transformer);
+        // Streams its own response rather than returning one to be written.
+        registerGetHandler("/transaction", getTransaction(beans, transformer));
 
         registerGetHandler("/contentHash", getContentHash(beans, cfg.isVerifyPublishEnabled()), transformer);
 
+        registerGetHandler("/retention", getRetention(beans), transformer);
+
         registerGetHandler("/health", getHealthHandler(), transformer);
 
         // Catch-all for any request not handled by the above routes.
@@ -144,9 +165,17 @@ public class App {
         return new OpenTransaction(beans.getTransactionsService());
     }
 
-    private static Route addFiles(Beans beans) {
+    private static Route addFiles(Beans beans, boolean isZipStreamingEnabled) {
         return new AddFileToTransaction(beans.getTransactionsService(), beans.getPublisherService(),
-                beans.getFilePartSupplier());
+                beans.getFilePartSupplier(), isZipStreamingEnabled);
+    }
+
+    private static Route addRawFile(Beans beans, long maxFileSize) {
+        return new AddRawFileToTransaction(beans.getTransactionsService(), beans.getPublisherService(), maxFileSize);
+    }
+
+    private static Route getUploadStatus(Beans beans) {
+        return new GetUploadStatus(beans.getTransactionsService(), beans.getPublisherService());
     }
 
     private static Route commitTransaction(Beans beans) {
@@ -161,14 +190,18 @@ public class App {
         return new RollbackTransaction(beans.getTransactionsService(), beans.getPublisherService());
     }
 
-    private static Route getTransaction(Beans beans) {
-        return new GetTransaction(beans.getTransactionsService());
+    private static Route getTransaction(Beans beans, JsonTransformer transformer) {
+        return new GetTransaction(beans.getTransactionsService(), transformer);
     }
 
     private static Route getContentHash(Beans beans, boolean isFeatureEnabled) {
         return new GetContentHash(beans.getTransactionsService(), beans.getContentService(), isFeatureEnabled);
     }
 
+    private static Route getRetention(Beans beans) {
+        return new GetRetention(beans.getTransactionRetention());
+    }
+
     private static Route getHealthHandler() {
         return (req, resp) -> {
             resp.status(200);
@@ -183,11 +216,15 @@ public class App {
         };
     }
 
-    private static void registerPostHandler(String uri, Route route, ResponseTransformer transformer) {
-        post(uri, route, transformer);
+    private static void registerPostHandler(String uri, Route route, JsonTransformer transformer) {
+        post(uri, new JsonRoute(route, transformer));
+    }
+
+    private static void registerGetHandler(String uri, Route route, JsonTransformer transformer) {
+        get(uri, new JsonRoute(route, transformer));
     }
 
-    private static void registerGetHandler(String uri, Route route, ResponseTransformer transformer) {
-        get(uri, route, transformer);
+    private static void registerGetHandler(String uri, Route route) {
+        get(uri, route);
     }
 }
@@ -11,16 +11,17 @@ import com.github.onsdigital.thetrain.service.PublisherServiceImpl;
 import com.github.onsdigital.thetrain.service.TransactionsService;
 import com.github.onsdigital.thetrain.service.TransactionsServiceImpl;
 import com.github.onsdigital.thetrain.storage.Publisher;
-import spark.ResponseTransformer;
+import com.github.onsdigital.thetrain.storage.TransactionRetention;
 
 import java.nio.file.Path;
 
 public class Beans {
 
-    private ResponseTransformer responseTransformer;
+    private JsonTransformer responseTransformer;
     private TransactionsService transactionsService;
     private PublisherService publisherService;
     private ContentService contentService;
+    private TransactionRetention transactionRetention;
     private CloseablePartSupplier filePartSupplier;
     private Path websitePath;
 
@@ -34,9 +35,10 @@ public class Beans {
 
         this.publisherService = new PublisherServiceImpl(Publisher.getInstance(), websitePath);
         this.contentService = new ContentServiceImpl(transactionsService);
+        this.transactionRetention = TransactionRetention.getInstance();
     }
 
-    public ResponseTransformer getResponseTransformer() {
+    public JsonTransformer getResponseTransformer() {
         return responseTransformer;
     }
 
@@ -56,6 +58,10 @@ public class Beans {
         return contentService;
     }
 
+    public TransactionRetention getTransactionRetention() {
+        return transactionRetention;
+    }
+
     public Path getWebsitePath() {
         return websitePath;
     }
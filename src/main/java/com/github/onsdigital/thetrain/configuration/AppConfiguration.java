@@ -1,11 +1,16 @@
 package com.github.onsdigital.thetrain.configuration;
 
+import com.github.onsdigital.thetrain.storage.Durability;
+import com.github.onsdigital.thetrain.storage.FileCopier;
+import com.github.onsdigital.thetrain.storage.RetentionPolicy;
 import org.apache.commons.lang3.StringUtils;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
+import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getEnumEnvVar;
 import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getIntegerEnvVar;
 import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getLongEnvVar;
 import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getStringEnvVar;
@@ -26,8 +31,34 @@ public class AppConfiguration {
     public static final String MAX_FILE_UPLOAD_SIZE_MB_ENV_KEY = "MAX_FILE_UPLOAD_SIZE_MB";
     public static final String MAX_REQUEST_SIZE_MB_ENV_KEY = "MAX_REQUEST_SIZE_MB";
     public static final String FILE_THRESHOLD_SIZE_MB_ENV_KEY = "FILE_THRESHOLD_SIZE_MB";
+    public static final String ZIP_BUFFER_SIZE_KB_ENV_KEY = "ZIP_BUFFER_SIZE_KB";
+    public static final String ZIP_BUFFER_MEMORY_BUDGET_MB_ENV_KEY = "ZIP_BUFFER_MEMORY_BUDGET_MB";
+    public static final String BACKUP_MODE_ENV_KEY = "BACKUP_MODE";
+    public static final String COMMIT_MODE_ENV_KEY = "COMMIT_MODE";
+    public static final String TRANSACTION_FLUSH_INTERVAL_MS_ENV_KEY = "TRANSACTION_FLUSH_INTERVAL_MS";
+    public static final String TRANSACTION_WRITER_THREAD_POOL_SIZE_ENV_KEY = "TRANSACTION_WRITER_THREAD_POOL_SIZE";
+    public static final String TRANSACTION_PROGRESS_DURABILITY_ENV_KEY = "TRANSACTION_PROGRESS_DURABILITY";
+    public static final String TRANSACTION_STATE_DURABILITY_ENV_KEY = "TRANSACTION_STATE_DURABILITY";
+    public static final String TRANSACTION_CACHE_SIZE_MB_ENV_KEY = "TRANSACTION_CACHE_SIZE_MB";
+    public static final String TRANSACTION_RECOVERY_THREAD_POOL_SIZE_ENV_KEY = "TRANSACTION_RECOVERY_THREAD_POOL_SIZE";
+    public static final String TRANSACTION_ARCHIVE_DIR_ENV_KEY = "TRANSACTION_ARCHIVE_DIR";
+    public static final String TRANSACTION_RETENTION_INTERVAL_MINUTES_ENV_KEY = "TRANSACTION_RETENTION_INTERVAL_MINUTES";
+    public static final String TRANSACTION_RETENTION_MAX_AGE_DAYS_ENV_KEY = "TRANSACTION_RETENTION_MAX_AGE_DAYS";
+    public static final String TRANSACTION_RETENTION_MAX_COUNT_ENV_KEY = "TRANSACTION_RETENTION_MAX_COUNT";
+    public static final String TRANSACTION_RETENTION_MAX_SIZE_MB_ENV_KEY = "TRANSACTION_RETENTION_MAX_SIZE_MB";
+    public static final String TRANSACTION_RETENTION_IO_LIMIT_MB_PER_SECOND_ENV_KEY =
+            "TRANSACTION_RETENTION_IO_LIMIT_MB_PER_SECOND";
+
+    static final int DEFAULT_ZIP_BUFFER_SIZE_KB = 100;
+    static final long DEFAULT_ZIP_BUFFER_MEMORY_BUDGET_MB = 128;
+    static final long DEFAULT_TRANSACTION_FLUSH_INTERVAL_MS = 100;
+    static final int DEFAULT_TRANSACTION_WRITER_THREAD_POOL_SIZE = 4;
+    static final long DEFAULT_TRANSACTION_CACHE_SIZE_MB = 64;
+    static final int DEFAULT_TRANSACTION_RECOVERY_THREAD_POOL_SIZE = 8;
+    static final long DEFAULT_TRANSACTION_RETENTION_IO_LIMIT_MB_PER_SECOND = 10;
 
     public static final String ENABLE_VERIFY_PUBLISH_CONTENT = "ENABLE_VERIFY_PUBLISH_CONTENT";
+    public static final String ENABLE_ZIP_STREAMING = "ENABLE_ZIP_STREAMING";
     public static final String FILE_UPLOADS_TMP_DIR = "FILE_UPLOADS_TMP_DIR";
 
     private Path transactionStore;
@@ -36,9 +67,24 @@ public class AppConfiguration {
     private int publishThreadPoolSize;
     private int port;
     private boolean enableVerifyPublish;
+    private boolean enableZipStreaming;
     private long maxFileUploadSize;
     private long maxRequestSize;
     private int fileThresholdSize;
+    private int zipBufferSize;
+    private long zipBufferMemoryBudget;
+    private FileCopier.Mode backupMode;
+    private FileCopier.Mode commitMode;
+    private long transactionFlushInterval;
+    private int transactionWriterThreadPoolSize;
+    private Durability transactionProgressDurability;
+    private Durability transactionStateDurability;
+    private long transactionCacheSize;
+    private int transactionRecoveryThreadPoolSize;
+    private Path transactionArchiveDir;
+    private long transactionRetentionInterval;
+    private RetentionPolicy transactionRetentionPolicy;
+    private long transactionRetentionIoLimit;
 
     /**
      * @throws ConfigurationException
@@ -47,22 +93,68 @@ public class AppConfiguration {
         this.transactionStore = loadTransactionStoreConfig();
         this.websitePath = loadWebsitePathConfig();
         this.enableVerifyPublish = loadEnableVerifyPublishContentFeatureFlag();
+        this.enableZipStreaming = loadEnableZipStreamingFeatureFlag();
         this.fileUploadsTmpDir = createTmpFileUploadsDir();
         this.publishThreadPoolSize = getIntegerEnvVar(THREAD_POOL_SIZE_ENV_KEY);
         this.port = getIntegerEnvVar(PORT_ENV_KEY);
         this.maxFileUploadSize = getLongEnvVar(MAX_FILE_UPLOAD_SIZE_MB_ENV_KEY);
         this.maxRequestSize = getLongEnvVar(MAX_REQUEST_SIZE_MB_ENV_KEY);
         this.fileThresholdSize = getIntegerEnvVar(FILE_THRESHOLD_SIZE_MB_ENV_KEY);
+        this.zipBufferSize = getIntegerEnvVar(ZIP_BUFFER_SIZE_KB_ENV_KEY, DEFAULT_ZIP_BUFFER_SIZE_KB) * 1024;
+        this.zipBufferMemoryBudget = getLongEnvVar(ZIP_BUFFER_MEMORY_BUDGET_MB_ENV_KEY,
+                DEFAULT_ZIP_BUFFER_MEMORY_BUDGET_MB) * 1024 * 1024;
+        this.backupMode = getEnumEnvVar(BACKUP_MODE_ENV_KEY, FileCopier.Mode.class, FileCopier.Mode.COPY);
+        this.commitMode = getEnumEnvVar(COMMIT_MODE_ENV_KEY, FileCopier.Mode.class, FileCopier.Mode.COPY);
+        this.transactionFlushInterval = getLongEnvVar(TRANSACTION_FLUSH_INTERVAL_MS_ENV_KEY,
+                DEFAULT_TRANSACTION_FLUSH_INTERVAL_MS);
+        this.transactionWriterThreadPoolSize = getIntegerEnvVar(TRANSACTION_WRITER_THREAD_POOL_SIZE_ENV_KEY,
+                DEFAULT_TRANSACTION_WRITER_THREAD_POOL_SIZE);
+        this.transactionProgressDurability = getEnumEnvVar(TRANSACTION_PROGRESS_DURABILITY_ENV_KEY,
+                Durability.class, Durability.NONE);
+        this.transactionStateDurability = getEnumEnvVar(TRANSACTION_STATE_DURABILITY_ENV_KEY,
+                Durability.class, Durability.FILE_AND_DIRECTORY);
+        this.transactionCacheSize = getLongEnvVar(TRANSACTION_CACHE_SIZE_MB_ENV_KEY,
+                DEFAULT_TRANSACTION_CACHE_SIZE_MB) * 1024 * 1024;
+        this.transactionRecoveryThreadPoolSize = getIntegerEnvVar(TRANSACTION_RECOVERY_THREAD_POOL_SIZE_ENV_KEY,
+                DEFAULT_TRANSACTION_RECOVERY_THREAD_POOL_SIZE);
+        this.transactionArchiveDir = loadTransactionArchiveDirConfig(transactionStore);
+        this.transactionRetentionInterval = TimeUnit.MINUTES.toMillis(
+                getLongEnvVar(TRANSACTION_RETENTION_INTERVAL_MINUTES_ENV_KEY, 0));
+        this.transactionRetentionPolicy = new RetentionPolicy(
+                TimeUnit.DAYS.toMillis(getLongEnvVar(TRANSACTION_RETENTION_MAX_AGE_DAYS_ENV_KEY, 0)),
+                getIntegerEnvVar(TRANSACTION_RETENTION_MAX_COUNT_ENV_KEY, 0),
+                getLongEnvVar(TRANSACTION_RETENTION_MAX_SIZE_MB_ENV_KEY, 0) * 1024 * 1024);
+        this.transactionRetentionIoLimit = getLongEnvVar(TRANSACTION_RETENTION_IO_LIMIT_MB_PER_SECOND_ENV_KEY,
+                DEFAULT_TRANSACTION_RETENTION_IO_LIMIT_MB_PER_SECOND) * 1024 * 1024;
 
         info().data(TRANSACTION_STORE_ENV_KEY, transactionStore)
                 .data(WEBSITE_ENV_KEY, websitePath)
                 .data(THREAD_POOL_SIZE_ENV_KEY, publishThreadPoolSize)
                 .data(PORT_ENV_KEY, port)
                 .data(ENABLE_VERIFY_PUBLISH_CONTENT, enableVerifyPublish)
+                .data(ENABLE_ZIP_STREAMING, enableZipStreaming)
                 .data(FILE_UPLOADS_TMP_DIR, fileUploadsTmpDir)
                 .data(MAX_FILE_UPLOAD_SIZE_MB_ENV_KEY, maxFileUploadSize)
                 .data(MAX_REQUEST_SIZE_MB_ENV_KEY, maxRequestSize)
                 .data(FILE_THRESHOLD_SIZE_MB_ENV_KEY, fileThresholdSize + " MB")
+                .data(ZIP_BUFFER_SIZE_KB_ENV_KEY, zipBufferSize / 1024)
+                .data(ZIP_BUFFER_MEMORY_BUDGET_MB_ENV_KEY, zipBufferMemoryBudget / (1024 * 1024))
+                .data(BACKUP_MODE_ENV_KEY, backupMode)
+                .data(COMMIT_MODE_ENV_KEY, commitMode)
+                .data(TRANSACTION_FLUSH_INTERVAL_MS_ENV_KEY, transactionFlushInterval)
+                .data(TRANSACTION_WRITER_THREAD_POOL_SIZE_ENV_KEY, transactionWriterThreadPoolSize)
+                .data(TRANSACTION_PROGRESS_DURABILITY_ENV_KEY, transactionProgressDurability)
+                .data(TRANSACTION_STATE_DURABILITY_ENV_KEY, transactionStateDurability)
+                .data(TRANSACTION_CACHE_SIZE_MB_ENV_KEY, transactionCacheSize / (1024 * 1024))
+                .data(TRANSACTION_RECOVERY_THREAD_POOL_SIZE_ENV_KEY, transactionRecoveryThreadPoolSize)
+                .data(TRANSACTION_ARCHIVE_DIR_ENV_KEY, transactionArchiveDir)
+                .data(TRANSACTION_RETENTION_INTERVAL_MINUTES_ENV_KEY,
+                        TimeUnit.MILLISECONDS.toMinutes(transactionRetentionInterval))
+                .data(TRANSACTION_RETENTION_MAX_AGE_DAYS_ENV_KEY,
+                        TimeUnit.MILLISECONDS.toDays(transactionRetentionPolicy.maxAgeMillis()))
+                .data(TRANSACTION_RETENTION_MAX_COUNT_ENV_KEY, transactionRetentionPolicy.maxCount())
+                .data(TRANSACTION_RETENTION_MAX_SIZE_MB_ENV_KEY, transactionRetentionPolicy.maxBytes() / (1024 * 1024))
+                .data(TRANSACTION_RETENTION_IO_LIMIT_MB_PER_SECOND_ENV_KEY, transactionRetentionIoLimit / (1024 * 1024))
                 .log("successfully load application configuration");
     }
 
@@ -103,6 +195,16 @@ public class AppConfiguration {
         return enableVerifyPublish;
     }
 
+    /**
+     * Is the zip streaming feature flag enabled? When enabled zip uploads are extracted directly from the request
+     * into the transaction instead of first being written to disk as a zip file.
+     *
+     * @return true if the feature is enabled false otherwise.
+     */
+    public boolean isZipStreamingEnabled() {
+        return enableZipStreaming;
+    }
+
     /**
      * The path to the temp dir where large multipart file uploads are written.
      *
@@ -140,6 +242,127 @@ public class AppConfiguration {
         return fileThresholdSize;
     }
 
+    /**
+     * The size of the buffers used to read zip entries. Zip entries smaller than this are written to the transaction
+     * asynchronously from the buffer, larger entries are streamed into the transaction synchronously.
+     *
+     * @return the zip entry buffer size in bytes.
+     */
+    public int zipBufferSize() {
+        return zipBufferSize;
+    }
+
+    /**
+     * The maximum amount of memory held in zip entry buffers at any one time. Reading further zip entries blocks
+     * until buffered entries have been written once this is reached.
+     *
+     * @return the zip entry buffer memory budget in bytes.
+     */
+    public long zipBufferMemoryBudget() {
+        return zipBufferMemoryBudget;
+    }
+
+    /**
+     * How existing website files are backed up into a transaction before they are overwritten or deleted.
+     *
+     * @return the backup mode.
+     */
+    public FileCopier.Mode backupMode() {
+        return backupMode;
+    }
+
+    /**
+     * How files are published from a transaction to the website on commit.
+     *
+     * @return the commit mode.
+     */
+    public FileCopier.Mode commitMode() {
+        return commitMode;
+    }
+
+    /**
+     * How long to wait after a transaction is changed before writing it to disk. Further changes made to the
+     * transaction while waiting are written together.
+     *
+     * @return the transaction flush interval in milliseconds.
+     */
+    public long transactionFlushInterval() {
+        return transactionFlushInterval;
+    }
+
+    /**
+     * The number of threads writing transaction changes to disk. This is fixed regardless of the number of open
+     * transactions.
+     *
+     * @return the size of the transaction writer thread pool.
+     */
+    public int transactionWriterThreadPoolSize() {
+        return transactionWriterThreadPoolSize;
+    }
+
+    /**
+     * The durability of the transaction changes written as files are added to a transaction.
+     *
+     * @return the transaction progress durability.
+     */
+    public Durability transactionProgressDurability() {
+        return transactionProgressDurability;
+    }
+
+    /**
+     * The durability of full transaction writes, made when a transaction is created, when a manifest is applied and
+     * when a transaction is committed or rolled back.
+     *
+     * @return the transaction state durability.
+     */
+    public Durability transactionStateDurability() {
+        return transactionStateDurability;
+    }
+
+    /**
+     * The maximum total size of the transaction files of the transactions read from disk that are kept in memory.
+     *
+     * @return the transaction cache size in bytes.
+     */
+    public long transactionCacheSize() {
+        return transactionCacheSize;
+    }
+
+    /**
+     * @return the number of threads reading the transaction store at startup to recover open transactions.
+     */
+    public int transactionRecoveryThreadPoolSize() {
+        return transactionRecoveryThreadPoolSize;
+    }
+
+    /**
+     * @return the directory closed transactions are archived into by the retention service.
+     */
+    public Path transactionArchiveDir() {
+        return transactionArchiveDir;
+    }
+
+    /**
+     * @return the time between runs of the retention service in milliseconds, 0 if it is disabled.
+     */
+    public long transactionRetentionInterval() {
+        return transactionRetentionInterval;
+    }
+
+    /**
+     * @return how many closed transactions the retention service keeps in the transaction store.
+     */
+    public RetentionPolicy transactionRetentionPolicy() {
+        return transactionRetentionPolicy;
+    }
+
+    /**
+     * @return the maximum rate in bytes per second at which the retention service archives transactions.
+     */
+    public long transactionRetentionIoLimit() {
+        return transactionRetentionIoLimit;
+    }
+
     /**
      * Return a singleton instance of the ApplicationConfiguration. Will load the ApplictionConfiguration if it has
      * not already been loaded.
@@ -158,6 +381,15 @@ public class AppConfiguration {
         return INSTANCE;
     }
 
+    private static Path loadTransactionArchiveDirConfig(Path transactionStore) throws ConfigurationException {
+        String value = getStringEnvVar(TRANSACTION_ARCHIVE_DIR_ENV_KEY);
+        if (StringUtils.isEmpty(value)) {
+            // Outside the transaction store so the archive is not mistaken for a transaction.
+            return transactionStore.resolveSibling(transactionStore.getFileName() + "-archive");
+        }
+        return Paths.get(value);
+    }
+
     private static Path loadTransactionStoreConfig() throws ConfigurationException {
         String value = getStringEnvVar(TRANSACTION_STORE_ENV_KEY);
 
@@ -182,6 +414,11 @@ public class AppConfiguration {
         return Boolean.valueOf(isEnableVerifyPublish);
     }
 
+    private static boolean loadEnableZipStreamingFeatureFlag() throws ConfigurationException {
+        String isEnableZipStreaming = getStringEnvVar(ENABLE_ZIP_STREAMING);
+        return Boolean.valueOf(isEnableZipStreaming);
+    }
+
     private static Path loadWebsitePathConfig() throws ConfigurationException {
         String value = getStringEnvVar(WEBSITE_ENV_KEY);
 
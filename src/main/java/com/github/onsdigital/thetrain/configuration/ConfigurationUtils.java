@@ -71,6 +71,73 @@ public class ConfigurationUtils {
         }
     }
 
+    /**
+     * Get an optional {@link Integer} environment variable value.
+     *
+     * @param varName      the name of the environment variable to retrieve.
+     * @param defaultValue the value to return if the environment variable is not set.
+     * @return the environment variable if it exists otherwise the default value.
+     * @throws ConfigurationException problem getting the env var/invalid integer value.
+     */
+    public static int getIntegerEnvVar(String varName, int defaultValue) throws ConfigurationException {
+        if (StringUtils.isEmpty(varName)) {
+            throw new ConfigurationException("expected env var name but provided value was empty");
+        }
+
+        if (StringUtils.isEmpty(getValue(System.getenv(), System.getProperties(), varName))) {
+            return defaultValue;
+        }
+        return getIntegerEnvVar(varName);
+    }
+
+    /**
+     * Get an optional {@link Long} environment variable value.
+     *
+     * @param varName      the name of the environment variable to retrieve.
+     * @param defaultValue the value to return if the environment variable is not set.
+     * @return the environment variable if it exists otherwise the default value.
+     * @throws ConfigurationException problem getting the env var/invalid long value.
+     */
+    public static long getLongEnvVar(String varName, long defaultValue) throws ConfigurationException {
+        if (StringUtils.isEmpty(varName)) {
+            throw new ConfigurationException("expected env var name but provided value was empty");
+        }
+
+        if (StringUtils.isEmpty(getValue(System.getenv(), System.getProperties(), varName))) {
+            return defaultValue;
+        }
+        return getLongEnvVar(varName);
+    }
+
+    /**
+     * Get an optional enum environment variable value. The value is matched against the enum constant names ignoring
+     * case.
+     *
+     * @param varName      the name of the environment variable to retrieve.
+     * @param type         the enum type.
+     * @param defaultValue the value to return if the environment variable is not set.
+     * @return the environment variable if it exists otherwise the default value.
+     * @throws ConfigurationException problem getting the env var/invalid enum value.
+     */
+    public static <E extends Enum<E>> E getEnumEnvVar(String varName, Class<E> type, E defaultValue)
+            throws ConfigurationException {
+        if (StringUtils.isEmpty(varName)) {
+            throw new ConfigurationException("expected env var name but provided value was empty");
+        }
+
+        String value = getValue(System.getenv(), System.getProperties(), varName);
+        if (StringUtils.isEmpty(value)) {
+            return defaultValue;
+        }
+
+        for (E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value.trim())) {
+                return constant;
+            }
+        }
+        throw new ConfigurationException(formatParsingError(varName, value, type));
+    }
+
     /**
      * Get a environment variable from the system environment/system properties. System environment takes precedence
      * over system properties. Specifically returns the value in system environment if it is exists and not empty,
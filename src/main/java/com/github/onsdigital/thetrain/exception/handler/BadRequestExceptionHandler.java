@@ -2,7 +2,7 @@ package com.github.onsdigital.thetrain.exception.handler;
 
 import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.json.Result;
-import com.google.gson.Gson;
+import com.github.onsdigital.thetrain.response.JsonTransformer;
 import spark.ExceptionHandler;
 import spark.Request;
 import spark.Response;
@@ -15,16 +15,17 @@ import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
 
 public class BadRequestExceptionHandler implements ExceptionHandler<BadRequestException> {
 
-    private Gson gson;
+    private JsonTransformer transformer;
 
     public BadRequestExceptionHandler() {
-        this.gson = new Gson();
+        this.transformer = JsonTransformer.get();
     }
 
     @Override
     public void handle(BadRequestException e, Request request, Response response) {
         response.status(400);
-        response.body(gson.toJson(new Result(e.getMessage(), true, null)));
+        response.type(JsonTransformer.CONTENT_TYPE);
+        response.body(transformer.toJson(new Result(e.getMessage(), true, null)));
 
         List<Throwable> nested = new ArrayList<>();
         nested.add(e);
@@ -2,7 +2,7 @@ package com.github.onsdigital.thetrain.exception.handler;
 
 import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Result;
-import com.google.gson.Gson;
+import com.github.onsdigital.thetrain.response.JsonTransformer;
 import spark.ExceptionHandler;
 import spark.Request;
 import spark.Response;
@@ -11,16 +11,17 @@ import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
 
 public class PublishExceptionHandler implements ExceptionHandler<PublishException> {
 
-    private Gson gson;
+    private JsonTransformer transformer;
 
     public PublishExceptionHandler() {
-        this.gson = new Gson();
+        this.transformer = JsonTransformer.get();
     }
 
     @Override
     public void handle(PublishException e, Request request, Response response) {
         response.status(e.getStatus());
-        response.body(gson.toJson(new Result(e.getMessage(), true, e.getTransaction())));
+        response.type(JsonTransformer.CONTENT_TYPE);
+        response.body(transformer.toJson(new Result(e.getMessage(), true, e.getTransaction())));
 
         error().transactionID(e.getTransaction())
                 .exception(e)
@@ -0,0 +1,89 @@
+package com.github.onsdigital.thetrain.helpers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A pool of reusable, fixed size byte buffers with a limit on the total memory the buffers may take up.
+ * <p>
+ * Buffers are taken from the pool with {@link #acquire()} and <b>must</b> be handed back with
+ * {@link #release(byte[])} once they are no longer in use. When every buffer the memory budget allows for is in use
+ * {@link #acquire()} blocks until another caller releases one, applying back pressure to producers that would
+ * otherwise queue up an unbounded amount of data on the heap.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final Semaphore available;
+    private final Queue<byte[]> free;
+
+    /**
+     * Construct a new BufferPool.
+     *
+     * @param bufferSize   the size of each buffer in bytes.
+     * @param memoryBudget the maximum number of bytes held by buffers in use at any one time. The pool always allows
+     *                     at least one buffer regardless of the budget.
+     */
+    public BufferPool(int bufferSize, long memoryBudget) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be greater than 0");
+        }
+
+        this.bufferSize = bufferSize;
+        this.maxBuffers = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / bufferSize));
+        this.available = new Semaphore(maxBuffers, true);
+        this.free = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Take a buffer from the pool, blocking until the memory budget allows for one.
+     *
+     * @return a buffer of {@link #bufferSize()} bytes. The content of the buffer is undefined.
+     * @throws InterruptedException if interrupted while waiting for a buffer.
+     */
+    public byte[] acquire() throws InterruptedException {
+        available.acquire();
+        byte[] buffer = free.poll();
+        if (buffer == null) {
+            buffer = new byte[bufferSize];
+        }
+        return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool.
+     *
+     * @param buffer a buffer previously obtained from {@link #acquire()}.
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length != bufferSize) {
+            throw new IllegalArgumentException("buffer was not acquired from this pool");
+        }
+
+        free.offer(buffer);
+        available.release();
+    }
+
+    /**
+     * @return the size of the buffers in this pool in bytes.
+     */
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the maximum number of buffers that can be in use at any one time.
+     */
+    public int maxBuffers() {
+        return maxBuffers;
+    }
+
+    /**
+     * @return the number of bytes currently held by buffers in use.
+     */
+    public long inUseBytes() {
+        return (long) (maxBuffers - available.availablePermits()) * bufferSize;
+    }
+}
@@ -2,17 +2,24 @@ package com.github.onsdigital.thetrain.helpers;
 
 import org.apache.commons.lang3.StringUtils;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 
 /**
  * Converts between Java {@link Date} and Strings suitable for use in Json which can be interpreted by Date.parse() in Javascript.
+ * NB the formatter is immutable and thread safe so a single instance is shared rather than creating one per call.
  */
 public class DateConverter {
 
     static final String pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
 
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern)
+            .withZone(ZoneId.systemDefault());
+
     /**
      * @param date A {@link Date} to be converted to a {@link String}. Can be null.
      * @return A String matching the format pattern {@value #pattern}, or null if the input was null.
@@ -20,11 +27,19 @@ public class DateConverter {
     public static String toString(Date date) {
         String result = null;
         if (date != null) {
-            result = new SimpleDateFormat(pattern).format(date);
+            result = toString(date.getTime());
         }
         return result;
     }
 
+    /**
+     * @param epochMillis A time in milliseconds since the epoch to be converted to a {@link String}.
+     * @return A String matching the format pattern {@value #pattern}.
+     */
+    public static String toString(long epochMillis) {
+        return formatter.format(Instant.ofEpochMilli(epochMillis));
+    }
+
     /**
      * @param date A {@link String} to be converted to a {@link Date}. Can be null.
      * @return A Date parsed using the format pattern {@value #pattern}, or null if the input was null.
@@ -33,8 +48,8 @@ public class DateConverter {
         Date result = null;
         if (StringUtils.isNotBlank(date)) {
             try {
-                result = new SimpleDateFormat(pattern).parse(date);
-            } catch (ParseException e) {
+                result = new Date(OffsetDateTime.parse(date, formatter).toInstant().toEpochMilli());
+            } catch (DateTimeParseException e) {
                 // Leave the result null
             }
         }
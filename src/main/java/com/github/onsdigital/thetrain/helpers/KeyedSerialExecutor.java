@@ -0,0 +1,85 @@
+package com.github.onsdigital.thetrain.helpers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on a fixed number of single threaded workers. Every task submitted with the same key runs on the same
+ * worker, so tasks for a key run one at a time in the order they were submitted, while tasks for different keys may
+ * run in parallel. The number of threads does not depend on how many keys are in use.
+ */
+public class KeyedSerialExecutor {
+
+    private final ScheduledExecutorService[] workers;
+
+    /**
+     * Construct a new KeyedSerialExecutor.
+     *
+     * @param name    the name prefix of the worker threads.
+     * @param threads the number of worker threads.
+     */
+    public KeyedSerialExecutor(String name, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+
+        this.workers = new ScheduledExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = Executors.newSingleThreadScheduledExecutor(threadFactory(name + "-" + i));
+        }
+    }
+
+    /**
+     * Submit a task to run after any tasks previously submitted with the same key.
+     *
+     * @param key  the key the task is ordered by.
+     * @param task the task.
+     * @return a {@link Future} for the result of the task.
+     */
+    public <T> Future<T> submit(String key, Callable<T> task) {
+        return worker(key).submit(task);
+    }
+
+    /**
+     * Schedule a task to run once the delay has passed. Tasks for the same key run one at a time, tasks for the same
+     * key scheduled with the same delay run in the order they were scheduled.
+     *
+     * @param key   the key the task is ordered by.
+     * @param task  the task.
+     * @param delay the time to wait before running the task.
+     * @param unit  the unit of the delay.
+     * @return a {@link ScheduledFuture} for the result of the task.
+     */
+    public <T> ScheduledFuture<T> schedule(String key, Callable<T> task, long delay, TimeUnit unit) {
+        return worker(key).schedule(task, delay, unit);
+    }
+
+    /**
+     * @return the number of worker threads.
+     */
+    public int threads() {
+        return workers.length;
+    }
+
+    /**
+     * Shut down the workers. Tasks already submitted are run but no new tasks are accepted.
+     */
+    public void shutdown() {
+        for (ScheduledExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private ScheduledExecutorService worker(String key) {
+        return workers[Math.floorMod(key.hashCode(), workers.length)];
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        return runnable -> new Thread(runnable, name);
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.onsdigital.thetrain.helpers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which a resource, such as bytes of I/O, is used. Callers {@link #acquire(long)} what they are
+ * about to use and are held back until using it keeps the overall rate at or below the limit.
+ */
+public class RateLimiter {
+
+    private final long permitsPerSecond;
+    private long nextFree;
+
+    /**
+     * Construct a new RateLimiter.
+     *
+     * @param permitsPerSecond the maximum rate. A rate of 0 or less is unlimited.
+     */
+    public RateLimiter(long permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.nextFree = System.nanoTime();
+    }
+
+    /**
+     * Wait until the permits can be used without exceeding the rate.
+     *
+     * @param permits the number of permits, for example a number of bytes.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void acquire(long permits) throws InterruptedException {
+        if (permitsPerSecond <= 0) {
+            return;
+        }
+
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            wait = nextFree - now;
+            nextFree = Math.max(nextFree, now) + TimeUnit.SECONDS.toNanos(permits) / permitsPerSecond;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * @return the maximum rate, or 0 or less if unlimited.
+     */
+    public long permitsPerSecond() {
+        return permitsPerSecond;
+    }
+}
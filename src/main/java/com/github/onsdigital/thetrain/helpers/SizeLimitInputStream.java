@@ -0,0 +1,73 @@
+package com.github.onsdigital.thetrain.helpers;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} that fails once more than a given number of bytes have been read from it, so the size of a
+ * request body can be limited when its length is not known up front.
+ */
+public class SizeLimitInputStream extends FilterInputStream {
+
+    private final long limit;
+    private long size;
+    private boolean limitExceeded;
+
+    /**
+     * @param input the stream to read.
+     * @param limit the maximum number of bytes that can be read, or -1 for no limit.
+     */
+    public SizeLimitInputStream(InputStream input, long limit) {
+        super(input);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = super.read();
+        if (read != -1) count(1);
+        return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) count(read);
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long read) throws IOException {
+        size += read;
+        if (limit != -1 && size > limit) {
+            limitExceeded = true;
+            throw new IOException("input exceeds the limit of " + limit + " bytes");
+        }
+    }
+
+    /**
+     * @return true if the stream failed because more than the limit was read from it.
+     */
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * @return the number of bytes read so far.
+     */
+    public long size() {
+        return size;
+    }
+}
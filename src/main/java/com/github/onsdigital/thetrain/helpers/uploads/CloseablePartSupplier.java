@@ -5,10 +5,11 @@ import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Transaction;
 import spark.Request;
 
+import java.util.List;
+
 /**
- * Defines an object for obtaining a file upload {@link CloseablePart} from a {@link Request}.
+ * Defines an object for obtaining file upload {@link CloseablePart}s from a {@link Request}.
  */
-@FunctionalInterface
 public interface CloseablePartSupplier {
 
     /**
@@ -23,4 +24,18 @@ public interface CloseablePartSupplier {
      *                             null or invalid.
      */
     CloseablePart getFilePart(Request req, Transaction transaction) throws PublishException, BadRequestException;
-}
\ No newline at end of file
+
+    /**
+     * Get every file {@link CloseablePart} from a batch file upload request.
+     *
+     * @param req         the {@link Request} to get the {@link CloseablePart}s from. Required and cannot be null.
+     * @param transaction the publishing {@link Transaction} the file uploads are being added too. Required and
+     *                    cannot be null.
+     * @return the {@link CloseablePart}s of the request in the order they were sent.
+     * @throws PublishException    unexpected error getting the {@link CloseablePart}s from the request.
+     * @throws BadRequestException thrown if either request or transaction are null, the request is not a valid
+     *                             multipart request or has no parts.
+     */
+    List<CloseablePart> getFileParts(Request req, Transaction transaction) throws PublishException,
+            BadRequestException;
+}
@@ -0,0 +1,89 @@
+package com.github.onsdigital.thetrain.helpers.uploads;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The byte range of a file sent in a request with a <code>Content-Range: bytes &lt;start&gt;-&lt;end&gt;/&lt;total&gt;
+ * </code> header. The end is inclusive and the total may be <code>*</code> if it is not yet known.
+ */
+public class ContentRange {
+
+    public static final String HEADER = "Content-Range";
+
+    public static final long UNKNOWN = -1;
+
+    private static final Pattern PATTERN = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+
+    private final long start;
+    private final long end;
+    private final long total;
+
+    ContentRange(long start, long end, long total) {
+        this.start = start;
+        this.end = end;
+        this.total = total;
+    }
+
+    /**
+     * Parse a <code>Content-Range</code> header.
+     *
+     * @param header the header value.
+     * @return the range.
+     * @throws IllegalArgumentException if the header is not a valid byte range.
+     */
+    public static ContentRange parse(String header) {
+        Matcher matcher = header == null ? null : PATTERN.matcher(header.trim());
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("invalid Content-Range header: " + header);
+        }
+
+        try {
+            long start = Long.parseLong(matcher.group(1));
+            long end = Long.parseLong(matcher.group(2));
+            long total = "*".equals(matcher.group(3)) ? UNKNOWN : Long.parseLong(matcher.group(3));
+            if (end < start || (total != UNKNOWN && end >= total)) {
+                throw new IllegalArgumentException("invalid Content-Range header: " + header);
+            }
+            return new ContentRange(start, end, total);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid Content-Range header: " + header, e);
+        }
+    }
+
+    /**
+     * @return the offset of the first byte of the range.
+     */
+    public long start() {
+        return start;
+    }
+
+    /**
+     * @return the offset of the last byte of the range.
+     */
+    public long end() {
+        return end;
+    }
+
+    /**
+     * @return the number of bytes in the range.
+     */
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * @return the size of the whole file, or -1 if it is not yet known.
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @param received the number of bytes of the file received so far.
+     * @return true if the total size of the file is known and every byte of it has been received.
+     */
+    public boolean isComplete(long received) {
+        return total != UNKNOWN && received == total;
+    }
+}
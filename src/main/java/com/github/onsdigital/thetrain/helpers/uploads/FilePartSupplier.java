@@ -9,6 +9,9 @@ import javax.servlet.MultipartConfigElement;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.Part;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 
@@ -44,6 +47,46 @@ public class FilePartSupplier implements CloseablePartSupplier {
 
     @Override
     public CloseablePart getFilePart(Request req, Transaction t) throws PublishException, BadRequestException {
+        HttpServletRequest raw = getMultipartRequest(req, t);
+
+        info().transactionID(t).log("parsing request body for file item");
+        Part part = null;
+        try {
+            part = raw.getPart(FILE_PART_NAME);
+        } catch (Exception ex) {
+            throw new BadRequestException(ex, "error attempting to retrieve multipart file upload request body", t.id());
+        }
+
+        if (part == null) {
+            throw new BadRequestException("expected multipart file upload request body but was null", t.id());
+        }
+
+        return new CloseablePart(part, t.id());
+    }
+
+    @Override
+    public List<CloseablePart> getFileParts(Request req, Transaction t) throws PublishException,
+            BadRequestException {
+        HttpServletRequest raw = getMultipartRequest(req, t);
+
+        info().transactionID(t).log("parsing request body for file items");
+        Collection<Part> parts = null;
+        try {
+            parts = raw.getParts();
+        } catch (Exception ex) {
+            throw new BadRequestException(ex, "error attempting to retrieve multipart file upload request body", t.id());
+        }
+
+        if (parts == null || parts.isEmpty()) {
+            throw new BadRequestException("expected multipart file upload request body but was empty", t.id());
+        }
+
+        return parts.stream()
+                .map(part -> new CloseablePart(part, t.id()))
+                .collect(Collectors.toList());
+    }
+
+    private HttpServletRequest getMultipartRequest(Request req, Transaction t) throws PublishException {
         if (req == null) {
             throw new PublishException("error getting file part from request as request was null");
         }
@@ -59,19 +102,6 @@ public class FilePartSupplier implements CloseablePartSupplier {
 
         req.attribute(MULTIPART_CONFIG,
                 new MultipartConfigElement(tmpDir.toString(), maxFileSize, maxRequestSize, fileThresholdSize));
-
-        info().transactionID(t).log("parsing request body for file item");
-        Part part = null;
-        try {
-            part = raw.getPart(FILE_PART_NAME);
-        } catch (Exception ex) {
-            throw new BadRequestException(ex, "error attempting to retrieve multipart file upload request body", t.id());
-        }
-
-        if (part == null) {
-            throw new BadRequestException("expected multipart file upload request body but was null", t.id());
-        }
-
-        return new CloseablePart(part, t.id());
+        return raw;
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.github.onsdigital.thetrain.json;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates the Jackson {@link ObjectMapper}s used to read and write the Json model, both in the transaction store and
+ * in requests and responses, so that the model is serialised by the same rules everywhere: fields only, ignoring
+ * transient fields and getters.
+ */
+public class ObjectMapperFactory {
+
+    private ObjectMapperFactory() {
+        // static methods only
+    }
+
+    /**
+     * @return a new {@link ObjectMapper} configured for the Json model. Unknown properties fail deserialisation, so a
+     * transaction file the model cannot fully read is not silently rewritten without them.
+     */
+    public static ObjectMapper create() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        return objectMapper;
+    }
+
+    /**
+     * @return a new {@link ObjectMapper} configured for the Json model that ignores unknown properties, for reading
+     * request bodies sent by clients that may add fields the model does not have.
+     */
+    public static ObjectMapper createForRequests() {
+        ObjectMapper objectMapper = create();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return objectMapper;
+    }
+}
@@ -1,5 +1,8 @@
 package com.github.onsdigital.thetrain.json;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Json debug returned by Endpoint endpoints.
  */
@@ -7,6 +10,7 @@ public class Result {
     public String message;
     public boolean error;
     public Transaction transaction;
+    public Map<String, List<String>> files;
 
     /**
      * The response debug returned from the endpoints in this class.
@@ -20,4 +24,18 @@ public class Result {
         this.error = error;
         this.transaction = transaction;
     }
+
+    /**
+     * The response debug returned from the endpoints in this class, with the files on disk in the transaction.
+     *
+     * @param message     An informational debug.
+     * @param error       If this debug represents an application error, true (rather than a general server or
+     *                    network error).
+     * @param transaction The details of the current transaction.
+     * @param files       The files on disk in the transaction.
+     */
+    public Result(String message, boolean error, Transaction transaction, Map<String, List<String>> files) {
+        this(message, error, transaction);
+        this.files = files;
+    }
 }
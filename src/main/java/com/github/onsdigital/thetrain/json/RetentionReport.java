@@ -0,0 +1,35 @@
+package com.github.onsdigital.thetrain.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of applying the transaction retention policy, or for a dry run what applying it would do.
+ */
+public class RetentionReport {
+
+    public boolean dryRun;
+    public String startDate;
+    public long durationMillis;
+    public int scanned;
+    public int retained;
+    public int archived;
+    public int failed;
+    public long archivedBytes;
+    public List<Expired> expired = new ArrayList<>();
+
+    /**
+     * A closed transaction outside the retention policy.
+     */
+    public static class Expired {
+        public String id;
+        public String closedDate;
+        public long bytes;
+
+        public Expired(String id, String closedDate, long bytes) {
+            this.id = id;
+            this.closedDate = closedDate;
+            this.bytes = bytes;
+        }
+    }
+}
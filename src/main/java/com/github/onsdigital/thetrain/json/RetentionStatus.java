@@ -0,0 +1,17 @@
+package com.github.onsdigital.thetrain.json;
+
+/**
+ * The configuration and state of the background transaction retention service.
+ */
+public class RetentionStatus {
+
+    public boolean enabled;
+    public boolean running;
+    public long intervalMillis;
+    public long maxAgeMillis;
+    public int maxCount;
+    public long maxBytes;
+    public long ioLimitBytesPerSecond;
+    public String archiveDir;
+    public RetentionReport lastRun;
+}
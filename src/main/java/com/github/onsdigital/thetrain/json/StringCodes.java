@@ -0,0 +1,51 @@
+package com.github.onsdigital.thetrain.json;
+
+/**
+ * Byte codes for a small fixed set of String values, so that a field holding one of them needs a byte rather than a
+ * reference to a String which, once read from Json, is a separate copy for every instance. Any other value is given
+ * the code {@link #OTHER} and must be held by the caller, so the table never changes and encoding never fails
+ * whatever values are read.
+ */
+class StringCodes {
+
+    /**
+     * The code for a value that is not one of the expected values.
+     */
+    static final byte OTHER = -1;
+
+    private final String[] values;
+
+    /**
+     * @param expected the values expected, which are given codes 1 onwards in the order given.
+     */
+    StringCodes(String... expected) {
+        if (expected.length >= Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("too many values to encode: " + expected.length);
+        }
+        this.values = expected.clone();
+    }
+
+    /**
+     * @param value the value to encode.
+     * @return the code for the value, 0 for null and {@link #OTHER} if it is not one of the expected values.
+     */
+    byte encode(String value) {
+        if (value == null) {
+            return 0;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return (byte) (i + 1);
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * @param code a code returned by {@link #encode(String)}.
+     * @return the value, null for 0 or {@link #OTHER}.
+     */
+    String decode(byte code) {
+        return code <= 0 ? null : values[code - 1];
+    }
+}
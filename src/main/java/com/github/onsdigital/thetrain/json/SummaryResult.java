@@ -0,0 +1,48 @@
+package com.github.onsdigital.thetrain.json;
+
+/**
+ * Compact alternative to {@link Result} returned by the endpoints called for every file in a publish. Rather than the
+ * whole transaction, including every file added so far, only a summary of the transaction is returned.
+ */
+public class SummaryResult {
+    public String message;
+    public boolean error;
+    public String uri;
+    public TransactionSummary transaction;
+
+    /**
+     * @param message     An informational message.
+     * @param error       If this result represents an application error, true.
+     * @param transaction The current transaction.
+     * @param uri         The URI added to the transaction by the request, if any.
+     */
+    public SummaryResult(String message, boolean error, Transaction transaction, String uri) {
+        this.message = message;
+        this.error = error;
+        this.uri = uri;
+        this.transaction = transaction == null ? null : new TransactionSummary(transaction);
+    }
+
+    /**
+     * The ID, status and counts of a transaction.
+     */
+    public static class TransactionSummary {
+        public String id;
+        public String status;
+        public String startDate;
+        public String endDate;
+        public int fileCount;
+        public int deleteCount;
+        public boolean hasErrors;
+
+        public TransactionSummary(Transaction transaction) {
+            this.id = transaction.id();
+            this.status = transaction.getStatus();
+            this.startDate = transaction.startDate();
+            this.endDate = transaction.endDate();
+            this.fileCount = transaction.uris().size();
+            this.deleteCount = transaction.urisToDelete().size();
+            this.hasErrors = transaction.hasErrors();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.onsdigital.thetrain.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.github.onsdigital.thetrain.helpers.DateConverter;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Jackson serialisation of timestamps held as milliseconds since the epoch. A timestamp is only formatted with
+ * {@link DateConverter} when it is serialised, in the same format as timestamps were always written. A timestamp of 0
+ * is unset and is serialised as null, or left out where the field is annotated to leave out empty values.
+ */
+public class Timestamps {
+
+    private Timestamps() {
+        // nested classes only
+    }
+
+    static String format(long epochMillis) {
+        return epochMillis == 0 ? null : DateConverter.toString(epochMillis);
+    }
+
+    static long parse(String value) {
+        Date date = DateConverter.toDate(value);
+        return date == null ? 0 : date.getTime();
+    }
+
+    /**
+     * Jackson serialiser for a timestamp.
+     */
+    public static class Serializer extends JsonSerializer<Long> {
+        @Override
+        public void serialize(Long value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            String formatted = value == null ? null : format(value);
+            if (formatted == null) {
+                generator.writeNull();
+            } else {
+                generator.writeString(formatted);
+            }
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, Long value) {
+            return value == null || value == 0;
+        }
+    }
+
+    /**
+     * Jackson deserialiser for a timestamp.
+     */
+    public static class Deserializer extends JsonDeserializer<Long> {
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+                return parser.getLongValue();
+            }
+            return parse(parser.getValueAsString());
+        }
+
+        @Override
+        public Long getNullValue(DeserializationContext context) {
+            return 0L;
+        }
+    }
+}
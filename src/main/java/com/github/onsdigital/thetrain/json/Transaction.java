@@ -1,13 +1,13 @@
 package com.github.onsdigital.thetrain.json;
 
 import com.github.davidcarboni.cryptolite.Random;
-import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,12 +30,23 @@ public class Transaction {
     // theoretical rather than a practical consideration.
     private String id = Random.id();
     private String status = STARTED;
-    private String startDate = DateConverter.toString(new Date());
-    private String endDate;
+    @JsonSerialize(using = Timestamps.Serializer.class)
+    @JsonDeserialize(using = Timestamps.Deserializer.class)
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private long startDate = System.currentTimeMillis();
+    @JsonSerialize(using = Timestamps.Serializer.class)
+    @JsonDeserialize(using = Timestamps.Deserializer.class)
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private long endDate;
 
-    private Set<UriInfo> uriInfos = new HashSet<>();
-    private Set<UriInfo> uriDeletes = new HashSet<>();
-    private List<String> errors = new ArrayList<>();
+    private UriInfoIndex uriInfos = new UriInfoIndex();
+    private UriInfoIndex uriDeletes = new UriInfoIndex();
+    private volatile List<String> errors = new ArrayList<>();
+
+    /**
+     * Changes made since the transaction was last written to disk.
+     */
+    private transient TransactionDelta changes = new TransactionDelta();
 
     /**
      * The actual files on disk in this transaction.
@@ -55,14 +66,14 @@ public class Transaction {
      * @return The transaction {@link #startDate}.
      */
     public String startDate() {
-        return startDate;
+        return Timestamps.format(startDate);
     }
 
     /**
      * @return The transaction {@link #endDate}.
      */
     public String endDate() {
-        return endDate;
+        return Timestamps.format(endDate);
     }
 
     public String getStatus() {
@@ -70,41 +81,51 @@ public class Transaction {
     }
 
     /**
-     * @return An unmodifiable set of the URIs in this transaction.
+     * @return An unmodifiable view of the URIs in this transaction. The view can be iterated while URIs are added.
      */
     public Set<UriInfo> uris() {
-        synchronized (this) {
-            return Collections.unmodifiableSet(uriInfos);
-        }
+        return Collections.unmodifiableSet(uriInfos);
     }
 
     /**
-     * @return An unmodifiable set of the URIs to delete in this transaction.
+     * @return An unmodifiable view of the URIs to delete in this transaction. The view can be iterated while URIs are
+     * added.
      */
     public Set<UriInfo> urisToDelete() {
-        synchronized (this) {
-            return Collections.unmodifiableSet(uriDeletes);
-        }
+        return Collections.unmodifiableSet(uriDeletes);
     }
 
+    /**
+     * Look up a URI in this transaction in constant time.
+     *
+     * @param uri The URI.
+     * @return The {@link UriInfo} for the URI, or null if the URI has not been added to this transaction.
+     */
+    public UriInfo uri(String uri) {
+        return uriInfos.get(uri);
+    }
+
+    // The lock is only held by the add methods to keep the changes to write to disk in step with the URIs, adding to
+    // the index itself appends to it rather than copying the existing URIs.
+
     /**
      * @param addedUri The URI to add to the set of URIs.
      */
     public void addUri(UriInfo addedUri) {
         synchronized (this) {
-            Set<UriInfo> updated = new HashSet<>(this.uriInfos);
-            updated.add(addedUri);
-            this.uriInfos = updated;
+            uriInfos.add(addedUri);
             status = PUBLISHING;
+            changes.uriInfos.add(addedUri);
+            changes.status = status;
         }
     }
 
     public void addUris(List<UriInfo> addedUris) {
         synchronized (this) {
-            Set<UriInfo> updated = new HashSet<>(this.uriInfos);
-            updated.addAll(addedUris);
-            this.uriInfos = updated;
+            uriInfos.addAll(addedUris);
             status = PUBLISHING;
+            changes.uriInfos.addAll(addedUris);
+            changes.status = status;
         }
     }
 
@@ -115,19 +136,19 @@ public class Transaction {
      */
     public void addUriDelete(UriInfo deleted) {
         synchronized (this) {
-            Set<UriInfo> updated = new HashSet<>(this.uriDeletes);
-            updated.add(deleted);
-            this.uriDeletes = updated;
+            uriDeletes.add(deleted);
             status = PUBLISHING;
+            changes.uriDeletes.add(deleted);
+            changes.status = status;
         }
     }
 
     public void addUriDeletes(List<UriInfo> deletes) {
         synchronized (this) {
-            Set<UriInfo> updated = new HashSet<>(this.uriDeletes);
-            updated.addAll(deletes);
-            this.uriDeletes = updated;
+            uriDeletes.addAll(deletes);
             status = PUBLISHING;
+            changes.uriDeletes.addAll(deletes);
+            changes.status = status;
         }
     }
 
@@ -139,18 +160,13 @@ public class Transaction {
     }
 
     /**
-     * Checks for errors in this transaction.
+     * Checks for errors in this transaction. The check does not take the transaction lock or look at each URI, the
+     * {@link UriInfoIndex} keeps count of the URIs with errors as they are added and as they fail.
      *
      * @return If {@link #errors} contains anything, or if any {@link UriInfo#error error} field in {@link #uriInfos} is not blank, true.
      */
     public boolean hasErrors() {
-        synchronized (this) {
-            boolean result = errors.size() > 0;
-            for (UriInfo uriInfo : uriInfos) {
-                result |= StringUtils.isNotBlank(uriInfo.error());
-            }
-            return result;
-        }
+        return !errors.isEmpty() || uriInfos.hasErrors();
     }
 
     /**
@@ -170,11 +186,53 @@ public class Transaction {
             List<String> updated = new ArrayList<>(this.errors);
             updated.add(error);
             this.errors = updated;
+            changes.errors.add(error);
+        }
+    }
+
+    /**
+     * Take the changes made to this transaction since they were last taken.
+     *
+     * @return the changes, or null if there have been none.
+     */
+    public TransactionDelta drainChanges() {
+        synchronized (this) {
+            if (changes.isEmpty()) {
+                return null;
+            }
+            TransactionDelta drained = changes;
+            changes = new TransactionDelta();
+            return drained;
+        }
+    }
+
+    /**
+     * Apply changes read back from disk to this transaction. Applying the same changes more than once has no further
+     * effect so replaying a delta that is already included in this transaction is safe.
+     *
+     * @param delta the changes to apply.
+     */
+    public void apply(TransactionDelta delta) {
+        synchronized (this) {
+            if (delta.status != null) {
+                status = delta.status;
+            }
+            uriInfos.addAll(delta.uriInfos);
+            uriDeletes.addAll(delta.uriDeletes);
+            if (!delta.errors.isEmpty()) {
+                List<String> updated = new ArrayList<>(this.errors);
+                for (String error : delta.errors) {
+                    if (!updated.contains(error)) {
+                        updated.add(error);
+                    }
+                }
+                this.errors = updated;
+            }
         }
     }
 
     public void commit(boolean success) {
-        endDate = DateConverter.toString(new Date());
+        endDate = System.currentTimeMillis();
         if (success) {
             status = COMMITTED;
         } else {
@@ -183,7 +241,7 @@ public class Transaction {
     }
 
     public void rollback(boolean success) {
-        endDate = DateConverter.toString(new Date());
+        endDate = System.currentTimeMillis();
         if (success) {
             status = ROLLED_BACK;
         } else {
@@ -0,0 +1,52 @@
+package com.github.onsdigital.thetrain.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The changes made to a {@link Transaction} since it was last written to disk. Deltas are appended to the transaction
+ * journal so that adding files to a transaction does not rewrite the whole transaction every time.
+ * NB a delta is only modified while holding the lock of the {@link Transaction} it belongs to.
+ */
+public class TransactionDelta {
+
+    String status;
+    List<UriInfo> uriInfos = new ArrayList<>();
+    List<UriInfo> uriDeletes = new ArrayList<>();
+    List<String> errors = new ArrayList<>();
+
+    /**
+     * @return the status the transaction moved to, or null if the status has not changed.
+     */
+    public String status() {
+        return status;
+    }
+
+    /**
+     * @return the URIs added to the transaction.
+     */
+    public List<UriInfo> uris() {
+        return uriInfos;
+    }
+
+    /**
+     * @return the URIs to delete added to the transaction.
+     */
+    public List<UriInfo> urisToDelete() {
+        return uriDeletes;
+    }
+
+    /**
+     * @return the errors added to the transaction.
+     */
+    public List<String> errors() {
+        return errors;
+    }
+
+    /**
+     * @return true if the delta contains no changes.
+     */
+    public boolean isEmpty() {
+        return status == null && uriInfos.isEmpty() && uriDeletes.isEmpty() && errors.isEmpty();
+    }
+}
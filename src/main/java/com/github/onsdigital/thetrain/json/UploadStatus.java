@@ -0,0 +1,29 @@
+package com.github.onsdigital.thetrain.json;
+
+/**
+ * The progress of a resumable upload to a transaction, returned after each range of the file is written and when a
+ * client asks how much of the file has been received.
+ */
+public class UploadStatus {
+    public String message;
+    public boolean error;
+    public String uri;
+    public long received;
+    public boolean complete;
+    public String sha1;
+
+    /**
+     * @param message  An informational message.
+     * @param uri      The URI of the file being uploaded.
+     * @param received The number of bytes of the file received so far.
+     * @param complete If the whole file has been received and added to the transaction, true.
+     * @param sha1     The SHA-1 hash of the file once it is complete.
+     */
+    public UploadStatus(String message, String uri, long received, boolean complete, String sha1) {
+        this.message = message;
+        this.uri = uri;
+        this.received = received;
+        this.complete = complete;
+        this.sha1 = sha1;
+    }
+}
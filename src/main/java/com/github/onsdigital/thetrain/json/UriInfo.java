@@ -1,13 +1,23 @@
 package com.github.onsdigital.thetrain.json;
 
-import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.apache.commons.lang3.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Information about the transfer of a single file.
+ * <p>
+ * A transaction holds one of these per file so they are kept compact: the status and action are byte codes for the
+ * constants defined here, with any other value kept as a String, and the URI is held as UTF-8. {@link UriInfoJson}
+ * serialises them with the same Json as the plain String fields they replace.
  */
+@JsonSerialize(using = UriInfoJson.Serializer.class)
+@JsonDeserialize(using = UriInfoJson.Deserializer.class)
 public class UriInfo {
 
     public static final String STARTED = "started";
@@ -22,8 +32,13 @@ public class UriInfo {
     public static final String UPDATE = "updated";
     public static final String DELETE = "deleted";
 
+    private static final StringCodes STATUSES = new StringCodes(STARTED, UPLOADED, UPLOAD_FAILED, COMMIT_FAILED,
+            COMMITTED, ROLLED_BACK, UNKNOWN);
+    private static final StringCodes ACTIONS = new StringCodes(CREATE, UPDATE, DELETE);
+
     /**
-     * This is a String rather than an enum to make deserialisation lenient.
+     * The status, coded by {@link #STATUSES}. This is a String rather than an enum in Json to make deserialisation
+     * lenient, any other value is coded {@link StringCodes#OTHER} and kept in {@link #otherStatus}.
      * <p/>
      * This should be one of the following constant values defined in this class:
      * <ul>
@@ -36,26 +51,50 @@ public class UriInfo {
      * <li>{@value #UNKNOWN}</li>
      * </ul>
      */
-    String status;
+    byte status;
 
     /**
-     * This is a String rather than an enum to make deserialisation lenient.
-     * <p/>
-     * This should be one of the following constant values defined in this class:
+     * The action, coded by {@link #ACTIONS}. This should be one of the following constant values defined in this
+     * class:
      * <ul>
      * <li>{@value #CREATE}</li>
      * <li>{@value #UPDATE}</li>
      * </ul>
+     * Any other value is coded {@link StringCodes#OTHER} and kept in {@link #otherAction}.
+     */
+    byte action;
+
+    /**
+     * A status or action read from Json that is not one of the constants, null otherwise.
+     */
+    String otherStatus;
+    String otherAction;
+
+    /**
+     * The URI encoded as UTF-8, which is half the size of a String on Java 8, and its hash code. A transaction can
+     * hold hundreds of thousands of URIs so the URI is only decoded to a String when asked for.
+     */
+    byte[] uri;
+    int hash;
+
+    /**
+     * Start and end times in milliseconds since the epoch, formatted only when serialised.
      */
-    String action;
-    String uri;
-    String start;
-    String end;
+    long start;
+    long end;
     long duration;
     String error;
 
-    transient Date startDate;
-    transient Date endDate;
+    /**
+     * The {@link System#nanoTime()} equivalent of {@link #start}, so the duration is not affected by changes to the
+     * wall clock. Not set for an instance read back from Json.
+     */
+    transient long startNanos;
+
+    /**
+     * The {@link UriInfoIndex} this instance has been added to, which is told when this instance fails.
+     */
+    private transient UriInfoIndex owner;
 
     /**
      * Constructor for serialisation.
@@ -65,12 +104,11 @@ public class UriInfo {
     }
 
     public String status() {
-        return status;
+        return status == StringCodes.OTHER ? otherStatus : STATUSES.decode(status);
     }
 
-
     public String action() {
-        return action;
+        return action == StringCodes.OTHER ? otherAction : ACTIONS.decode(action);
     }
 
     /**
@@ -80,10 +118,11 @@ public class UriInfo {
      * @param startDate The point in time this URI started being processed.
      */
     public UriInfo(String uri, Date startDate) {
-        this.uri = uri;
-        this.startDate = startDate;
-        start = DateConverter.toString(startDate);
-        status = STARTED;
+        setUri(uri);
+        start = startDate.getTime();
+        long elapsed = Math.max(0, System.currentTimeMillis() - start);
+        startNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(elapsed);
+        setStatus(STARTED);
     }
 
     /**
@@ -93,13 +132,101 @@ public class UriInfo {
      * @param uri The URI to record information about.
      */
     public UriInfo(String uri) {
-        this.uri = uri;
-        status = UNKNOWN;
+        setUri(uri);
+        setStatus(UNKNOWN);
         error = UNKNOWN;
     }
 
+    /**
+     * @return the URI, decoded from UTF-8 by each call. Use {@link #hasUri(String)} to compare it.
+     */
     public String uri() {
-        return uri;
+        return uri == null ? null : new String(uri, StandardCharsets.UTF_8);
+    }
+
+    void setUri(String uri) {
+        this.uri = uri == null ? null : uri.getBytes(StandardCharsets.UTF_8);
+        hash = Arrays.hashCode(this.uri);
+    }
+
+    /**
+     * Compare the URI of this instance with a URI without decoding or encoding either.
+     *
+     * @param uri the URI to compare with.
+     * @return true if this instance is for the URI.
+     */
+    public boolean hasUri(String uri) {
+        if (this.uri == null || uri == null) {
+            return this.uri == null && uri == null;
+        }
+        int position = 0;
+        for (int i = 0; i < uri.length(); ) {
+            int codePoint = codePointAt(uri, i);
+            i += Character.charCount(codePoint);
+            int length = utf8Length(codePoint);
+            if (position + length > this.uri.length) {
+                return false;
+            }
+            for (int b = 0; b < length; b++) {
+                if (this.uri[position++] != utf8Byte(codePoint, length, b)) {
+                    return false;
+                }
+            }
+        }
+        return position == this.uri.length;
+    }
+
+    /**
+     * The hash code of the instance for a URI, computed without encoding the URI.
+     *
+     * @param uri the URI.
+     * @return the hash code of the UTF-8 encoding of the URI, the same as {@link Arrays#hashCode(byte[])}.
+     */
+    static int hash(String uri) {
+        if (uri == null) {
+            return 0;
+        }
+        int hash = 1;
+        for (int i = 0; i < uri.length(); ) {
+            int codePoint = codePointAt(uri, i);
+            i += Character.charCount(codePoint);
+            int length = utf8Length(codePoint);
+            for (int b = 0; b < length; b++) {
+                hash = 31 * hash + utf8Byte(codePoint, length, b);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The code point at an index, or '?' for an unpaired surrogate as {@link String#getBytes} encodes it.
+     */
+    private static int codePointAt(String uri, int i) {
+        char c = uri.charAt(i);
+        if (Character.isHighSurrogate(c) && i + 1 < uri.length() && Character.isLowSurrogate(uri.charAt(i + 1))) {
+            return Character.toCodePoint(c, uri.charAt(i + 1));
+        }
+        return Character.isSurrogate(c) ? '?' : c;
+    }
+
+    private static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static byte utf8Byte(int codePoint, int length, int index) {
+        if (length == 1) {
+            return (byte) codePoint;
+        }
+        int bits = codePoint >> (6 * (length - 1 - index));
+        if (index == 0) {
+            return (byte) (((0xFF00 >> length) & 0xFF) | bits);
+        }
+        return (byte) (0x80 | (bits & 0x3F));
+    }
+
+    void setStatus(String status) {
+        this.status = STATUSES.encode(status);
+        this.otherStatus = this.status == StringCodes.OTHER ? status : null;
     }
 
     /**
@@ -108,27 +235,57 @@ public class UriInfo {
      * @return <code>this</code>.
      */
     public void stop() {
-        endDate = new Date();
-        end = DateConverter.toString(endDate);
-        if (startDate != null && endDate != null) {
-            duration = endDate.getTime() - startDate.getTime();
+        end = System.currentTimeMillis();
+        if (startNanos != 0) {
+            duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
         }
-        status = UPLOADED;
+        setStatus(UPLOADED);
     }
 
     /**
      * @param error An error debug to set for this Uri.
      */
     public void fail(String error) {
-        status = COMMIT_FAILED;
-        this.error = error;
+        UriInfoIndex failed = null;
+        synchronized (this) {
+            setStatus(COMMIT_FAILED);
+            if (StringUtils.isBlank(this.error) && StringUtils.isNotBlank(error)) {
+                failed = owner;
+            }
+            this.error = error;
+        }
+        if (failed != null) {
+            failed.errorAdded();
+        }
+    }
+
+    /**
+     * Record the {@link UriInfoIndex} this instance has been added to.
+     *
+     * @return true if this instance already has an error.
+     */
+    synchronized boolean attach(UriInfoIndex index) {
+        owner = index;
+        return StringUtils.isNotBlank(error);
+    }
+
+    /**
+     * Forget the {@link UriInfoIndex} this instance has been removed from.
+     *
+     * @return true if this instance has an error.
+     */
+    synchronized boolean detach(UriInfoIndex index) {
+        if (owner == index) {
+            owner = null;
+        }
+        return StringUtils.isNotBlank(error);
     }
 
     /**
      * Sets the status of this instance to {@value #COMMITTED}.
      */
     public void commit() {
-        status = COMMITTED;
+        setStatus(COMMITTED);
     }
 
     /**
@@ -136,14 +293,15 @@ public class UriInfo {
      * @param action
      */
     public void setAction(String action) {
-        this.action = action;
+        this.action = ACTIONS.encode(action);
+        this.otherAction = this.action == StringCodes.OTHER ? action : null;
     }
 
     /**
      * Sets the status of this instance to {@value #ROLLED_BACK}.
      */
     public void rollback() {
-        status = ROLLED_BACK;
+        setStatus(ROLLED_BACK);
     }
 
     /**
@@ -157,23 +315,20 @@ public class UriInfo {
 
     @Override
     public int hashCode() {
-        int result = 0;
-        if (uri != null) {
-            result = uri.hashCode();
-        }
-        return result;
+        return hash;
     }
 
     @Override
     public boolean equals(Object obj) {
         return obj != null &&
                 obj.getClass().equals(this.getClass()) &&
-                StringUtils.equals(uri, ((UriInfo) obj).uri);
+                hash == ((UriInfo) obj).hash &&
+                Arrays.equals(uri, ((UriInfo) obj).uri);
     }
 
     @Override
     public String toString() {
-        return uri() + " (" + status + ")";
+        return uri() + " (" + status() + ")";
     }
 
 }
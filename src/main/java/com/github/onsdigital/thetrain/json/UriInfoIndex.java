@@ -0,0 +1,222 @@
+package com.github.onsdigital.thetrain.json;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of {@link UriInfo} indexed by URI. Adding to the set is amortised constant time, and the set can be
+ * iterated (for example to serialise it) while it is being added to. Iteration is in the order the {@link UriInfo}s
+ * were added, so entries added during an iteration come after those already seen and a page of the set stays the same
+ * as more are added.
+ * <p>
+ * As with a {@link java.util.HashSet} of {@link UriInfo}, adding a {@link UriInfo} for a URI already in the set leaves
+ * the existing {@link UriInfo} in place. The set is serialised as a JSON array.
+ * <p>
+ * The index keeps count of the {@link UriInfo}s with an error, including those that fail after being added, so that
+ * checking for errors does not have to look at every {@link UriInfo}.
+ */
+public class UriInfoIndex extends AbstractSet<UriInfo> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Keyed by the {@link UriInfo} itself, which is equal to any other for the same URI, so no separate key is held.
+     */
+    private final ConcurrentMap<UriInfo, UriInfo> index = new ConcurrentHashMap<>();
+    /**
+     * The {@link UriInfo}s in the order they were added, appended under the lock and read without it. The array is
+     * only replaced by a larger copy, so the first {@link #added} entries of the current array are always complete.
+     * A removed {@link UriInfo} leaves a null entry.
+     */
+    private volatile UriInfo[] order = new UriInfo[INITIAL_CAPACITY];
+    private volatile int added;
+    private final Object lock = new Object();
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    /**
+     * Construct an empty UriInfoIndex.
+     */
+    public UriInfoIndex() {
+        // Constructor for serialisation
+    }
+
+    /**
+     * Construct a UriInfoIndex containing the given {@link UriInfo}s.
+     *
+     * @param uriInfos the {@link UriInfo}s to add.
+     */
+    public UriInfoIndex(Collection<UriInfo> uriInfos) {
+        addAll(uriInfos);
+    }
+
+    @Override
+    public boolean add(UriInfo uriInfo) {
+        synchronized (lock) {
+            if (index.putIfAbsent(uriInfo, uriInfo) != null) {
+                return false;
+            }
+            UriInfo[] entries = order;
+            if (added == entries.length) {
+                // Grow by half rather than doubling, as the array is held for the life of the transaction.
+                order = entries = Arrays.copyOf(entries, entries.length + (entries.length >> 1));
+            }
+            entries[added] = uriInfo;
+            added++;
+        }
+        if (uriInfo.attach(this)) {
+            errorCount.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * @return true if any {@link UriInfo} in the set has an error.
+     */
+    public boolean hasErrors() {
+        return errorCount.get() > 0;
+    }
+
+    /**
+     * Called by a {@link UriInfo} in this set when it fails.
+     */
+    void errorAdded() {
+        errorCount.incrementAndGet();
+    }
+
+    /**
+     * Look up the {@link UriInfo} for a URI.
+     *
+     * @param uri the URI.
+     * @return the {@link UriInfo} for the URI, or null if the URI is not in the set.
+     */
+    public UriInfo get(String uri) {
+        return index.get(new Probe(uri));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof UriInfo && index.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof UriInfo)) {
+            return false;
+        }
+        UriInfo removed;
+        synchronized (lock) {
+            removed = index.remove(o);
+            if (removed == null) {
+                return false;
+            }
+            UriInfo[] entries = order;
+            for (int i = 0; i < added; i++) {
+                if (entries[i] == removed) {
+                    entries[i] = null;
+                    break;
+                }
+            }
+        }
+        detach(removed);
+        return true;
+    }
+
+    @Override
+    public Iterator<UriInfo> iterator() {
+        return new Iterator<UriInfo>() {
+            private int position;
+            private UriInfo next = advance();
+            private UriInfo current;
+
+            /**
+             * @return the next entry that has not been removed, including any added since the iteration began.
+             */
+            private UriInfo advance() {
+                // Read the count before the array, so the array holds at least that many entries.
+                int count = added;
+                UriInfo[] entries = order;
+                while (position < count) {
+                    UriInfo uriInfo = entries[position++];
+                    if (uriInfo != null) {
+                        return uriInfo;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public UriInfo next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = advance();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                UriInfoIndex.this.remove(current);
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void clear() {
+        for (Iterator<UriInfo> iterator = iterator(); iterator.hasNext(); ) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Looks up the {@link UriInfo} for a URI string. It has the same hash code as the {@link UriInfo} and is equal to
+     * it, so the map finds it, but compares against the URI bytes rather than building a {@link UriInfo} and encoding
+     * the URI for every lookup.
+     */
+    private static final class Probe {
+        private final String uri;
+        private final int hash;
+
+        Probe(String uri) {
+            this.uri = uri;
+            this.hash = UriInfo.hash(uri);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof UriInfo && ((UriInfo) obj).hashCode() == hash && ((UriInfo) obj).hasUri(uri);
+        }
+    }
+
+    private void detach(UriInfo uriInfo) {
+        if (uriInfo.detach(this)) {
+            errorCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.onsdigital.thetrain.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * Jackson serialisation of the compact {@link UriInfo}, as the Json object it has always been:
+ * <pre>
+ * {"status":"committed","action":"created","uri":"/a/data.json","start":"...","end":"...","duration":10,"error":"..."}
+ * </pre>
+ * Null values and unset timestamps are left out.
+ */
+public class UriInfoJson {
+
+    static final String STATUS = "status";
+    static final String ACTION = "action";
+    static final String URI = "uri";
+    static final String START = "start";
+    static final String END = "end";
+    static final String DURATION = "duration";
+    static final String ERROR = "error";
+
+    private UriInfoJson() {
+        // nested classes only
+    }
+
+    /**
+     * Jackson serialiser for a {@link UriInfo}.
+     */
+    public static class Serializer extends JsonSerializer<UriInfo> {
+        @Override
+        public void serialize(UriInfo uriInfo, JsonGenerator json, SerializerProvider provider) throws IOException {
+            json.writeStartObject();
+            writeString(json, STATUS, uriInfo.status());
+            writeString(json, ACTION, uriInfo.action());
+            if (uriInfo.uri != null && json instanceof UTF8JsonGenerator) {
+                // Copy the URI bytes directly rather than decoding them to a String first.
+                json.writeFieldName(URI);
+                json.writeUTF8String(uriInfo.uri, 0, uriInfo.uri.length);
+            } else {
+                writeString(json, URI, uriInfo.uri());
+            }
+            writeString(json, START, Timestamps.format(uriInfo.start));
+            writeString(json, END, Timestamps.format(uriInfo.end));
+            json.writeNumberField(DURATION, uriInfo.duration);
+            writeString(json, ERROR, uriInfo.error);
+            json.writeEndObject();
+        }
+
+        private static void writeString(JsonGenerator json, String name, String value) throws IOException {
+            if (value != null) {
+                json.writeStringField(name, value);
+            }
+        }
+    }
+
+    /**
+     * Jackson deserialiser for a {@link UriInfo}. Unknown fields are ignored.
+     */
+    public static class Deserializer extends JsonDeserializer<UriInfo> {
+        @Override
+        public UriInfo deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            UriInfo uriInfo = new UriInfo();
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.START_OBJECT) {
+                token = parser.nextToken();
+            }
+            for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+                String name = parser.getCurrentName();
+                token = parser.nextToken();
+                switch (name) {
+                    case STATUS:
+                        uriInfo.setStatus(parser.getValueAsString());
+                        break;
+                    case ACTION:
+                        uriInfo.setAction(parser.getValueAsString());
+                        break;
+                    case URI:
+                        uriInfo.setUri(parser.getValueAsString());
+                        break;
+                    case START:
+                        uriInfo.start = readTimestamp(parser, token);
+                        break;
+                    case END:
+                        uriInfo.end = readTimestamp(parser, token);
+                        break;
+                    case DURATION:
+                        uriInfo.duration = parser.getValueAsLong();
+                        break;
+                    case ERROR:
+                        uriInfo.error = parser.getValueAsString();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return uriInfo;
+        }
+
+        private static long readTimestamp(JsonParser parser, JsonToken token)
+                throws IOException {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return parser.getLongValue();
+            }
+            return Timestamps.parse(parser.getValueAsString());
+        }
+    }
+}
@@ -4,6 +4,10 @@ public class FileCopy {
     public String source;
     public String target;
 
+    FileCopy() {
+        // Constructor for serialisation
+    }
+
     public FileCopy(String sourceUri, String targetUri) {
         this.source = sourceUri;
         this.target = targetUri;
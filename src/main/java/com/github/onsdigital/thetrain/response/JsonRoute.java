@@ -0,0 +1,34 @@
+package com.github.onsdigital.thetrain.response;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Wraps a {@link Route} to write the object it returns straight to the response with the {@link JsonTransformer},
+ * rather than rendering it to a String for Spark to write.
+ */
+public class JsonRoute implements Route {
+
+    private final Route route;
+    private final JsonTransformer transformer;
+
+    /**
+     * @param route       the route to wrap.
+     * @param transformer the transformer used to write the response.
+     */
+    public JsonRoute(Route route, JsonTransformer transformer) {
+        this.route = route;
+        this.transformer = transformer;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        Object result = route.handle(request, response);
+        if (result != null) {
+            transformer.write(result, request, response);
+        }
+        // The response has been written and completed so there is no body left for Spark to write.
+        return "";
+    }
+}
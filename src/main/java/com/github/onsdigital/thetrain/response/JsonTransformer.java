@@ -1,28 +1,131 @@
 package com.github.onsdigital.thetrain.response;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.onsdigital.thetrain.json.ObjectMapperFactory;
+import org.apache.commons.lang3.StringUtils;
+import spark.Request;
+import spark.Response;
 import spark.ResponseTransformer;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Renders responses as compact Json with the same Jackson configuration used by the transaction store. Responses are
+ * written directly to the servlet output stream by {@link #write(Object, Request, Response)}, gzipped if the client
+ * accepts it, and pretty printed only if requested with <code>pretty=true</code>. Null fields are left out.
+ */
 public class JsonTransformer implements ResponseTransformer {
 
+    public static final String PRETTY_KEY = "pretty";
+    public static final String CONTENT_TYPE = "application/json";
+
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+    static final String CONTENT_ENCODING = "Content-Encoding";
+    static final String GZIP = "gzip";
+    static final int GZIP_BUFFER_SIZE = 8192;
+
     private static JsonTransformer INSTANCE = null;
 
-    private Gson gson;
+    private final ObjectMapper objectMapper;
+
+    JsonTransformer() {
+        objectMapper = ObjectMapperFactory.create();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        // Values are written one at a time to a stream, flushing after each would flush the servlet response.
+        objectMapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
 
-    private JsonTransformer() {
-        GsonBuilder gsonBuilder = new GsonBuilder();
+    @Override
+    public String render(Object o) {
+        return toJson(o);
+    }
 
-        if (true) {
-            gsonBuilder.setPrettyPrinting();
+    /**
+     * Render a response as a String, for responses set as the response body rather than written, such as errors.
+     *
+     * @param o the response.
+     * @return the Json.
+     */
+    public String toJson(Object o) {
+        try {
+            return objectMapper.writeValueAsString(o);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        this.gson = gsonBuilder.create();
+    /**
+     * Write a response to the servlet output stream and complete the response.
+     *
+     * @param o        the response.
+     * @param request  the request.
+     * @param response the response to write to.
+     * @throws IOException problem writing the response.
+     */
+    public void write(Object o, Request request, Response response) throws IOException {
+        try (JsonGenerator generator = createGenerator(request, response)) {
+            generator.writeObject(o);
+        }
     }
 
-    @Override
-    public String render(Object o) throws Exception {
-        return gson.toJson(o);
+    /**
+     * Create a generator to stream a response to the servlet output stream, setting the content type and encoding
+     * headers. Closing the generator completes the response.
+     *
+     * @param request  the request.
+     * @param response the response to write to.
+     * @return the generator.
+     * @throws IOException problem opening the servlet output stream.
+     */
+    public JsonGenerator createGenerator(Request request, Response response) throws IOException {
+        response.type(CONTENT_TYPE);
+        response.header("Vary", ACCEPT_ENCODING);
+
+        OutputStream out = response.raw().getOutputStream();
+        if (acceptsGzip(request.headers(ACCEPT_ENCODING))) {
+            response.header(CONTENT_ENCODING, GZIP);
+            out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        }
+        return createGenerator(out, Boolean.valueOf(request.raw().getParameter(PRETTY_KEY)));
+    }
+
+    /**
+     * @param out    the stream to write to, closed when the generator is closed.
+     * @param pretty if true pretty print the Json.
+     * @return a generator writing to the stream.
+     * @throws IOException problem creating the generator.
+     */
+    public JsonGenerator createGenerator(OutputStream out, boolean pretty) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        if (pretty) {
+            generator.useDefaultPrettyPrinter();
+        }
+        return generator;
+    }
+
+    /**
+     * @param acceptEncoding the value of the Accept-Encoding request header.
+     * @return true if gzip is one of the accepted encodings and has not been given a quality of zero.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (StringUtils.isBlank(acceptEncoding)) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] parts = encoding.split(";");
+            if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     public static JsonTransformer get() {
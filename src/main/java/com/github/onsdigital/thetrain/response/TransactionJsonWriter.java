@@ -0,0 +1,146 @@
+package com.github.onsdigital.thetrain.response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Streams a {@link Transaction} as Json, one {@link UriInfo} at a time, rather than building the whole document in
+ * memory. The generator must have a codec, as those created by {@link JsonTransformer} do. The output has the same
+ * structure as a {@link com.github.onsdigital.thetrain.json.Result}.
+ * <p>
+ * The URIs and URIs to delete can be filtered and paged, each list independently. When filtered or paged a
+ * <code>page</code> object gives the offset, limit and total number of matching entries in each list. In summary mode
+ * the lists are replaced by their sizes and the number of entries with each status.
+ * <p>
+ * Pages follow the order the URIs were added to the transaction, so a page does not change as more URIs are added.
+ */
+public class TransactionJsonWriter {
+
+    private final Predicate<UriInfo> filter;
+    private final int offset;
+    private final int limit;
+    private final boolean summary;
+
+    /**
+     * @param filter  only write URIs matching the filter, or null to write all of them.
+     * @param offset  the number of matching URIs to skip in each list.
+     * @param limit   the maximum number of URIs to write from each list.
+     * @param summary if true write the number of URIs with each status rather than the URIs themselves.
+     */
+    public TransactionJsonWriter(Predicate<UriInfo> filter, int offset, int limit, boolean summary) {
+        this.filter = filter;
+        this.offset = offset;
+        this.limit = limit;
+        this.summary = summary;
+    }
+
+    /**
+     * Write a transaction.
+     *
+     * @param message     the result message.
+     * @param transaction the transaction.
+     * @param json        the generator to write to. Not closed.
+     * @throws IOException problem writing the Json.
+     */
+    public void write(String message, Transaction transaction, JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("message", message);
+        json.writeBooleanField("error", false);
+
+        json.writeObjectFieldStart("transaction");
+        writeStringField(json, "id", transaction.id());
+        writeStringField(json, "status", transaction.getStatus());
+        writeStringField(json, "startDate", transaction.startDate());
+        writeStringField(json, "endDate", transaction.endDate());
+
+        int uriInfos;
+        int uriDeletes;
+        if (summary) {
+            json.writeNumberField("fileCount", transaction.uris().size());
+            json.writeNumberField("deleteCount", transaction.urisToDelete().size());
+            json.writeBooleanField("hasErrors", transaction.hasErrors());
+            json.writeFieldName("fileStatuses");
+            uriInfos = writeStatuses(transaction.uris(), json);
+            json.writeFieldName("deleteStatuses");
+            uriDeletes = writeStatuses(transaction.urisToDelete(), json);
+        } else {
+            json.writeFieldName("uriInfos");
+            uriInfos = writeUriInfos(transaction.uris(), json);
+            json.writeFieldName("uriDeletes");
+            uriDeletes = writeUriInfos(transaction.urisToDelete(), json);
+        }
+
+        json.writeObjectField("errors", transaction.errors());
+        if (!summary && transaction.files != null) {
+            json.writeObjectField("files", transaction.files);
+        }
+        json.writeEndObject();
+
+        if (isPaged()) {
+            json.writeObjectFieldStart("page");
+            json.writeNumberField("offset", offset);
+            json.writeNumberField("limit", limit);
+            json.writeNumberField("uriInfos", uriInfos);
+            json.writeNumberField("uriDeletes", uriDeletes);
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+        json.flush();
+    }
+
+    private static void writeStringField(JsonGenerator json, String name, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(name, value);
+        }
+    }
+
+    private boolean isPaged() {
+        return filter != null || offset > 0 || limit < Integer.MAX_VALUE;
+    }
+
+    private boolean matches(UriInfo uriInfo) {
+        return filter == null || filter.test(uriInfo);
+    }
+
+    /**
+     * @return the number of matching URIs, including those outside the page.
+     */
+    private int writeUriInfos(Set<UriInfo> uriInfos, JsonGenerator json) throws IOException {
+        int matched = 0;
+        json.writeStartArray();
+        for (UriInfo uriInfo : uriInfos) {
+            if (!matches(uriInfo)) {
+                continue;
+            }
+            if (matched >= offset && matched - offset < limit) {
+                json.writeObject(uriInfo);
+            }
+            matched++;
+        }
+        json.writeEndArray();
+        return matched;
+    }
+
+    /**
+     * @return the number of matching URIs.
+     */
+    private int writeStatuses(Set<UriInfo> uriInfos, JsonGenerator json) throws IOException {
+        int matched = 0;
+        Map<String, Integer> statuses = new TreeMap<>();
+        for (UriInfo uriInfo : uriInfos) {
+            if (matches(uriInfo)) {
+                statuses.merge(String.valueOf(uriInfo.status()), 1, Integer::sum);
+                matched++;
+            }
+        }
+        json.writeObject(statuses);
+        return matched;
+    }
+}
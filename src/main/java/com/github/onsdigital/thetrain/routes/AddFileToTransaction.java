@@ -5,11 +5,11 @@ import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.helpers.PathUtils;
 import com.github.onsdigital.thetrain.helpers.uploads.CloseablePart;
 import com.github.onsdigital.thetrain.helpers.uploads.CloseablePartSupplier;
-import com.github.onsdigital.thetrain.json.Result;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.service.PublisherService;
 import com.github.onsdigital.thetrain.service.TransactionsService;
 import com.github.onsdigital.thetrain.storage.TransactionUpdate;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import spark.Request;
 import spark.Response;
@@ -25,6 +25,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.zip.ZipInputStream;
 
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
@@ -32,19 +36,30 @@ import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 public class AddFileToTransaction extends BaseHandler {
 
     static final String ADD_FILE_ERR_MSG = "error adding file to transaction";
+    static final String ADD_BATCH_ERR_MSG = "error adding batch of files to transaction";
+    static final String PART_NAME_MISSING_ERR = "batch file part name required but none provided";
+    static final String DUPLICATE_PART_ERR = "batch contains more than one file for uri %s";
 
     private TransactionsService transactionsService;
     private PublisherService publisherService;
     private CloseablePartSupplier filePartSupplier;
+    private boolean isZipStreamingEnabled;
 
     /**
      * Construct a new add file to transaction Route.
+     *
+     * @param transactionsService   the {@link TransactionsService} to use.
+     * @param publisherService      the {@link PublisherService} to use.
+     * @param filePartSupplier      the {@link CloseablePartSupplier} used to get the uploaded file from the request.
+     * @param isZipStreamingEnabled feature flag toggle - if enabled zip content is extracted directly from the
+     *                              request rather than being written to the transaction as a zip file first.
      */
     public AddFileToTransaction(TransactionsService transactionsService, PublisherService publisherService,
-                                CloseablePartSupplier filePartSupplier) {
+                                CloseablePartSupplier filePartSupplier, boolean isZipStreamingEnabled) {
         this.transactionsService = transactionsService;
         this.publisherService = publisherService;
         this.filePartSupplier = filePartSupplier;
+        this.isZipStreamingEnabled = isZipStreamingEnabled;
     }
 
     @Override
@@ -55,7 +70,9 @@ public class AddFileToTransaction extends BaseHandler {
         String uri = getURI(request);
 
         try {
-            if (isZipped(request)) {
+            if (isBatch(request)) {
+                handleBatchRequest(request, transaction, uri);
+            } else if (isZipped(request)) {
                 handleZipRequest(request, transaction, uri);
             } else {
                 handleNonZipRequest(request, transaction, uri, startDate);
@@ -68,7 +85,47 @@ public class AddFileToTransaction extends BaseHandler {
                 .data("uri", uri)
                 .log("file added to publish transaction successfully");
 
-        return new Result("Published to " + uri, false, transaction);
+        return getResult(request, "Published to " + uri, transaction, uri);
+    }
+
+    /**
+     * Handle a batch request: a multipart request with a part for each file, named with the URI of the file relative
+     * to the request URI. The files are written concurrently and the transaction is updated once for the batch.
+     */
+    private void handleBatchRequest(Request request, Transaction transaction, String uri) throws PublishException,
+            BadRequestException {
+        info().transactionID(transaction.id()).data("uri", uri).log("attempting to add batch of files to transaction");
+
+        List<CloseablePart> parts = filePartSupplier.getFileParts(request, transaction);
+        boolean isSuccess;
+        try {
+            Map<String, Callable<InputStream>> files = new LinkedHashMap<>();
+            for (CloseablePart part : parts) {
+                if (StringUtils.isBlank(part.getName())) {
+                    throw new BadRequestException(PART_NAME_MISSING_ERR, transaction.id());
+                }
+
+                String targetUri = PathUtils.stripTrailingSlash(uri) + PathUtils.setLeadingSlash(part.getName());
+                if (files.put(targetUri, part::getInputStream) != null) {
+                    throw new BadRequestException(String.format(DUPLICATE_PART_ERR, targetUri), transaction.id());
+                }
+            }
+
+            isSuccess = publisherService.addFiles(transaction, files);
+        } finally {
+            for (CloseablePart part : parts) {
+                part.close();
+            }
+        }
+
+        if (!isSuccess) {
+            throw new PublishException(ADD_BATCH_ERR_MSG, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+
+        info().transactionID(transaction.id())
+                .data("uri", uri)
+                .data("files", parts.size())
+                .log("batch of files successfully added to transaction");
     }
 
     /**
@@ -78,8 +135,13 @@ public class AddFileToTransaction extends BaseHandler {
             BadRequestException {
         info().transactionID(transaction.id()).data("uri", uri).log("attempting to add zip files to transactions");
 
-        Path zipPath = writeZipToTransaction(request, transaction, uri);
-        boolean isSuccess = extractZipContentIntoTransaction(zipPath, transaction, uri);
+        boolean isSuccess;
+        if (isZipStreamingEnabled) {
+            isSuccess = streamZipContentIntoTransaction(request, transaction, uri);
+        } else {
+            Path zipPath = writeZipToTransaction(request, transaction, uri);
+            isSuccess = extractZipContentIntoTransaction(zipPath, transaction, uri);
+        }
 
         if (!isSuccess) {
             throw new PublishException("error adding zipped files to transaction", transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
@@ -107,13 +169,25 @@ public class AddFileToTransaction extends BaseHandler {
     }
 
     private boolean extractZipContentIntoTransaction(Path zipPath, Transaction transaction, String uri) throws PublishException {
+        return publisherService.addFiles(transaction, uri, zipPath);
+    }
+
+    /**
+     * Extract the zip content directly from the request into the transaction. Unlike
+     * {@link #writeZipToTransaction(Request, Transaction, String)} the zip file itself is never written to the
+     * transaction so each byte of the upload is only read once.
+     */
+    private boolean streamZipContentIntoTransaction(Request request, Transaction transaction, String uri)
+            throws BadRequestException, PublishException {
         try (
-                BufferedInputStream buf = new BufferedInputStream(Files.newInputStream(zipPath));
-                ZipInputStream zipInputStream = new ZipInputStream((buf))
+                CloseablePart closeablePart = filePartSupplier.getFilePart(request, transaction);
+                InputStream in = closeablePart.getInputStream();
+                BufferedInputStream buf = new BufferedInputStream(in);
+                ZipInputStream zipInputStream = new ZipInputStream(buf)
         ) {
             return publisherService.addFiles(transaction, uri, zipInputStream);
         } catch (IOException ex) {
-            throw new PublishException("error attempting to extract zip content to transaction ", ex, transaction);
+            throw new PublishException("error attempting to stream zip content to transaction", ex, transaction);
         }
     }
 
@@ -0,0 +1,189 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.exception.PublishException;
+import com.github.onsdigital.thetrain.helpers.SizeLimitInputStream;
+import com.github.onsdigital.thetrain.helpers.uploads.ContentRange;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UploadStatus;
+import com.github.onsdigital.thetrain.service.PublisherService;
+import com.github.onsdigital.thetrain.service.TransactionsService;
+import com.github.onsdigital.thetrain.storage.TransactionUpdate;
+import com.github.onsdigital.thetrain.storage.UploadProgress;
+import org.apache.http.HttpStatus;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.InputStream;
+import java.util.Date;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Add a single file to a transaction from a raw <code>application/octet-stream</code> request body. Unlike
+ * {@link AddFileToTransaction} the body is not parsed as a multipart request, so it is streamed straight into the
+ * transaction rather than first being written to a temp file and read back.
+ * <p>
+ * A request with a <code>Content-Range</code> header is part of a resumable upload: the body is written at the offset
+ * given by the range and the file is only added to the transaction once every byte of it has been received. If an
+ * upload is interrupted the client gets the number of bytes received from {@link GetUploadStatus} and sends the rest.
+ */
+public class AddRawFileToTransaction extends BaseHandler {
+
+    static final String OCTET_STREAM = "application/octet-stream";
+    static final String CONTENT_TYPE_ERR = "expected request body with content type " + OCTET_STREAM;
+    static final String FILE_SIZE_ERR = "request body exceeds the maximum file upload size";
+    static final String ADD_FILE_ERR_MSG = "error adding file to transaction";
+    static final String CONTENT_RANGE_ERR = "invalid Content-Range header";
+    static final String RANGE_NOT_ACCEPTED_ERR = "range starting at %d not accepted, %d bytes of %s received";
+    static final String RANGE_TOTAL_ERR = "range %s does not fit the total of %d bytes declared for %s";
+    static final String UPLOAD_BUSY_ERR = "another range of %s is being written, retry once it completes";
+
+    private TransactionsService transactionsService;
+    private PublisherService publisherService;
+    private long maxFileSize;
+
+    /**
+     * Construct a new add raw file to transaction Route.
+     *
+     * @param transactionsService the {@link TransactionsService} to use.
+     * @param publisherService    the {@link PublisherService} to use.
+     * @param maxFileSize         the maximum file upload size accepted by the API (in bytes). A value of -1 is
+     *                            unlimited.
+     */
+    public AddRawFileToTransaction(TransactionsService transactionsService, PublisherService publisherService,
+                                   long maxFileSize) {
+        this.transactionsService = transactionsService;
+        this.publisherService = publisherService;
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        Date startDate = new Date();
+
+        Transaction transaction = transactionsService.getTransaction(request);
+        String uri = getURI(request);
+        validateBody(request.raw(), transaction);
+
+        String contentRange = request.raw().getHeader(ContentRange.HEADER);
+        if (contentRange != null) {
+            return addRange(request, transaction, uri, contentRange, startDate);
+        }
+
+        info().transactionID(transaction.id()).data("uri", uri).log("attempting to add raw file to transaction");
+
+        boolean isSuccess;
+        try (SizeLimitInputStream body = new SizeLimitInputStream(request.raw().getInputStream(), maxFileSize)) {
+            TransactionUpdate update = addContent(transaction, uri, body, startDate);
+            isSuccess = update.isSuccess();
+            transaction.addUri(update.getUriInfo());
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PublishException(ADD_FILE_ERR_MSG, e, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        } finally {
+            transactionsService.tryUpdateAsync(transaction);
+        }
+
+        if (!isSuccess) {
+            throw new PublishException(ADD_FILE_ERR_MSG, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+
+        info().transactionID(transaction.id())
+                .data("uri", uri)
+                .log("raw file added to publish transaction successfully");
+
+        return getResult(request, "Published to " + uri, transaction, uri);
+    }
+
+    /**
+     * The Content-Length of the body may be missing, so its size is also limited as it is read. A body that exceeds
+     * the limit fails the write, which removes the partial file from the transaction, and is rejected.
+     */
+    private TransactionUpdate addContent(Transaction transaction, String uri, SizeLimitInputStream body,
+                                         Date startDate) throws BadRequestException, PublishException {
+        TransactionUpdate update;
+        try {
+            update = publisherService.addContentToTransaction(transaction, uri, body, startDate);
+        } catch (PublishException e) {
+            if (body.isLimitExceeded()) {
+                throw new BadRequestException(e, FILE_SIZE_ERR, transaction.id());
+            }
+            throw e;
+        }
+
+        if (body.isLimitExceeded()) {
+            throw new BadRequestException(FILE_SIZE_ERR, transaction.id());
+        }
+        return update;
+    }
+
+    private UploadStatus addRange(Request request, Transaction transaction, String uri, String contentRange,
+                                  Date startDate) throws BadRequestException, PublishException {
+        ContentRange range;
+        try {
+            range = ContentRange.parse(contentRange);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e, CONTENT_RANGE_ERR, transaction.id());
+        }
+
+        if (maxFileSize != -1 && Math.max(range.total(), range.end() + 1) > maxFileSize) {
+            throw new BadRequestException(FILE_SIZE_ERR, transaction.id());
+        }
+
+        info().transactionID(transaction.id())
+                .data("uri", uri)
+                .data("range", contentRange)
+                .log("attempting to add range of raw file to transaction");
+
+        UploadProgress progress;
+        try (InputStream body = request.raw().getInputStream()) {
+            progress = publisherService.addContentRangeToTransaction(transaction, uri, body, range, startDate);
+        } catch (PublishException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PublishException(ADD_FILE_ERR_MSG, e, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+
+        switch (progress.getState()) {
+            case BUSY:
+                throw new PublishException(String.format(UPLOAD_BUSY_ERR, uri), transaction, HttpStatus.SC_CONFLICT);
+            case GAP:
+                throw new BadRequestException(String.format(RANGE_NOT_ACCEPTED_ERR, range.start(),
+                        progress.getReceived(), uri), transaction.id());
+            case TOTAL_MISMATCH:
+                throw new BadRequestException(String.format(RANGE_TOTAL_ERR, contentRange, progress.getTotal(), uri),
+                        transaction.id());
+            case RECEIVED:
+                return new UploadStatus("Upload in progress", uri, progress.getReceived(), false, null);
+            default:
+                break;
+        }
+
+        // A range that finds the upload already completed by an earlier range has nothing to add.
+        if (progress.getUpdate() != null) {
+            transaction.addUri(progress.getUpdate().getUriInfo());
+            transactionsService.tryUpdateAsync(transaction);
+        }
+
+        info().transactionID(transaction.id())
+                .data("uri", uri)
+                .data("bytes", progress.getReceived())
+                .log("resumable upload added to publish transaction successfully");
+
+        return new UploadStatus("Published to " + uri, uri, progress.getReceived(), true, progress.getSha1());
+    }
+
+    private void validateBody(HttpServletRequest raw, Transaction transaction) throws BadRequestException {
+        String contentType = raw.getContentType();
+        if (contentType == null || !contentType.toLowerCase().startsWith(OCTET_STREAM)) {
+            throw new BadRequestException(CONTENT_TYPE_ERR, transaction.id());
+        }
+
+        if (maxFileSize != -1 && raw.getContentLengthLong() > maxFileSize) {
+            throw new BadRequestException(FILE_SIZE_ERR, transaction.id());
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.github.onsdigital.thetrain.routes;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.json.ObjectMapperFactory;
+import com.github.onsdigital.thetrain.json.Result;
+import com.github.onsdigital.thetrain.json.SummaryResult;
+import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.request.Manifest;
-import com.google.gson.Gson;
 import org.apache.commons.lang3.StringUtils;
 import spark.Request;
 import spark.Route;
@@ -18,11 +22,15 @@ public abstract class BaseHandler implements Route {
 
     public static final String ZIP_KEY = "zip";
 
+    public static final String BATCH_KEY = "batch";
+
     public static final String URI_KEY = "uri";
 
     public static final String SHA1_KEY = "sha1";
 
-    protected Gson gson = new Gson();
+    public static final String FULL_KEY = "full";
+
+    private static final ObjectMapper objectMapper = ObjectMapperFactory.createForRequests();
 
     protected String getURI(Request request) throws BadRequestException {
         String uri = request.raw().getParameter(URI_KEY);
@@ -36,10 +44,34 @@ public abstract class BaseHandler implements Route {
         return Boolean.valueOf(request.raw().getParameter(ZIP_KEY));
     }
 
+    protected boolean isBatch(Request request) {
+        return Boolean.valueOf(request.raw().getParameter(BATCH_KEY));
+    }
+
+    /**
+     * Build the response for a request that has updated a transaction. A {@link SummaryResult} is returned unless the
+     * full transaction was requested with <code>full=true</code>.
+     *
+     * @param request     the request.
+     * @param message     the result message.
+     * @param transaction the transaction.
+     * @param uri         the URI added to the transaction by the request, if any.
+     * @return the result.
+     */
+    protected Object getResult(Request request, String message, Transaction transaction, String uri) {
+        if (Boolean.valueOf(request.raw().getParameter(FULL_KEY))) {
+            return new Result(message, false, transaction);
+        }
+        return new SummaryResult(message, false, transaction, uri);
+    }
+
     protected Manifest getManifest(Request request) throws BadRequestException {
         Manifest manifest = null;
         try {
-            manifest = gson.fromJson(request.body(), Manifest.class);
+            String body = request.body();
+            if (StringUtils.isNotBlank(body)) {
+                manifest = objectMapper.readValue(body, Manifest.class);
+            }
         } catch (Exception e) {
             throw new BadRequestException(MANIFEST_ERR);
         }
@@ -1,7 +1,6 @@
 package com.github.onsdigital.thetrain.routes;
 
 import com.github.onsdigital.thetrain.exception.PublishException;
-import com.github.onsdigital.thetrain.json.Result;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.service.PublisherService;
 import com.github.onsdigital.thetrain.service.TransactionsService;
@@ -50,7 +49,7 @@ public class CommitTransaction extends BaseHandler {
 
             info().transactionID(transaction.id()).log(COMMIT_SUCCESSFUL_MSG);
             response.status(OK_200);
-            return new Result(RESULT_SUCCESS_MSG, false, transaction);
+            return getResult(request, RESULT_SUCCESS_MSG, transaction, null);
 
         } finally {
             transactionsService.update(transaction);
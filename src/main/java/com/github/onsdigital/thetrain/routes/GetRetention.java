@@ -0,0 +1,34 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.storage.TransactionRetention;
+import spark.Request;
+import spark.Response;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * Admin endpoint reporting the status of the transaction retention service, or with <code>dryRun=true</code> the
+ * transactions that applying the retention policy would archive.
+ */
+public class GetRetention extends BaseHandler {
+
+    static final String DRY_RUN_KEY = "dryRun";
+    static final String GET_RETENTION_SUCCESS_LOG = "get retention completed successfully";
+
+    private TransactionRetention transactionRetention;
+
+    public GetRetention(TransactionRetention transactionRetention) {
+        this.transactionRetention = transactionRetention;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        boolean dryRun = Boolean.valueOf(request.raw().getParameter(DRY_RUN_KEY));
+        Object result = dryRun ? transactionRetention.preview() : transactionRetention.status();
+
+        response.status(OK_200);
+        info().data("dry_run", dryRun).log(GET_RETENTION_SUCCESS_LOG);
+        return result;
+    }
+}
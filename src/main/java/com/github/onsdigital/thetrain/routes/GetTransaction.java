@@ -1,32 +1,89 @@
 package com.github.onsdigital.thetrain.routes;
 
-import com.github.onsdigital.thetrain.json.Result;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import com.github.onsdigital.thetrain.response.JsonTransformer;
+import com.github.onsdigital.thetrain.response.TransactionJsonWriter;
 import com.github.onsdigital.thetrain.service.TransactionsService;
+import org.apache.commons.lang3.StringUtils;
 import spark.Request;
 import spark.Response;
 
+import java.util.function.Predicate;
+
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 import static java.lang.String.format;
 import static org.eclipse.jetty.http.HttpStatus.OK_200;
 
+/**
+ * Get a transaction. The Json is streamed to the response one URI at a time rather than returned as a single object,
+ * so this route is not wrapped in a {@link com.github.onsdigital.thetrain.response.JsonRoute}. The URIs in the
+ * transaction can be filtered by <code>status</code> and <code>action</code> and paged with <code>offset</code> and
+ * <code>limit</code>, and <code>summary=true</code> returns the number of URIs with each status instead of the URIs.
+ * See {@link TransactionJsonWriter}.
+ */
 public class GetTransaction extends BaseHandler {
 
     static final String GET_TRANS_SUCCESS_LOG = "get transaction completed successfully";
     static final String GET_TRANS_SUCCESS_RESULT = "Details for transaction %s";
+    static final String INVALID_PARAM_ERR = "%s must be a non-negative integer";
+
+    static final String STATUS_KEY = "status";
+    static final String ACTION_KEY = "action";
+    static final String OFFSET_KEY = "offset";
+    static final String LIMIT_KEY = "limit";
+    static final String SUMMARY_KEY = "summary";
 
     private TransactionsService transactionsService;
+    private JsonTransformer transformer;
 
-    public GetTransaction(TransactionsService transactionsService) {
+    public GetTransaction(TransactionsService transactionsService, JsonTransformer transformer) {
         this.transactionsService = transactionsService;
+        this.transformer = transformer;
     }
 
     @Override
     public Object handle(Request request, Response response) throws Exception {
         Transaction transaction = transactionsService.getTransaction(request);
 
+        TransactionJsonWriter transactionWriter = new TransactionJsonWriter(getFilter(request),
+                getIntParameter(request, OFFSET_KEY, 0), getIntParameter(request, LIMIT_KEY, Integer.MAX_VALUE),
+                Boolean.valueOf(request.raw().getParameter(SUMMARY_KEY)));
+
         response.status(OK_200);
+        try (JsonGenerator json = transformer.createGenerator(request, response)) {
+            transactionWriter.write(format(GET_TRANS_SUCCESS_RESULT, transaction.id()), transaction, json);
+        }
+
         info().transactionID(transaction.id()).log(GET_TRANS_SUCCESS_LOG);
-        return new Result(format(GET_TRANS_SUCCESS_RESULT, transaction.id()), false, transaction);
+        return "";
+    }
+
+    private Predicate<UriInfo> getFilter(Request request) {
+        String status = request.raw().getParameter(STATUS_KEY);
+        String action = request.raw().getParameter(ACTION_KEY);
+        if (StringUtils.isBlank(status) && StringUtils.isBlank(action)) {
+            return null;
+        }
+        return uriInfo -> (StringUtils.isBlank(status) || status.equals(uriInfo.status()))
+                && (StringUtils.isBlank(action) || action.equals(uriInfo.action()));
+    }
+
+    private int getIntParameter(Request request, String name, int defaultValue) throws BadRequestException {
+        String value = request.raw().getParameter(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            int result = Integer.parseInt(value);
+            if (result < 0) {
+                throw new BadRequestException(format(INVALID_PARAM_ERR, name));
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(format(INVALID_PARAM_ERR, name));
+        }
     }
 }
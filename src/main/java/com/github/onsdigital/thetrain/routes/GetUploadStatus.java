@@ -0,0 +1,42 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UploadStatus;
+import com.github.onsdigital.thetrain.service.PublisherService;
+import com.github.onsdigital.thetrain.service.TransactionsService;
+import com.github.onsdigital.thetrain.storage.UploadProgress;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Get how many bytes of a resumable upload to {@link AddRawFileToTransaction} have been received, so a client can
+ * resume an interrupted upload from that offset rather than from the start of the file.
+ */
+public class GetUploadStatus extends BaseHandler {
+
+    private TransactionsService transactionsService;
+    private PublisherService publisherService;
+
+    /**
+     * Construct a new get upload status Route.
+     *
+     * @param transactionsService the {@link TransactionsService} to use.
+     * @param publisherService    the {@link PublisherService} to use.
+     */
+    public GetUploadStatus(TransactionsService transactionsService, PublisherService publisherService) {
+        this.transactionsService = transactionsService;
+        this.publisherService = publisherService;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        Transaction transaction = transactionsService.getTransaction(request);
+        String uri = getURI(request);
+
+        UploadProgress progress = publisherService.uploadProgress(transaction, uri);
+        if (progress.isComplete()) {
+            return new UploadStatus("Upload complete", uri, progress.getReceived(), true, progress.getSha1());
+        }
+        return new UploadStatus("Upload in progress", uri, progress.getReceived(), false, null);
+    }
+}
@@ -8,6 +8,9 @@ import com.github.onsdigital.thetrain.service.TransactionsService;
 import spark.Request;
 import spark.Response;
 
+import java.util.List;
+import java.util.Map;
+
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 import static org.eclipse.jetty.http.HttpStatus.OK_200;
 
@@ -42,12 +45,12 @@ public class RollbackTransaction extends BaseHandler {
                 throw new PublishException(ROLLBACK_UNSUCESSFUL_ERR, transaction);
             }
 
-            // TODO no idea what this is doing... keeping it here to avoid breaking something
-            transactionsService.listFiles(transaction);
+            // Report the files left on disk by the rollback.
+            Map<String, List<String>> files = transactionsService.listFiles(transaction);
 
             info().transactionID(transaction.id()).log("rollback transaction completed successfully");
             response.status(OK_200);
-            return new Result(ROLLBACK_SUCCESS_MSG, false, transaction);
+            return new Result(ROLLBACK_SUCCESS_MSG, false, transaction, files);
         } finally {
             info().transactionID(transaction.id()).log("rollback persisting changes to transaction");
             transactionsService.update(transaction);
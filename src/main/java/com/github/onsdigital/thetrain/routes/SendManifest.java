@@ -1,13 +1,11 @@
 package com.github.onsdigital.thetrain.routes;
 
 import com.github.onsdigital.thetrain.exception.PublishException;
-import com.github.onsdigital.thetrain.json.Result;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.request.Manifest;
 import com.github.onsdigital.thetrain.service.PublisherService;
 import com.github.onsdigital.thetrain.service.TransactionsService;
 import com.github.onsdigital.thetrain.storage.Transactions;
-import com.google.gson.Gson;
 import org.apache.http.HttpStatus;
 import spark.Request;
 import spark.Response;
@@ -39,7 +37,6 @@ public class SendManifest extends BaseHandler {
      */
     public SendManifest(TransactionsService transactionsService, PublisherService publisherService,
                         Path websiteContentPath) {
-        this.gson = new Gson();
         this.transactionsService = transactionsService;
         this.publisherService = publisherService;
         this.websiteContentPath = requireNonNull(websiteContentPath);
@@ -72,7 +69,7 @@ public class SendManifest extends BaseHandler {
                     .log("copying manifest files to website and adding files to delete completed successfully");
 
             response.status(OK_200);
-            return new Result(format("Copied %d files. Deleted %s files.", copied, deleted), false, transaction);
+            return getResult(request, format("Copied %d files. Deleted %s files.", copied, deleted), transaction, null);
         } finally {
             try {
                 transactionsService.update(transaction);
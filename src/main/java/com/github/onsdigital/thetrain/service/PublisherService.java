@@ -1,12 +1,17 @@
 package com.github.onsdigital.thetrain.service;
 
 import com.github.onsdigital.thetrain.exception.PublishException;
+import com.github.onsdigital.thetrain.helpers.uploads.ContentRange;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.request.Manifest;
 import com.github.onsdigital.thetrain.storage.TransactionUpdate;
+import com.github.onsdigital.thetrain.storage.UploadProgress;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.zip.ZipInputStream;
 
 public interface PublisherService {
@@ -72,4 +77,52 @@ public interface PublisherService {
      * @throws PublishException error while attempting add the content of the zip.
      */
     boolean addFiles(final Transaction transaction, String uri, final ZipInputStream zip) throws PublishException;
+
+    /**
+     * Add the content of a zip file on disk to the publishing transaction. Unlike
+     * {@link #addFiles(Transaction, String, ZipInputStream)} the zip entries are extracted in parallel.
+     *
+     * @param transaction the target transaction.
+     * @param uri         the uri the content.
+     * @param zip         the {@link Path} of the zip file containing the content to add.
+     * @return true if successful, false otherwise.
+     * @throws PublishException error while attempting add the content of the zip.
+     */
+    boolean addFiles(final Transaction transaction, String uri, final Path zip) throws PublishException;
+
+    /**
+     * Add a batch of files to the publishing transaction. The files are written concurrently and the transaction is
+     * updated once for the whole batch.
+     *
+     * @param transaction the target transaction.
+     * @param files       the content of each file keyed by its uri.
+     * @return true if successful, false otherwise.
+     * @throws PublishException error while attempting add the files.
+     */
+    boolean addFiles(final Transaction transaction, Map<String, Callable<InputStream>> files) throws PublishException;
+
+    /**
+     * Get how much of a resumable upload has been received.
+     *
+     * @param transaction the target transaction.
+     * @param uri         the uri of the content being uploaded.
+     * @return an {@link UploadProgress} with the bytes received, which is complete once the upload has completed.
+     * @throws PublishException error while attempting to read the upload.
+     */
+    UploadProgress uploadProgress(Transaction transaction, String uri) throws PublishException;
+
+    /**
+     * Write a range of a resumable upload to the publishing transaction. The content is added to the transaction once
+     * every byte of it has been received.
+     *
+     * @param transaction the target transaction.
+     * @param uri         the uri of the content being uploaded.
+     * @param input       an inputstream of the range data.
+     * @param range       the range of the content being written.
+     * @param startDate   the date time to use.
+     * @return an {@link UploadProgress} containing the outcome of the operation.
+     * @throws PublishException error while attempting to write the range.
+     */
+    UploadProgress addContentRangeToTransaction(Transaction transaction, String uri, InputStream input,
+                                                ContentRange range, Date startDate) throws PublishException;
 }
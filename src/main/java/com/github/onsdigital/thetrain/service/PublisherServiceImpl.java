@@ -1,15 +1,19 @@
 package com.github.onsdigital.thetrain.service;
 
 import com.github.onsdigital.thetrain.exception.PublishException;
+import com.github.onsdigital.thetrain.helpers.uploads.ContentRange;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.request.Manifest;
 import com.github.onsdigital.thetrain.storage.Publisher;
 import com.github.onsdigital.thetrain.storage.TransactionUpdate;
+import com.github.onsdigital.thetrain.storage.UploadProgress;
 import org.apache.http.HttpStatus;
 
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.zip.ZipInputStream;
 
 public class PublisherServiceImpl implements PublisherService {
@@ -17,6 +21,8 @@ public class PublisherServiceImpl implements PublisherService {
     static final String COPY_FILE_TO_TRANS_ERR = "error copying files to transaction";
     static final String ADD_FILES_TO_TRANS_ERR = "error adding files to transaction";
     static final String ADD_FILES_FROM_ZIP_TO_TRANS_ERR = "error adding files from zip to transaction";
+    static final String ADD_BATCH_TO_TRANS_ERR = "error adding batch of files to transaction";
+    static final String UPLOAD_TO_TRANS_ERR = "error writing resumable upload to transaction";
     static final String ADD_DELETES_TO_TRANS_ERR = "error adding files to delete to transaction";
     static final String WEDBSITE_PATH_NULL_ERR = "error getting website path config, expected value but was null";
     static final String WEDBSITE_PATH_ERR = "error getting website path config";
@@ -86,4 +92,43 @@ public class PublisherServiceImpl implements PublisherService {
                     HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
     }
+
+    @Override
+    public boolean addFiles(Transaction transaction, String uri, Path zip) throws PublishException {
+        try {
+            return publisher.addFiles(transaction, uri, zip, websitePath);
+        } catch (Exception e) {
+            throw new PublishException(ADD_FILES_FROM_ZIP_TO_TRANS_ERR, e, transaction,
+                    HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public boolean addFiles(Transaction transaction, Map<String, Callable<InputStream>> files)
+            throws PublishException {
+        try {
+            return publisher.addFiles(transaction, files, websitePath);
+        } catch (Exception e) {
+            throw new PublishException(ADD_BATCH_TO_TRANS_ERR, e, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public UploadProgress uploadProgress(Transaction transaction, String uri) throws PublishException {
+        try {
+            return publisher.uploadProgress(transaction, uri);
+        } catch (Exception e) {
+            throw new PublishException(UPLOAD_TO_TRANS_ERR, e, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public UploadProgress addContentRangeToTransaction(Transaction transaction, String uri, InputStream input,
+                                                       ContentRange range, Date startDate) throws PublishException {
+        try {
+            return publisher.addContentRangeToTransaction(transaction, uri, input, range, startDate, websitePath);
+        } catch (Exception e) {
+            throw new PublishException(UPLOAD_TO_TRANS_ERR, e, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
 }
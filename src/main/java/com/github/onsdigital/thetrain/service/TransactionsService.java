@@ -7,6 +7,8 @@ import spark.Request;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 public interface TransactionsService {
@@ -19,7 +21,7 @@ public interface TransactionsService {
 
     void update(Transaction transaction) throws PublishException;
 
-    void listFiles(Transaction transaction) throws PublishException;
+    Map<String, List<String>> listFiles(Transaction transaction) throws PublishException;
 
     Future<Boolean> tryUpdateAsync(final Transaction transaction) throws PublishException;
 
@@ -9,6 +9,8 @@ import org.apache.http.HttpStatus;
 import spark.Request;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 import static java.lang.String.format;
@@ -75,9 +77,9 @@ public class TransactionsServiceImpl implements TransactionsService {
     }
 
     @Override
-    public void listFiles(Transaction transaction) throws PublishException {
+    public Map<String, List<String>> listFiles(Transaction transaction) throws PublishException {
         try {
-            Transactions.listFiles(transaction);
+            return Transactions.listFiles(transaction);
         } catch (Exception e) {
             throw new PublishException(TRANS_LIST_FILES_ERR, e, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
@@ -0,0 +1,103 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * How far a write must reach towards stable storage before it is considered complete.
+ */
+public enum Durability {
+
+    /**
+     * Leave the data for the operating system to flush.
+     */
+    NONE,
+
+    /**
+     * Flush the file content to the storage device.
+     */
+    FILE,
+
+    /**
+     * Flush the file content and the directory entry of the file to the storage device, so that a newly created or
+     * renamed file survives a crash.
+     */
+    FILE_AND_DIRECTORY;
+
+    private static volatile boolean directorySyncSupported = true;
+
+    /**
+     * Replace the content of a file atomically. The content is written to a temporary file in the same directory which
+     * is then renamed over the target, so a crash part way through leaves either the old or the new content but never
+     * a partially written file. Each write has its own temporary file, so concurrent writes of the same target do not
+     * write over each other's temporary file.
+     *
+     * @param target  the file to write.
+     * @param content the new content of the file.
+     * @throws IOException problem writing the file.
+     */
+    public void write(Path target, byte[] content) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            writeFully(tmp, content, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            // Only left behind if the write or the rename failed.
+            Files.deleteIfExists(tmp);
+        }
+        syncDirectory(target.getParent());
+    }
+
+    /**
+     * Append to a file, creating the file if it does not exist.
+     *
+     * @param target  the file to append to.
+     * @param content the content to append.
+     * @throws IOException problem writing the file.
+     */
+    public void append(Path target, byte[] content) throws IOException {
+        writeFully(target, content, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory(target.getParent());
+    }
+
+    private void writeFully(Path target, byte[] content, OpenOption... options) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, options)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (this != NONE) {
+                channel.force(false);
+            }
+        }
+    }
+
+    private void syncDirectory(Path directory) {
+        if (this != FILE_AND_DIRECTORY || !directorySyncSupported) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms do not allow a directory to be opened or synced.
+            directorySyncSupported = false;
+            info().data("path", directory.toString())
+                    .exception(e)
+                    .log("directory sync not supported, directory entries will not be synced");
+        }
+    }
+}
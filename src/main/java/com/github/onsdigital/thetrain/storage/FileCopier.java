@@ -0,0 +1,162 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Copies files from one location to another either by copying the file content or, where the filesystem allows it,
+ * by creating a hard link to the source file.
+ * <p>
+ * A hard link shares its content with the source file so a file reachable through a link must never be written to in
+ * place. To guarantee this the target of a copy is always created under a temporary name in the target directory and
+ * then renamed over the target, replacing the target path rather than modifying the file it points to.
+ * <p>
+ * If a link cannot be created between the source and target directories (for example they are on different devices)
+ * the copier falls back to copying file content and does not attempt to link again.
+ */
+public class FileCopier {
+
+    /**
+     * The strategies available for copying a file.
+     */
+    public enum Mode {
+
+        /**
+         * Copy the file content.
+         */
+        COPY,
+
+        /**
+         * Hard link the target to the source, falling back to {@link #COPY} if the filesystem does not support it.
+         */
+        LINK
+    }
+
+    private final Mode mode;
+    private volatile boolean linkSupported;
+
+    /**
+     * Construct a new FileCopier.
+     *
+     * @param mode the strategy to use when copying files.
+     */
+    public FileCopier(Mode mode) {
+        this.mode = mode;
+        this.linkSupported = mode == Mode.LINK;
+    }
+
+    /**
+     * @return the configured copy mode.
+     */
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * @return true if files are currently being linked rather than copied. This is false if the copier is in
+     * {@link Mode#LINK} mode but has fallen back to copying.
+     */
+    public boolean isLinking() {
+        return linkSupported;
+    }
+
+    /**
+     * Copy a file to the target path, replacing the target if it exists. Any missing parent directories of the target
+     * are created.
+     *
+     * @param source the file to copy.
+     * @param target the path to copy the file to.
+     * @throws IOException problem copying the file.
+     */
+    public void copy(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+
+        try {
+            if (!linkSupported || !link(source, tmp)) {
+                copyContent(source, tmp);
+            }
+            replace(tmp, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            error().data("src", source.toString())
+                    .data("dest", target.toString())
+                    .data("mode", mode)
+                    .exception(e)
+                    .log("unexpected error while attempting to copy files");
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a directory and all of its content to the target directory. Existing files in the target are replaced.
+     *
+     * @param source the directory to copy.
+     * @param target the directory to copy to.
+     * @throws IOException problem copying the directory.
+     */
+    public void copyDirectory(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                copy(file, target.resolve(source.relativize(file)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean link(Path source, Path tmp) throws IOException {
+        try {
+            Files.createLink(tmp, source);
+            return true;
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (IOException | UnsupportedOperationException e) {
+            linkSupported = false;
+            info().data("src", source.toString())
+                    .data("dest", tmp.getParent().toString())
+                    .exception(e)
+                    .log("unable to create hard link, falling back to copying files");
+            return false;
+        }
+    }
+
+    private void copyContent(Path source, Path target) throws IOException {
+        try (
+                FileInputStream fis = new FileInputStream(source.toFile());
+                FileOutputStream fos = new FileOutputStream(target.toFile());
+                FileChannel srcChannel = fis.getChannel();
+                FileChannel destChannel = fos.getChannel()
+        ) {
+            destChannel.transferFrom(srcChannel, 0, srcChannel.size());
+        }
+    }
+
+    private void replace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
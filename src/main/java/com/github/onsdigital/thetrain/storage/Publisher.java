@@ -1,37 +1,50 @@
 package com.github.onsdigital.thetrain.storage;
 
+import com.github.onsdigital.thetrain.helpers.BufferPool;
+import com.github.onsdigital.thetrain.helpers.Hash;
 import com.github.onsdigital.thetrain.helpers.PathUtils;
 import com.github.onsdigital.thetrain.helpers.UnionInputStream;
+import com.github.onsdigital.thetrain.helpers.uploads.ContentRange;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.UriInfo;
 import com.github.onsdigital.thetrain.json.request.FileCopy;
 import com.github.onsdigital.thetrain.json.request.Manifest;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
@@ -42,18 +55,63 @@ import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
  */
 public class Publisher {
 
+    static final int DEFAULT_BUFFER_SIZE = 100 * 1024;
+    static final long DEFAULT_BUFFER_MEMORY_BUDGET = 128 * 1024 * 1024;
+    private static final String UPLOAD_TOTAL = "total";
+    private static final String UPLOAD_SHA1 = "sha1";
+
     private static ExecutorService pool;
-    private static Publisher instance;
+    private static volatile Publisher instance;
 
-    private final int bufferSize;
+    private final BufferPool bufferPool;
+    private final FileCopier backupCopier;
+    private final FileCopier commitCopier;
+    private final FileCopier fileCopier;
 
     /**
-     * Initalize the publisher
+     * Initalize the publisher using the default zip entry buffer configuration.
      */
     public static void init(int threadPoolSzie) {
+        init(threadPoolSzie, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_MEMORY_BUDGET);
+    }
+
+    /**
+     * Initalize the publisher
+     *
+     * @param threadPoolSzie     the size of the publisher thread pool.
+     * @param bufferSize         the size in bytes of the buffers used to read zip entries. Entries smaller than
+     *                           this are written asynchronously from the buffer, larger entries are streamed.
+     * @param bufferMemoryBudget the maximum number of bytes held in zip entry buffers at any one time.
+     */
+    public static void init(int threadPoolSzie, int bufferSize, long bufferMemoryBudget) {
+        init(threadPoolSzie, bufferSize, bufferMemoryBudget, FileCopier.Mode.COPY, FileCopier.Mode.COPY);
+    }
+
+    /**
+     * Initalize the publisher
+     *
+     * @param threadPoolSzie     the size of the publisher thread pool.
+     * @param bufferSize         the size in bytes of the buffers used to read zip entries. Entries smaller than
+     *                           this are written asynchronously from the buffer, larger entries are streamed.
+     * @param bufferMemoryBudget the maximum number of bytes held in zip entry buffers at any one time.
+     * @param backupMode         how existing website files are backed up into a transaction before they are
+     *                           overwritten or deleted.
+     * @param commitMode         how files are published from a transaction to the website on commit.
+     */
+    public static void init(int threadPoolSzie, int bufferSize, long bufferMemoryBudget,
+                            FileCopier.Mode backupMode, FileCopier.Mode commitMode) {
         pool = Executors.newFixedThreadPool(threadPoolSzie);
         Runtime.getRuntime().addShutdownHook(new ShutdownTask(pool));
-        getInstance();
+
+        synchronized (Publisher.class) {
+            instance = new Publisher(bufferSize, bufferMemoryBudget, backupMode, commitMode);
+        }
+
+        info().data("buffer_size", bufferSize)
+                .data("buffer_memory_budget", bufferMemoryBudget)
+                .data("backup_mode", backupMode)
+                .data("commit_mode", commitMode)
+                .log("initialised new publisher instance");
     }
 
     /**
@@ -63,9 +121,9 @@ public class Publisher {
         if (instance == null) {
             synchronized (Publisher.class) {
                 if (instance == null) {
-                    int bufferSize = 100 * 1024;
-                    instance = new Publisher(bufferSize);
-                    info().data("buffer_size", bufferSize).log("initialised new publisher instance");
+                    instance = new Publisher(DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_MEMORY_BUDGET,
+                            FileCopier.Mode.COPY, FileCopier.Mode.COPY);
+                    info().data("buffer_size", DEFAULT_BUFFER_SIZE).log("initialised new publisher instance");
                 }
             }
         }
@@ -73,31 +131,17 @@ public class Publisher {
     }
 
     /**
-     * Construct a new Publisher instance with the specified buffer size. Publisher is a singleton instance - use
-     * {@link Publisher#getInstance()}
+     * Construct a new Publisher instance with the specified buffer size, backup and commit modes. Publisher is a
+     * singleton instance - use {@link Publisher#getInstance()}
      */
-    private Publisher(final int bufferSize) {
-        this.bufferSize = bufferSize;
-    }
-
-    private void copyFile(File src, File dest) throws IOException {
-        try (
-                FileInputStream fis = new FileInputStream(src);
-                FileOutputStream fos = new FileOutputStream(dest);
-                FileChannel srcChannel = fis.getChannel();
-                FileChannel destChannel = fos.getChannel()
-        ) {
-            destChannel.transferFrom(srcChannel, 0, srcChannel.size());
-        } catch (IOException e) {
-            error().data("src", src.toString())
-                    .data("dest", dest.toString())
-                    .exception(e)
-                    .log("unexpected error while attempting to copy files");
-            throw e;
-        }
+    private Publisher(final int bufferSize, final long bufferMemoryBudget, final FileCopier.Mode backupMode,
+                      final FileCopier.Mode commitMode) {
+        this.bufferPool = new BufferPool(bufferSize, bufferMemoryBudget);
+        this.backupCopier = new FileCopier(backupMode);
+        this.commitCopier = new FileCopier(commitMode);
+        this.fileCopier = new FileCopier(FileCopier.Mode.COPY);
     }
 
-
     private boolean addStreamContentToTransaction(Path target, InputStream input) throws IOException {
         if (target != null) {
             Files.createDirectories(target.getParent());
@@ -111,6 +155,8 @@ public class Publisher {
                 error().data("targetPath", target.toString())
                         .exception(e)
                         .log("unexpected error transfering inputstream content to transaction via file channel");
+                // Don't leave a partial file in the transaction to be committed.
+                Files.deleteIfExists(target);
                 return false;
             }
         }
@@ -137,51 +183,76 @@ public class Publisher {
         int largeZipEntries = 0;
         int smallZipEntries = 0;
 
+        List<UriInfo> totalURIInfos = new ArrayList<>();
         try {
-            while ((entry = zipInputStream.getNextEntry()) != null && !entry.isDirectory()) {
-
-                final Date startDate = new Date();
-                final String targetUri = PathUtils.stripTrailingSlash(uri) + PathUtils.setLeadingSlash(entry.getName());
-
-                // Read small files into a buffer and write them asynchronously
-                // NB the size can be -1 if it is unknown, so we read into a buffer to see how much data we're dealing with.
-                byte[] buffer = new byte[bufferSize];
-                int count = populateBuffer(zipInputStream, buffer);
-                final InputStream zipChunk = new ByteArrayInputStream(buffer, 0, count);
+            try {
+                while ((entry = zipInputStream.getNextEntry()) != null) {
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+
+                    final Date startDate = new Date();
+                    final String targetUri = PathUtils.stripTrailingSlash(uri)
+                            + PathUtils.setLeadingSlash(entry.getName());
+
+                    // Read small files into a buffer and write them asynchronously
+                    // NB the size can be -1 if it is unknown, so we read into a buffer to see how much data we're
+                    // dealing with. Taking a buffer blocks while the buffer memory budget is used up by queued small
+                    // file writes.
+                    byte[] buffer = acquireBuffer();
+                    int count;
+                    try {
+                        count = populateBuffer(zipInputStream, buffer);
+                    } catch (IOException e) {
+                        bufferPool.release(buffer);
+                        throw e;
+                    }
+
+                    // If entry data fit into the buffer, go asynchronous - the buffer is released once the write
+                    // completes:
+                    if (count < buffer.length) {
+                        smallFileWrites.add(asyncProcessSmallZipEntry(transaction, targetUri, buffer, count, startDate,
+                                websitePath));
+                        smallZipEntries++;
+                    } else {
+                        info().data("uri", targetUri).data("entry_uri", entry.getName())
+                                .log("processing large file");
+                        try {
+                            final InputStream zipChunk = new ByteArrayInputStream(buffer, 0, count);
+                            TransactionUpdate update = processLargeZipEntry(entry, transaction, targetUri, zipChunk,
+                                    startDate, zipInputStream, websitePath);
+                            result &= update.isSuccess();
+                            largeFileWrites.add(update);
+                            largeZipEntries++;
+                        } finally {
+                            bufferPool.release(buffer);
+                        }
+                    }
+                    zipInputStream.closeEntry();
+                }
+            } catch (IOException e) {
+                error().transactionID(transaction.id())
+                        .exception(e)
+                        .log("addFiles threw unexpected error");
 
-                // If entry data fit into the buffer, go asynchronous:
-                if (count < buffer.length) {
-                    smallFileWrites.add(asyncProcessSmallZipEntry(transaction, targetUri, zipChunk, startDate, websitePath));
-                    smallZipEntries++;
-                } else {
-                    info().data("uri", targetUri).data("entry_uri", entry.getName()).log("processing large file");
-                    TransactionUpdate update = processLargeZipEntry(entry, transaction, targetUri, zipChunk, startDate, zipInputStream, websitePath);
-                    result &= update.isSuccess();
-                    largeFileWrites.add(update);
-                    largeZipEntries++;
+                // Finish the small file writes already queued so the files that were written are recorded.
+                try {
+                    checkFileWriteFutures(smallFileWrites, totalURIInfos);
+                } catch (IOException writeFailure) {
+                    e.addSuppressed(writeFailure);
                 }
-                zipInputStream.closeEntry();
+                throw e;
             }
 
-        } catch (IOException e) {
-            error().transactionID(transaction.id())
-                    .exception(e)
-                    .log("addFiles threw unexpected error");
-            throw e;
-        }
-
-        List<UriInfo> totalURIInfos = new ArrayList<>();
-
-        // check the small file results and get the uri infos for the transation update.
-        result &= checkSmallFileFutures(smallFileWrites, totalURIInfos);
-
-        // get the large file uri infos for the transation
-        if (!largeFileWrites.isEmpty()) {
+            // check the small file results and get the uri infos for the transation update.
+            result &= checkFileWriteFutures(smallFileWrites, totalURIInfos);
+        } finally {
+            // get the large file uri infos for the transation
             totalURIInfos.addAll(largeFileWrites.stream().map(e -> e.getUriInfo()).collect(Collectors.toList()));
-        }
 
-        // add all the uri infos to the transaction
-        transaction.addUris(totalURIInfos);
+            // Record the files that were written, even if others failed.
+            transaction.addUris(totalURIInfos);
+        }
 
         info().transactionID(transaction.id())
                 .data("largeFileSynchronouss", largeZipEntries)
@@ -193,22 +264,43 @@ public class Publisher {
         return result;
     }
 
+    private byte[] acquireBuffer() throws IOException {
+        try {
+            return bufferPool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a zip entry buffer");
+        }
+    }
+
     private int populateBuffer(ZipInputStream zipInputStream, byte[] buffer) throws IOException {
         // Read small files into a buffer
         // NB the size can be -1 if it is unknown, so we read into a buffer to see how much data we're dealing with.
-        //byte[] buffer = new byte[bufferSize];
         int read;
         int count = 0;
         do {
             read = zipInputStream.read(buffer, count, buffer.length - count);
             if (read != -1) count += read;
-        } while (read != -1 && count < bufferSize);
+        } while (read != -1 && count < buffer.length);
         return count;
     }
 
     private Future<TransactionUpdate> asyncProcessSmallZipEntry(Transaction transaction, String targetUri,
-                                                                InputStream zipChunk, Date startDate, Path websitePath) {
-        return pool.submit(() -> addContentToTransaction(transaction, targetUri, zipChunk, startDate, websitePath));
+                                                                byte[] buffer, int count, Date startDate,
+                                                                Path websitePath) {
+        try {
+            return pool.submit(() -> {
+                try {
+                    InputStream zipChunk = new ByteArrayInputStream(buffer, 0, count);
+                    return addContentToTransaction(transaction, targetUri, zipChunk, startDate, websitePath);
+                } finally {
+                    bufferPool.release(buffer);
+                }
+            });
+        } catch (RuntimeException e) {
+            bufferPool.release(buffer);
+            throw e;
+        }
     }
 
     private TransactionUpdate processLargeZipEntry(ZipEntry entry, Transaction transaction, String targetUri,
@@ -224,20 +316,154 @@ public class Publisher {
         }
     }
 
-    private boolean checkSmallFileFutures(List<Future<TransactionUpdate>> smallFileWrites, List<UriInfo> infos) throws IOException {
-        boolean futureResults = true;
+    /**
+     * Adds the files contained in a zip file on disk to the given transaction. The central directory of the zip is
+     * read up front and every entry, regardless of its size, is extracted on the publisher thread pool from its own
+     * input stream - entries are inflated in parallel rather than one at a time on the request thread. The start
+     * date for each file transfer is the instant the entry extraction begins.
+     *
+     * @param transaction The transaction to add the files to
+     * @param uri         The target URI for the files
+     * @param zipPath     The zip file
+     * @return true if all of the entries were added successfully, false otherwise.
+     * @throws IOException If a filesystem error occurs.
+     */
+    public boolean addFiles(final Transaction transaction, String uri, final Path zipPath, Path websitePath)
+            throws IOException {
+        List<Future<TransactionUpdate>> fileWrites = new ArrayList<>();
+        List<UriInfo> uriInfos = new ArrayList<>();
+        boolean result;
+
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
 
-        for (Future<TransactionUpdate> smallFileWrite : smallFileWrites) {
-            try {
-                TransactionUpdate res = smallFileWrite.get();
-                futureResults &= res.isSuccess();
-                infos.add(res.getUriInfo());
-            } catch (InterruptedException | ExecutionException e) {
-                throw new IOException("Error completing small file write", e);
-            } catch (Exception e) {
-                error().exception(e).log("addFiles: check small files future returned an exception");
-                throw new IOException("Error completing small file write", e);
+                final String targetUri = PathUtils.stripTrailingSlash(uri) + PathUtils.setLeadingSlash(entry.getName());
+                fileWrites.add(pool.submit(() -> extractZipEntry(zipFile, entry, transaction, targetUri, websitePath)));
             }
+
+            // All of the writes must complete before the zip file is closed, checkFileWriteFutures waits for every
+            // write even if one fails.
+            result = checkFileWriteFutures(fileWrites, uriInfos);
+        } catch (IOException e) {
+            error().transactionID(transaction.id())
+                    .data("zip", zipPath.toString())
+                    .exception(e)
+                    .log("addFiles threw unexpected error");
+            throw e;
+        } finally {
+            // Record the files that were written, even if others failed.
+            transaction.addUris(uriInfos);
+        }
+
+        info().transactionID(transaction.id())
+                .data("total", fileWrites.size())
+                .data("success", result)
+                .log("unzip results");
+
+        return result;
+    }
+
+    private TransactionUpdate extractZipEntry(ZipFile zipFile, ZipEntry entry, Transaction transaction,
+                                              String targetUri, Path websitePath) throws IOException {
+        Date startDate = new Date();
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            return addContentToTransaction(transaction, targetUri, in, startDate, websitePath);
+        }
+    }
+
+    /**
+     * Adds a batch of files to the given transaction. Each file is written on the publisher thread pool, so the files
+     * are written concurrently, and the transaction is updated once with all of the files rather than once per file.
+     * The start date for each file transfer is the instant its write begins.
+     *
+     * @param transaction The transaction to add the files to
+     * @param files       The content of each file keyed by its target URI
+     * @return true if all of the files were added successfully, false otherwise.
+     * @throws IOException If a filesystem error occurs.
+     */
+    public boolean addFiles(final Transaction transaction, Map<String, Callable<InputStream>> files,
+                            Path websitePath) throws IOException {
+        List<Future<TransactionUpdate>> fileWrites = new ArrayList<>();
+        List<UriInfo> uriInfos = new ArrayList<>();
+
+        for (Map.Entry<String, Callable<InputStream>> file : files.entrySet()) {
+            fileWrites.add(pool.submit(() -> addBatchFile(transaction, file.getKey(), file.getValue(), websitePath)));
+        }
+
+        // Every write must complete before returning, as the caller closes the sources once this returns.
+        boolean result;
+        try {
+            result = checkFileWriteFutures(fileWrites, uriInfos);
+        } catch (IOException e) {
+            error().transactionID(transaction.id())
+                    .exception(e)
+                    .log("addFiles threw unexpected error");
+            throw e;
+        } finally {
+            // Record the files that were written, even if others failed.
+            transaction.addUris(uriInfos);
+        }
+
+        info().transactionID(transaction.id())
+                .data("total", fileWrites.size())
+                .data("success", result)
+                .log("batch results");
+
+        return result;
+    }
+
+    private TransactionUpdate addBatchFile(Transaction transaction, String targetUri, Callable<InputStream> content,
+                                           Path websitePath) throws Exception {
+        Date startDate = new Date();
+        try (InputStream in = content.call()) {
+            return addContentToTransaction(transaction, targetUri, in, startDate, websitePath);
+        }
+    }
+
+    /**
+     * Wait for every file write and collect the {@link UriInfo}s of those that completed. Every write is waited for
+     * even once one has failed, as the rest may still be reading from a source the caller closes once this returns.
+     *
+     * @return true if every write completed and was successful.
+     * @throws IOException if any write threw an exception, once all of the writes have finished.
+     */
+    private boolean checkFileWriteFutures(List<Future<TransactionUpdate>> fileWrites, List<UriInfo> infos)
+            throws IOException {
+        boolean futureResults = true;
+        boolean interrupted = false;
+        IOException failure = null;
+
+        for (Future<TransactionUpdate> fileWrite : fileWrites) {
+            while (true) {
+                try {
+                    TransactionUpdate res = fileWrite.get();
+                    futureResults &= res.isSuccess();
+                    infos.add(res.getUriInfo());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | RuntimeException e) {
+                    error().exception(e).log("addFiles: check file write future returned an exception");
+                    if (failure == null) {
+                        failure = new IOException("Error completing file write", e);
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
         }
         return futureResults;
     }
@@ -291,7 +517,179 @@ public class Publisher {
     }
 
     /**
-     * When making a change to a file on the website, we copy the existing file into a backup
+     * Get how much of a resumable upload has been received.
+     *
+     * @param transaction The transaction the file is being uploaded to
+     * @param uri         The target URI for the file
+     * @return the {@link UploadProgress} of the upload, with 0 bytes received if it has not been started.
+     * @throws IOException If a filesystem error occurs.
+     */
+    public UploadProgress uploadProgress(Transaction transaction, String uri) throws IOException {
+        Path partial = PathUtils.toPath(uri, Transactions.uploads(transaction));
+        Properties state = readUploadState(transaction, uri);
+        long total = Long.parseLong(state.getProperty(UPLOAD_TOTAL, String.valueOf(ContentRange.UNKNOWN)));
+        try {
+            return UploadProgress.received(Files.size(partial), total);
+        } catch (NoSuchFileException e) {
+            // Not started, or completed and moved into the transaction content.
+        }
+
+        String sha1 = state.getProperty(UPLOAD_SHA1);
+        if (sha1 != null) {
+            return UploadProgress.completed(total, null, sha1);
+        }
+        return UploadProgress.received(0, ContentRange.UNKNOWN);
+    }
+
+    /**
+     * Writes a range of a file to a resumable upload at the offset given by the range. The range must not start after
+     * the bytes received so far, so no gaps are left in the file, and may overlap them so a client can resend a range
+     * it is unsure of. Bytes read before the input fails are kept, so a retry only needs to send the rest of the file.
+     * The first range to give the total size of the file records it, and every later range must fit within it.
+     * <p>
+     * Once every byte of the file has been received it is hashed and moved into the transaction content. The hash
+     * reads the whole file back once: ranges can overlap, be resent and arrive in separate requests, so there is no
+     * single pass over the content to hash as it is written. A range arriving once the upload is complete, such as a
+     * retried last range, reports the upload as complete without writing to it.
+     *
+     * @param transaction The transaction the file is being uploaded to
+     * @param uri         The target URI for the file
+     * @param input       The content of the range
+     * @param range       The range of the file being written
+     * @param startDate   The start date for the file transfer
+     * @return the {@link UploadProgress} of the upload.
+     * @throws IOException If a filesystem error occurs.
+     */
+    public UploadProgress addContentRangeToTransaction(Transaction transaction, String uri, InputStream input,
+                                                       ContentRange range, Date startDate, Path websitePath)
+            throws IOException {
+        Path partial = PathUtils.toPath(uri, Transactions.uploads(transaction));
+        Files.createDirectories(partial.getParent());
+
+        // Only the first range starts a new upload, a later range finding no upload may be one that completed.
+        FileChannel channel;
+        try {
+            channel = range.start() == 0
+                    ? FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+                    : FileChannel.open(partial, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            UploadProgress progress = uploadProgress(transaction, uri);
+            return progress.isComplete() ? progress : UploadProgress.gap(0, progress.getTotal());
+        }
+
+        try (FileChannel dest = channel) {
+            Object fileKey = fileKey(partial);
+
+            // Ranges of the same upload are written one at a time, concurrent ranges are rejected.
+            if (fileKey == null || tryLock(dest) == null) {
+                return UploadProgress.busy(dest.size(), ContentRange.UNKNOWN);
+            }
+
+            // The upload may have been completed, and the file opened here moved into the transaction content, by the
+            // range holding the lock before this one. Only write to the file that is still the partial upload.
+            if (!fileKey.equals(fileKey(partial))) {
+                UploadProgress progress = uploadProgress(transaction, uri);
+                return progress.isComplete() ? progress
+                        : UploadProgress.busy(progress.getReceived(), progress.getTotal());
+            }
+
+            long received = dest.size();
+            Properties state;
+            if (received == 0) {
+                // A new upload, forget any earlier upload of the same URI.
+                Files.deleteIfExists(PathUtils.toPath(uri, Transactions.uploadState(transaction)));
+                state = new Properties();
+            } else {
+                state = readUploadState(transaction, uri);
+            }
+            long total = Long.parseLong(state.getProperty(UPLOAD_TOTAL, String.valueOf(ContentRange.UNKNOWN)));
+            if (total != ContentRange.UNKNOWN
+                    && (range.end() >= total || (range.total() != ContentRange.UNKNOWN && range.total() != total))) {
+                return UploadProgress.totalMismatch(received, total);
+            }
+            if (range.start() > received) {
+                return UploadProgress.gap(received, total);
+            }
+            if (total == ContentRange.UNKNOWN && range.total() != ContentRange.UNKNOWN) {
+                total = range.total();
+                state.setProperty(UPLOAD_TOTAL, String.valueOf(total));
+                writeUploadState(transaction, uri, state);
+            }
+
+            dest.transferFrom(Channels.newChannel(input), range.start(), range.length());
+            received = dest.size();
+            if (total == ContentRange.UNKNOWN || received != total) {
+                return UploadProgress.received(received, total);
+            }
+
+            // Complete the upload while holding the lock so no other range can be written to it.
+            // The hash is recorded before the move, so an upload with no partial file left is always seen as complete.
+            Path target = PathUtils.toPath(uri, Transactions.content(transaction));
+            String action = backupExistingFile(transaction, uri, websitePath);
+            UriInfo uriInfo = new UriInfo(uri, startDate);
+            String sha1 = Hash.sha(partial);
+            state.setProperty(UPLOAD_SHA1, sha1);
+            writeUploadState(transaction, uri, state);
+
+            Files.createDirectories(target.getParent());
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            uriInfo.stop();
+            uriInfo.setAction(action);
+
+            TransactionUpdate update = new TransactionUpdate();
+            update.setSuccess(true);
+            update.setUriInfo(uriInfo);
+            return UploadProgress.completed(received, update, sha1);
+        }
+    }
+
+    /**
+     * The state of a resumable upload is kept apart from the partial file so that it outlives the partial file once
+     * the upload is complete.
+     */
+    private Properties readUploadState(Transaction transaction, String uri) throws IOException {
+        Properties state = new Properties();
+        Path path = PathUtils.toPath(uri, Transactions.uploadState(transaction));
+        try (InputStream input = Files.newInputStream(path)) {
+            state.load(input);
+        } catch (NoSuchFileException e) {
+            // No state recorded yet
+        }
+        return state;
+    }
+
+    private void writeUploadState(Transaction transaction, String uri, Properties state) throws IOException {
+        Path path = PathUtils.toPath(uri, Transactions.uploadState(transaction));
+        Files.createDirectories(path.getParent());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        state.store(output, null);
+        Durability.NONE.write(path, output.toByteArray());
+    }
+
+    /**
+     * @return the key identifying the file at the path, or null if there is no file there. Where the file system does
+     * not provide file keys the path itself is used, so a file replaced at the same path is not detected.
+     */
+    private Object fileKey(Path path) throws IOException {
+        try {
+            Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            return key != null ? key : path;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * When making a change to a file on the website, we copy the existing file into a backup. Depending on the
+     * configured backup mode the backup may be a hard link to the website file rather than a copy of its content.
      *
      * @param transaction
      * @param uri
@@ -304,8 +702,7 @@ public class Publisher {
         Path target = PathUtils.toPath(uri, website);
         if (Files.exists(target)) {
             Path backup = PathUtils.toPath(uri, Transactions.backup(transaction));
-            Files.createDirectories(backup.getParent());
-            copyFile(target.toFile(), backup.toFile());
+            backupCopier.copy(target, backup);
             action = UriInfo.UPDATE;
         }
         return action;
@@ -366,7 +763,7 @@ public class Publisher {
                     info().data("directory", target.toString())
                             .log("backing up directory before deletion");
 
-                    FileUtils.copyDirectory(targetDirectory.toFile(), backupDirectory.toFile());
+                    backupCopier.copyDirectory(targetDirectory, backupDirectory);
                 } else {
                     info().data("directory", target.toString()).log("cannot backup directory as it does not exist, skipping");
                 }
@@ -408,8 +805,7 @@ public class Publisher {
         }
 
         if (target != null) {
-            Files.createDirectories(target.getParent());
-            copyFile(source.toFile(), target.toFile());
+            fileCopier.copy(source, target);
             result.setSuccess(true);
         }
 
@@ -477,6 +873,11 @@ public class Publisher {
 
         if (result) {
             Transactions.end(transaction);
+            purgeTrash(transaction);
+        } else if (Files.exists(Transactions.trash(transaction))) {
+            info().transactionID(transaction.id())
+                    .data("path", Transactions.trash(transaction).toString())
+                    .log("commit unsuccessful, content deleted from the website has been kept");
         }
 
         return result;
@@ -486,12 +887,55 @@ public class Publisher {
         LocalDateTime start = LocalDateTime.now();
 
         // Apply any deletes that are defined in the transaction first to ensure we do not delete updated files.
+        // Each target is renamed into the transaction trash so it disappears from the website immediately, the
+        // trash is purged in the background once the transaction has been committed.
+        Path trash = Transactions.trash(transaction);
+        int index = 0;
         for (UriInfo uriInfo : transaction.urisToDelete()) {
             String uri = uriInfo.uri();
             Path target = PathUtils.toPath(uri, website);
+            if (!Files.exists(target)) {
+                continue;
+            }
 
             info().data("path", target.toString()).transactionID(transaction.id()).log("deleting directory");
-            FileUtils.deleteDirectory(target.toFile());
+            Path trashed = PathUtils.toPath(uri, trash.resolve(Integer.toString(index++)));
+            try {
+                Files.createDirectories(trashed.getParent());
+                Files.move(target, trashed, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                info().data("path", target.toString())
+                        .transactionID(transaction.id())
+                        .exception(e)
+                        .log("unable to move directory to trash, deleting in place");
+                FileUtils.deleteDirectory(target.toFile());
+            }
+        }
+    }
+
+    /**
+     * Delete the content moved into the transaction trash when applying deletes. Each deleted URI is purged
+     * asynchronously on the publisher pool.
+     */
+    private void purgeTrash(Transaction transaction) throws IOException {
+        Path trash = Transactions.trash(transaction);
+        if (!Files.exists(trash)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(trash)) {
+            for (Path entry : entries) {
+                pool.submit(() -> {
+                    try {
+                        FileUtils.forceDelete(entry.toFile());
+                    } catch (IOException e) {
+                        error().transactionID(transaction.id())
+                                .data("path", entry.toString())
+                                .exception(e)
+                                .log("error purging deleted content from transaction trash");
+                    }
+                });
+            }
         }
     }
 
@@ -515,13 +959,11 @@ public class Publisher {
         try {
 
             // Publish the file
-            // NB we don't need to worry about overwriting because
-            // any existing copy will already have been moved.
-            Files.createDirectories(target.getParent());
-            // NB We're using copy rather than move for two reasons:
-            // - To be able to review a transaction after the fact and see all the files that were published
-            // - If we use encryption we need to copy through a cipher stream to handle decryption
-            copyFile(source.toFile(), target.toFile());
+            // NB the existing file is replaced rather than written to as
+            // its backup may be a hard link sharing the same content.
+            // NB We're using copy (or a hard link) rather than move so we
+            // are able to review a transaction after the fact and see all the files that were published
+            commitCopier.copy(source, target);
             uriInfo.commit();
             result = true;
 
@@ -586,13 +1028,9 @@ public class Publisher {
     }
 
     UriInfo findUri(String uri, Transaction transaction) {
-        Optional<UriInfo> result = transaction.uris()
-                .parallelStream()
-                .filter(uriInfo -> StringUtils.equals(uri, uriInfo.uri()))
-                .findFirst();
-
-        if (result.isPresent()) {
-            return result.get();
+        UriInfo result = transaction.uri(uri);
+        if (result != null) {
+            return result;
         }
         return new UriInfo(uri);
     }
@@ -0,0 +1,44 @@
+package com.github.onsdigital.thetrain.storage;
+
+/**
+ * How many closed transactions are kept in the transaction store. The most recently closed transactions are kept
+ * while they are within every limit, older transactions are archived. A limit of 0 is unlimited.
+ */
+public class RetentionPolicy {
+
+    private final long maxAgeMillis;
+    private final int maxCount;
+    private final long maxBytes;
+
+    /**
+     * Construct a new RetentionPolicy.
+     *
+     * @param maxAgeMillis the maximum time since a transaction was closed.
+     * @param maxCount     the maximum number of closed transactions.
+     * @param maxBytes     the maximum total size of closed transactions.
+     */
+    public RetentionPolicy(long maxAgeMillis, int maxCount, long maxBytes) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxCount = maxCount;
+        this.maxBytes = maxBytes;
+    }
+
+    public long maxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public int maxCount() {
+        return maxCount;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return true if any limit is set.
+     */
+    public boolean isLimited() {
+        return maxAgeMillis > 0 || maxCount > 0 || maxBytes > 0;
+    }
+}
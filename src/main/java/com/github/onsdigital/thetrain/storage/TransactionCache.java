@@ -0,0 +1,252 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A least recently used cache of transactions read from disk, bounded by the total size of the files they were read
+ * from. An entry is only returned while the transaction files are unchanged since it was read, any write to the
+ * transaction file or journal invalidates it.
+ * <p>
+ * Cached transactions are shared between callers in the same way as transactions held in memory.
+ */
+class TransactionCache {
+
+    private final long maxWeight;
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private long weight;
+
+    /**
+     * Construct a new TransactionCache.
+     *
+     * @param maxWeight the maximum total size in bytes of the transaction files of the cached transactions.
+     */
+    TransactionCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * Get a cached transaction.
+     *
+     * @param id    the transaction ID.
+     * @param stamp the current {@link Stamp} of the transaction files.
+     * @return the cached transaction if there is one read from files matching the stamp, otherwise null.
+     */
+    Transaction get(String id, Stamp stamp) {
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.stamp.equals(stamp)) {
+                hits.incrementAndGet();
+                return entry.transaction;
+            }
+            if (entry != null) {
+                remove(id);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cache a transaction read from disk, evicting the least recently used transactions if required. Transactions
+     * larger than the cache are not cached.
+     *
+     * @param id          the transaction ID.
+     * @param stamp       the {@link Stamp} of the transaction files taken before they were read.
+     * @param transaction the transaction.
+     */
+    void put(String id, Stamp stamp, Transaction transaction) {
+        if (stamp.weight() > maxWeight) {
+            return;
+        }
+
+        synchronized (entries) {
+            remove(id);
+            entries.put(id, new Entry(stamp, transaction));
+            weight += stamp.weight();
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeight && eldest.hasNext()) {
+                weight -= eldest.next().getValue().stamp.weight();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Remove a transaction from the cache.
+     *
+     * @param id the transaction ID.
+     */
+    void invalidate(String id) {
+        synchronized (entries) {
+            remove(id);
+        }
+    }
+
+    /**
+     * @return the number of lookups that returned a cached transaction.
+     */
+    long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that did not find a cached transaction or found a stale one.
+     */
+    long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of transactions evicted to stay within the size of the cache.
+     */
+    long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the total size in bytes of the transaction files of the cached transactions.
+     */
+    long weight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    /**
+     * @return the number of cached transactions.
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void remove(String id) {
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            weight -= removed.stamp.weight();
+        }
+    }
+
+    private static class Entry {
+        private final Stamp stamp;
+        private final Transaction transaction;
+
+        Entry(Stamp stamp, Transaction transaction) {
+            this.stamp = stamp;
+            this.transaction = transaction;
+        }
+    }
+
+    /**
+     * Identifies the version of the files a transaction is read from: the transaction file and the journal. Both are
+     * identified by file key, size and modification time. As the transaction file is replaced by a rename rather than
+     * rewritten a new version always has a different file key, even where modification times are coarse.
+     */
+    static class Stamp {
+
+        private final FileStamp json;
+        private final FileStamp journal;
+
+        private Stamp(FileStamp json, FileStamp journal) {
+            this.json = json;
+            this.journal = journal;
+        }
+
+        /**
+         * Read the stamp of the files of a transaction.
+         *
+         * @param transactionPath the transaction directory.
+         * @return the stamp.
+         * @throws IOException problem reading the file attributes.
+         */
+        static Stamp of(Path transactionPath) throws IOException {
+            return new Stamp(FileStamp.of(transactionPath.resolve(Transactions.JSON)),
+                    FileStamp.of(transactionPath.resolve(TransactionJournal.JOURNAL)));
+        }
+
+        long weight() {
+            return json.size + journal.size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Stamp stamp = (Stamp) o;
+            return json.equals(stamp.json) && journal.equals(stamp.journal);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(json, journal);
+        }
+    }
+
+    private static class FileStamp {
+
+        private static final FileStamp MISSING = new FileStamp(null, 0, null);
+
+        private final Object fileKey;
+        private final long size;
+        private final FileTime modified;
+
+        private FileStamp(Object fileKey, long size, FileTime modified) {
+            this.fileKey = fileKey;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static FileStamp of(Path file) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileStamp(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime());
+            } catch (NoSuchFileException e) {
+                return MISSING;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileStamp that = (FileStamp) o;
+            return size == that.size && Objects.equals(modified, that.modified)
+                    && Objects.equals(fileKey, that.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileKey, size, modified);
+        }
+    }
+}
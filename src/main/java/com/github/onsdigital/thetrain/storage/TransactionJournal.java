@@ -0,0 +1,137 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.TransactionDelta;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+
+/**
+ * Append only journal of the changes made to a {@link Transaction} since its {@value Transactions#JSON} snapshot was
+ * last written. Each line of the journal is a JSON serialised {@link TransactionDelta}.
+ * <p>
+ * Appending a delta costs the size of the change rather than the size of the transaction. The journal is compacted
+ * into a new snapshot once it grows larger than the snapshot itself, which keeps the total bytes written over the
+ * life of a transaction linear in the number of files it contains.
+ */
+class TransactionJournal {
+
+    static final String JOURNAL = "transaction.journal";
+
+    /**
+     * The journal is never compacted until it is at least this size, regardless of the size of the snapshot.
+     */
+    static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private TransactionJournal() {
+        // static methods only
+    }
+
+    /**
+     * Append a delta to the journal of a transaction.
+     *
+     * @param transactionPath the transaction directory.
+     * @param delta           the changes to append.
+     * @param objectMapper    the mapper used to serialise the delta.
+     * @param durability      the durability of the append.
+     * @throws IOException problem writing to the journal.
+     */
+    static void append(Path transactionPath, TransactionDelta delta, ObjectMapper objectMapper,
+                       Durability durability) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(delta);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        durability.append(transactionPath.resolve(JOURNAL), line);
+    }
+
+    /**
+     * @param transactionPath the transaction directory.
+     * @return true if the journal has grown large enough that it should be compacted into the snapshot.
+     * @throws IOException problem reading the size of the journal or snapshot.
+     */
+    static boolean needsCompaction(Path transactionPath) throws IOException {
+        Path journal = transactionPath.resolve(JOURNAL);
+        if (!Files.exists(journal)) {
+            return false;
+        }
+
+        Path json = transactionPath.resolve(Transactions.JSON);
+        long snapshotSize = Files.exists(json) ? Files.size(json) : 0;
+        return Files.size(journal) > Math.max(snapshotSize, MIN_COMPACTION_SIZE);
+    }
+
+    /**
+     * Apply the deltas in the journal to a transaction read from its snapshot. A journal line that is incomplete or
+     * cannot be parsed (for example a partial line left by a crash while appending) ends the replay, and the journal
+     * is truncated to the end of the last line replayed so that later appends are not joined onto the partial line.
+     *
+     * @param transactionPath the transaction directory.
+     * @param transaction     the transaction read from the snapshot.
+     * @param objectMapper    the mapper used to deserialise the deltas.
+     * @throws IOException problem reading or truncating the journal.
+     */
+    static void replay(Path transactionPath, Transaction transaction, ObjectMapper objectMapper) throws IOException {
+        Path journal = transactionPath.resolve(JOURNAL);
+        if (!Files.exists(journal)) {
+            return;
+        }
+
+        byte[] bytes = Files.readAllBytes(journal);
+        int replayed = 0;
+        while (replayed < bytes.length) {
+            int end = indexOf(bytes, (byte) '\n', replayed);
+            if (end < 0) {
+                error().transactionID(transaction.id())
+                        .data("path", journal.toString())
+                        .log("incomplete transaction journal entry, ignoring remainder of journal");
+                break;
+            }
+            if (end > replayed) {
+                try {
+                    transaction.apply(objectMapper.readValue(bytes, replayed, end - replayed, TransactionDelta.class));
+                } catch (JsonProcessingException e) {
+                    error().transactionID(transaction.id())
+                            .data("path", journal.toString())
+                            .exception(e)
+                            .log("unreadable transaction journal entry, ignoring remainder of journal");
+                    break;
+                }
+            }
+            replayed = end + 1;
+        }
+
+        if (replayed < bytes.length) {
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.truncate(replayed);
+            }
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Delete the journal of a transaction. Called once a snapshot containing all of the journalled changes has been
+     * written.
+     *
+     * @param transactionPath the transaction directory.
+     * @throws IOException problem deleting the journal.
+     */
+    static void delete(Path transactionPath) throws IOException {
+        Files.deleteIfExists(transactionPath.resolve(JOURNAL));
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.onsdigital.thetrain.storage;
+
+/**
+ * The outcome of reloading the open transactions in the transaction store into memory at startup. See
+ * {@link Transactions#recover(int)}.
+ */
+public class TransactionRecovery {
+
+    private final int scanned;
+    private final int recovered;
+    private final int failed;
+    private final long durationMillis;
+
+    TransactionRecovery(int scanned, int recovered, int failed, long durationMillis) {
+        this.scanned = scanned;
+        this.recovered = recovered;
+        this.failed = failed;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return the number of transaction directories found in the transaction store.
+     */
+    public int scanned() {
+        return scanned;
+    }
+
+    /**
+     * @return the number of open transactions reloaded into memory.
+     */
+    public int recovered() {
+        return recovered;
+    }
+
+    /**
+     * @return the number of closed transactions, which are left on disk.
+     */
+    public int skipped() {
+        return scanned - recovered - failed;
+    }
+
+    /**
+     * @return the number of transactions that could not be read.
+     */
+    public int failed() {
+        return failed;
+    }
+
+    /**
+     * @return how long the recovery took in milliseconds.
+     */
+    public long durationMillis() {
+        return durationMillis;
+    }
+}
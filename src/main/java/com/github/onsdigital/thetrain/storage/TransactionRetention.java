@@ -0,0 +1,440 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.github.onsdigital.thetrain.helpers.RateLimiter;
+import com.github.onsdigital.thetrain.json.RetentionReport;
+import com.github.onsdigital.thetrain.json.RetentionStatus;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Background service that keeps the transaction store within a {@link RetentionPolicy}. Closed transactions outside
+ * the policy are archived into a single zip file each, under the same sharded layout as the transaction store, and
+ * then removed from the store. Archive I/O is rate limited so that it does not compete with a live publish, as are
+ * the walks of the store that size and remove transactions. A closed transaction no longer changes, so its size is
+ * only walked once and cached, and previewing the policy is answered from the cache once a run has sized the store.
+ */
+public class TransactionRetention {
+
+    static final String ARCHIVE_EXTENSION = ".zip";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // Each file sized or removed is rate limited as one block of I/O.
+    private static final int FILE_METADATA_BYTES = 4 * 1024;
+
+    private static TransactionRetention instance = null;
+
+    private final Path transactionStore;
+    private final Path archiveDir;
+    private final RetentionPolicy policy;
+    private final RateLimiter rateLimiter;
+    private final long intervalMillis;
+    private final AtomicBoolean running;
+    private final Map<String, Long> sizes;
+    private volatile RetentionReport lastRun;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Initialise the retention service and, if the interval and policy are set, schedule it to run in the background.
+     *
+     * @param transactionStore      the transaction store.
+     * @param archiveDir            the directory transactions are archived into.
+     * @param policy                the retention policy.
+     * @param ioLimitBytesPerSecond the maximum rate at which transactions are archived. 0 is unlimited.
+     * @param intervalMillis        the time between runs. 0 disables the background runs.
+     */
+    public static void init(Path transactionStore, Path archiveDir, RetentionPolicy policy,
+                            long ioLimitBytesPerSecond, long intervalMillis) {
+        synchronized (TransactionRetention.class) {
+            if (instance != null) {
+                instance.stop();
+            }
+            instance = new TransactionRetention(transactionStore, archiveDir, policy, ioLimitBytesPerSecond,
+                    intervalMillis);
+            instance.start();
+        }
+    }
+
+    /**
+     * @return the retention service.
+     */
+    public static TransactionRetention getInstance() {
+        synchronized (TransactionRetention.class) {
+            if (instance == null) {
+                throw new IllegalStateException("TransactionRetention has not been initialised");
+            }
+            return instance;
+        }
+    }
+
+    TransactionRetention(Path transactionStore, Path archiveDir, RetentionPolicy policy, long ioLimitBytesPerSecond,
+                         long intervalMillis) {
+        this.transactionStore = transactionStore;
+        this.archiveDir = archiveDir;
+        this.policy = policy;
+        this.rateLimiter = new RateLimiter(ioLimitBytesPerSecond);
+        this.intervalMillis = intervalMillis;
+        this.running = new AtomicBoolean();
+        this.sizes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return true if the retention service runs in the background.
+     */
+    public boolean isEnabled() {
+        return intervalMillis > 0 && policy.isLimited();
+    }
+
+    /**
+     * @return the configuration of the service and the outcome of the last run.
+     */
+    public RetentionStatus status() {
+        RetentionStatus status = new RetentionStatus();
+        status.enabled = isEnabled();
+        status.running = running.get();
+        status.intervalMillis = intervalMillis;
+        status.maxAgeMillis = policy.maxAgeMillis();
+        status.maxCount = policy.maxCount();
+        status.maxBytes = policy.maxBytes();
+        status.ioLimitBytesPerSecond = rateLimiter.permitsPerSecond();
+        status.archiveDir = archiveDir.toString();
+        status.lastRun = lastRun;
+        return status;
+    }
+
+    /**
+     * Work out which transactions applying the policy would archive, without archiving them. Only transactions
+     * closed since the sizes were last cached are walked.
+     *
+     * @return the transactions that would be archived.
+     * @throws IOException problem reading the transaction store.
+     */
+    public RetentionReport preview() throws IOException {
+        RetentionReport report = newReport(true);
+        long start = System.currentTimeMillis();
+        plan(report);
+        report.durationMillis = System.currentTimeMillis() - start;
+        return report;
+    }
+
+    /**
+     * Apply the policy, archiving and removing the closed transactions outside it.
+     *
+     * @return the outcome, or null if the policy is already being applied.
+     * @throws IOException problem reading the transaction store.
+     */
+    public RetentionReport run() throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        try {
+            RetentionReport report = newReport(false);
+            long start = System.currentTimeMillis();
+            info().data("path", transactionStore.toString()).log("applying transaction retention policy");
+
+            for (Candidate candidate : plan(report)) {
+                try {
+                    archive(candidate);
+                    report.archived++;
+                    report.archivedBytes += candidate.bytes;
+                } catch (IOException e) {
+                    report.failed++;
+                    error().transactionID(candidate.id).exception(e).log("error archiving transaction, skipping");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while archiving transactions", e);
+                }
+            }
+
+            report.durationMillis = System.currentTimeMillis() - start;
+            info().data("scanned", report.scanned)
+                    .data("retained", report.retained)
+                    .data("archived", report.archived)
+                    .data("archived_bytes", report.archivedBytes)
+                    .data("failed", report.failed)
+                    .data("duration_ms", report.durationMillis)
+                    .log("applying transaction retention policy completed");
+            lastRun = report;
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void start() {
+        if (!isEnabled()) {
+            info().log("transaction retention disabled");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-retention");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        info().data("interval_ms", intervalMillis).log("transaction retention scheduled");
+    }
+
+    private void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (Exception e) {
+            error().exception(e).log("error applying transaction retention policy");
+        }
+    }
+
+    private RetentionReport newReport(boolean dryRun) {
+        RetentionReport report = new RetentionReport();
+        report.dryRun = dryRun;
+        report.startDate = DateConverter.toString(System.currentTimeMillis());
+        return report;
+    }
+
+    /**
+     * Find the closed transactions outside the policy. Transactions are considered newest first and once one
+     * transaction is outside the policy every older transaction is too.
+     */
+    private List<Candidate> plan(RetentionReport report) throws IOException {
+        try {
+            return expired(report);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while sizing transactions", e);
+        }
+    }
+
+    private List<Candidate> expired(RetentionReport report) throws IOException, InterruptedException {
+        List<Candidate> candidates = new ArrayList<>();
+        Set<String> closed = new HashSet<>();
+        for (Path transactionPath : Transactions.transactionDirectories(transactionStore)) {
+            report.scanned++;
+            Candidate candidate = candidate(transactionPath);
+            if (candidate != null) {
+                candidates.add(candidate);
+                closed.add(candidate.id);
+            }
+        }
+        // Forget the sizes of transactions that are no longer in the store.
+        sizes.keySet().retainAll(closed);
+        candidates.sort(Comparator.comparingLong((Candidate c) -> c.closed).reversed());
+
+        long now = System.currentTimeMillis();
+        long keptBytes = 0;
+        boolean expired = false;
+        List<Candidate> result = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            boolean sized = false;
+            if (!expired && policy.maxBytes() > 0) {
+                candidate.bytes = size(candidate);
+                sized = true;
+            }
+            expired = expired
+                    || (policy.maxAgeMillis() > 0 && now - candidate.closed > policy.maxAgeMillis())
+                    || (policy.maxCount() > 0 && report.retained >= policy.maxCount())
+                    || (policy.maxBytes() > 0 && keptBytes + candidate.bytes > policy.maxBytes());
+
+            if (expired) {
+                if (!sized) {
+                    candidate.bytes = size(candidate);
+                }
+                result.add(candidate);
+                report.expired.add(new RetentionReport.Expired(candidate.id,
+                        DateConverter.toString(candidate.closed), candidate.bytes));
+            } else {
+                report.retained++;
+                keptBytes += candidate.bytes;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the transaction in the directory if it can be archived, otherwise null.
+     */
+    private Candidate candidate(Path transactionPath) throws IOException {
+        Path json = transactionPath.resolve(Transactions.JSON);
+        String id = transactionPath.getFileName().toString();
+        if (!Files.exists(json)
+                || Transactions.getTransactionMap().containsKey(id)
+                || hasEntries(transactionPath.resolve(Transactions.TRASH))) {
+            // Not a transaction, still open in memory, or deleted content is still being purged. The purge leaves the
+            // empty trash directory behind.
+            return null;
+        }
+
+        Map<String, String> fields;
+        try {
+            fields = Transactions.readFields(json, "status", "endDate");
+            if (Transactions.isOpen(fields.get("status"))) {
+                return null;
+            }
+        } catch (IOException e) {
+            error().transactionID(id).exception(e).log("unreadable transaction file, not archiving transaction");
+            return null;
+        }
+
+        Date endDate = DateConverter.toDate(fields.get("endDate"));
+        if (endDate != null) {
+            return new Candidate(id, transactionPath, endDate.getTime());
+        }
+
+        // Without an end date fall back to the last write of the transaction file, which is when the transaction is
+        // committed or rolled back.
+        return new Candidate(id, transactionPath, Files.getLastModifiedTime(json).toMillis());
+    }
+
+    /**
+     * Write the transaction directory to a zip file, then remove the directory. The zip file is written to a
+     * temporary file and flushed to disk before being renamed into place, so the directory is only removed once the
+     * archive is complete.
+     */
+    private void archive(Candidate candidate) throws IOException, InterruptedException {
+        Path target = archivePath(archiveDir, candidate.id);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.createDirectories(target.getParent());
+
+        List<Path> entries = walk(candidate.path);
+        entries.remove(candidate.path);
+
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            for (Path entry : entries) {
+                String name = candidate.path.relativize(entry).toString()
+                        .replace(entry.getFileSystem().getSeparator(), "/");
+                if (Files.isDirectory(entry)) {
+                    zip.putNextEntry(new ZipEntry(name + "/"));
+                    zip.closeEntry();
+                    continue;
+                }
+
+                zip.putNextEntry(new ZipEntry(name));
+                try (InputStream input = Files.newInputStream(entry)) {
+                    int read;
+                    while ((read = input.read(buffer)) != -1) {
+                        rateLimiter.acquire(read);
+                        zip.write(buffer, 0, read);
+                    }
+                }
+                zip.closeEntry();
+            }
+            zip.finish();
+            zip.flush();
+            channel.force(true);
+        } catch (IOException | InterruptedException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        delete(candidate.path);
+        sizes.remove(candidate.id);
+        info().transactionID(candidate.id).data("path", target.toString()).log("transaction archived");
+    }
+
+    /**
+     * Determine the archive file of a transaction.
+     *
+     * @param archiveDir the archive directory.
+     * @param id         the transaction ID.
+     * @return the {@link Path} of the archive file.
+     */
+    static Path archivePath(Path archiveDir, String id) {
+        return Transactions.shardedPath(archiveDir, id).resolveSibling(id + ARCHIVE_EXTENSION);
+    }
+
+    private long size(Candidate candidate) throws IOException, InterruptedException {
+        Long size = sizes.get(candidate.id);
+        if (size != null) {
+            return size;
+        }
+
+        long total = 0;
+        for (Path path : walk(candidate.path)) {
+            rateLimiter.acquire(FILE_METADATA_BYTES);
+            if (Files.isRegularFile(path)) {
+                total += Files.size(path);
+            }
+        }
+        sizes.put(candidate.id, total);
+        return total;
+    }
+
+    /**
+     * Remove a directory, deepest paths first.
+     */
+    private void delete(Path directory) throws IOException, InterruptedException {
+        List<Path> paths = walk(directory);
+        Collections.reverse(paths);
+        for (Path path : paths) {
+            rateLimiter.acquire(FILE_METADATA_BYTES);
+            Files.delete(path);
+        }
+    }
+
+    private static boolean hasEntries(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            return entries.iterator().hasNext();
+        }
+    }
+
+        private static List<Path> walk(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            return walk.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static class Candidate {
+        private final String id;
+        private final Path path;
+        private final long closed;
+        private long bytes;
+
+        Candidate(String id, Path path, long closed) {
+            this.id = id;
+            this.path = path;
+            this.closed = closed;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Offline tool to move transactions stored directly under the transaction store into the sharded layout used by
+ * {@link Transactions#path(String)}. Each transaction directory is renamed in place, so the transaction store must be
+ * on a single file system. Only run while the-train is stopped.
+ * <p>
+ * Usage: <code>TransactionStoreMigration &lt;transaction store&gt; [threads]</code>
+ */
+public class TransactionStoreMigration {
+
+    static final int DEFAULT_THREADS = 8;
+
+    private TransactionStoreMigration() {
+        // static methods only
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: TransactionStoreMigration <transaction store> [threads]");
+            System.exit(1);
+        }
+
+        Path store = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_THREADS;
+        int failed = migrate(store, threads);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Move every transaction in the legacy flat layout into the sharded layout.
+     *
+     * @param store   the transaction store.
+     * @param threads the number of transactions to move in parallel.
+     * @return the number of transactions that could not be moved.
+     * @throws IOException If an error occurs listing the transaction store.
+     */
+    static int migrate(Path store, int threads) throws IOException {
+        long start = System.currentTimeMillis();
+        info().data("path", store.toString()).data("threads", threads).log("migrating transaction store");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Path>> results = new ArrayList<>();
+        try {
+            try (DirectoryStream<Path> directories = Files.newDirectoryStream(store, Files::isDirectory)) {
+                for (Path directory : directories) {
+                    String id = directory.getFileName().toString();
+                    Path target = Transactions.shardedPath(store, id);
+                    if (!target.equals(directory)) {
+                        results.add(pool.submit(() -> move(directory, target)));
+                    }
+                }
+            }
+
+            int failed = 0;
+            for (Future<Path> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    error().exception(e.getCause()).log("error migrating transaction, skipping");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while migrating transactions", e);
+                }
+            }
+
+            info().data("migrated", results.size() - failed)
+                    .data("failed", failed)
+                    .data("duration_ms", System.currentTimeMillis() - start)
+                    .log("migrating transaction store completed");
+            return failed;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Path move(Path directory, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        return Files.move(directory, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
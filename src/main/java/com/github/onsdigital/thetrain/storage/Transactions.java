@@ -1,28 +1,35 @@
 package com.github.onsdigital.thetrain.storage;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.thetrain.helpers.KeyedSerialExecutor;
 import com.github.onsdigital.thetrain.helpers.PathUtils;
+import com.github.onsdigital.thetrain.json.ObjectMapperFactory;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.TransactionDelta;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 // TODO FIX ME - Make this class a singleton with non static methods.
 
@@ -34,33 +41,222 @@ public class Transactions {
     static final String JSON = "transaction.json";
     static final String CONTENT = "content";
     static final String BACKUP = "backup";
+    static final String TRASH = "trash";
+    static final String UPLOADS = "uploads";
+    static final String UPLOAD_STATE = "upload-state";
+    static final int SHARD_LENGTH = 2;
+    static final int SHARD_LEVELS = 2;
+    static final int DEFAULT_WRITER_THREADS = 4;
+    static final long DEFAULT_CACHE_SIZE = 64 * 1024 * 1024;
 
     private static Path transactionStore;
     private static ObjectMapper objectMapper;
     private static Map<String, Transaction> transactionMap;
-    private static Map<String, ExecutorService> transactionExecutorMap;
+    private static KeyedSerialExecutor transactionExecutor;
+    private static Map<String, Future<Boolean>> pendingWrites;
+    private static AtomicLong coalescedWrites;
+    private static long flushInterval;
+    private static Durability progressDurability;
+    private static Durability stateDurability;
+    private static TransactionCache transactionCache;
 
+    /**
+     * Initialise the transaction store, writing transaction changes to disk as soon as possible.
+     *
+     * @param transactionStorePath the directory transactions are stored in.
+     */
     public static void init(Path transactionStorePath) {
+        init(transactionStorePath, 0, DEFAULT_WRITER_THREADS, Durability.NONE, Durability.FILE_AND_DIRECTORY,
+                DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Initialise the transaction store.
+     *
+     * @param transactionStorePath the directory transactions are stored in.
+     * @param flushIntervalMillis  how long to wait after a transaction is changed before writing it to disk. Any
+     *                             further changes made while waiting are written together.
+     * @param writerThreads        the number of threads writing transaction changes to disk. Writes for a single
+     *                             transaction are always made one at a time in order.
+     * @param progressDurability   the durability of the changes written as files are added to a transaction.
+     * @param stateDurability      the durability of full transaction writes, made when a transaction is created,
+     *                             when a manifest is applied and when it is committed or rolled back.
+     * @param cacheSize            the maximum total size in bytes of the transaction files of the transactions
+     *                             read from disk that are kept in memory.
+     */
+    public static void init(Path transactionStorePath, long flushIntervalMillis, int writerThreads,
+                            Durability progressDurability, Durability stateDurability, long cacheSize) {
         transactionStore = transactionStorePath;
+        flushInterval = flushIntervalMillis;
+        Transactions.progressDurability = progressDurability;
+        Transactions.stateDurability = stateDurability;
 
-        objectMapper = new ObjectMapper();
-        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
-        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        objectMapper = ObjectMapperFactory.create();
 
         transactionMap = new ConcurrentHashMap<>();
-        transactionExecutorMap = new ConcurrentHashMap<>();
-
-        info().log("transaction store initialisation completed");
+        if (transactionExecutor != null) {
+            transactionExecutor.shutdown();
+        }
+        transactionExecutor = new KeyedSerialExecutor("transaction-writer", writerThreads);
+        pendingWrites = new ConcurrentHashMap<>();
+        transactionCache = new TransactionCache(cacheSize);
+        coalescedWrites = new AtomicLong();
+
+        info().data("flush_interval_ms", flushIntervalMillis)
+                .data("writer_threads", writerThreads)
+                .data("progress_durability", progressDurability)
+                .data("state_durability", stateDurability)
+                .data("cache_size", cacheSize)
+                .log("transaction store initialisation completed");
     }
 
     public static Map<String, Transaction> getTransactionMap() {
         return transactionMap;
     }
 
-    public static Map<String, ExecutorService> getTransactionExecutorMap() {
-        return transactionExecutorMap;
+    /**
+     * Reload the open transactions in the transaction store into memory so that transactions in progress before a
+     * restart carry on being updated. The status of each transaction is read from the start of its transaction file
+     * so closed transactions are skipped without reading them in full.
+     *
+     * @param threads the number of transactions to read in parallel.
+     * @return the outcome of the recovery.
+     * @throws IOException If an error occurs listing the transaction store.
+     */
+    public static TransactionRecovery recover(int threads) throws IOException {
+        long start = System.currentTimeMillis();
+        info().data("threads", threads).log("recovering open transactions");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Transaction>> results = new ArrayList<>();
+        try {
+            for (Path transactionPath : transactionDirectories(transactionStore)) {
+                results.add(pool.submit(() -> recover(transactionPath)));
+            }
+
+            int recovered = 0;
+            int failed = 0;
+            for (Future<Transaction> result : results) {
+                try {
+                    Transaction transaction = result.get();
+                    if (transaction != null && transactionMap.putIfAbsent(transaction.id(), transaction) == null) {
+                        transactionCache.invalidate(transaction.id());
+                        recovered++;
+                    }
+                } catch (ExecutionException e) {
+                    failed++;
+                    error().exception(e.getCause()).log("error recovering transaction, skipping");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while recovering transactions", e);
+                }
+            }
+
+            TransactionRecovery recovery = new TransactionRecovery(results.size(), recovered, failed,
+                    System.currentTimeMillis() - start);
+            info().data("scanned", recovery.scanned())
+                    .data("recovered", recovery.recovered())
+                    .data("skipped", recovery.skipped())
+                    .data("failed", recovery.failed())
+                    .data("duration_ms", recovery.durationMillis())
+                    .log("recovering open transactions completed");
+            return recovery;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * List the transaction directories in a transaction store, in both the sharded and the legacy flat layout.
+     *
+     * @param store the transaction store.
+     * @return the transaction directories.
+     * @throws IOException If an error occurs listing the transaction store.
+     */
+    static List<Path> transactionDirectories(Path store) throws IOException {
+        List<Path> result = new ArrayList<>();
+        addTransactionDirectories(store, 0, result);
+        return result;
+    }
+
+    private static void addTransactionDirectories(Path directory, int level, List<Path> result) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path entry : entries) {
+                if (level < SHARD_LEVELS && isShard(entry)) {
+                    addTransactionDirectories(entry, level + 1, result);
+                } else if (level == 0 || level == SHARD_LEVELS) {
+                    result.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * A shard directory is named with part of a transaction ID, which is always longer than a shard name.
+     */
+    private static boolean isShard(Path directory) {
+        return directory.getFileName().toString().length() == SHARD_LENGTH;
+    }
+
+    /**
+     * @return the transaction read from the directory if it is open, otherwise null.
+     */
+    private static Transaction recover(Path transactionPath) throws IOException {
+        Path json = transactionPath.resolve(JSON);
+        if (!Files.exists(json) || !isOpen(readStatus(json))) {
+            return null;
+        }
+
+        Transaction transaction = read(transactionPath);
+        if (!transaction.isOpen()) {
+            return null;
+        }
+
+        info().transactionID(transaction.id()).log("recovered open transaction");
+        return transaction;
+    }
+
+    /**
+     * Read the status of a transaction without reading the rest of the transaction file.
+     *
+     * @return the status, or null if the transaction file does not contain one.
+     */
+    static String readStatus(Path json) throws IOException {
+        return readFields(json, "status").get("status");
+    }
+
+    /**
+     * Read top level string fields of a transaction file, stopping as soon as they have all been read rather than
+     * reading the rest of the transaction file.
+     *
+     * @return the value of each field found, keyed by field name.
+     */
+    static Map<String, String> readFields(Path json, String... fields) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(json.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("transaction file is not a JSON object: " + json);
+            }
+            while (values.size() < fields.length && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (ArrayUtils.contains(fields, field)) {
+                    values.put(field, parser.getValueAsString());
+                }
+                parser.skipChildren();
+            }
+            return values;
+        }
+    }
+
+    /**
+     * A transaction written without a status has the default status of a new transaction.
+     */
+    static boolean isOpen(String status) {
+        return status == null || Transaction.STARTED.equals(status) || Transaction.PUBLISHING.equals(status);
     }
 
+
     /**
      * Creates a new transaction.
      *
@@ -72,41 +268,38 @@ public class Transactions {
 
         // Generate the file structure
         Path path = path(transaction.id());
+        Files.createDirectories(path.getParent());
         Files.createDirectory(path);
-        Path json = path.resolve(JSON);
-        try (OutputStream output = Files.newOutputStream(json)) {
-            objectMapper.writeValue(output, transaction);
-            Files.createDirectory(path.resolve(CONTENT));
-            Files.createDirectory(path.resolve(BACKUP));
-            info().transactionID(transaction.id())
-                    .log("transaction written to disk successfully");
-
-            transactionMap.put(transaction.id(), transaction);
+        Files.createDirectory(path.resolve(CONTENT));
+        Files.createDirectory(path.resolve(BACKUP));
+        stateDurability.write(path.resolve(JSON), objectMapper.writeValueAsBytes(transaction));
+        info().transactionID(transaction.id())
+                .log("transaction written to disk successfully");
 
-            info().transactionID(transaction.id())
-                    .log("transaction added to in-memory storage");
+        transactionMap.put(transaction.id(), transaction);
 
-            if (!transactionExecutorMap.containsKey(transaction.id())) {
-                transactionExecutorMap.put(transaction.id(), Executors.newSingleThreadExecutor());
-            }
+        info().transactionID(transaction.id())
+                .log("transaction added to in-memory storage");
 
-            return transaction;
-        }
+        return transaction;
     }
 
     /**
-     * Cleanup any resources held by the transaction.
+     * Cleanup any resources held by the transaction. The running counts of coalesced writes and transaction cache hits
+     * and misses are logged as each transaction ends.
      *
      * @param transaction
      */
     public static void end(Transaction transaction) {
-        if (transactionExecutorMap.containsKey(transaction.id())) {
-            transactionExecutorMap.get(transaction.id()).shutdown();
-            transactionExecutorMap.remove(transaction.id());
-        }
+        pendingWrites.remove(transaction.id());
 
         if (transactionMap.containsKey(transaction.id())) {
             transactionMap.remove(transaction.id());
+            info().transactionID(transaction.id())
+                    .data("coalesced_writes", coalescedWrites.get())
+                    .data("cache_hits", transactionCache.hits())
+                    .data("cache_misses", transactionCache.misses())
+                    .log("transaction removed from in-memory storage");
         }
     }
 
@@ -125,14 +318,17 @@ public class Transactions {
             if (StringUtils.isNotBlank(id)) {
 
                 if (!transactionMap.containsKey(id)) {
-                    info().transactionID(id)
-                            .log("transaction does not exist in in-memory storage, attempting to read from file system");
                     // Generate the file structure
                     Path transactionPath = path(id);
                     if (transactionPath != null && Files.exists(transactionPath)) {
-                        final Path json = transactionPath.resolve(JSON);
-                        try (InputStream input = Files.newInputStream(json)) {
-                            result = objectMapper.readValue(input, Transaction.class);
+                        // Stamp the files before reading so any change made while reading invalidates the result.
+                        TransactionCache.Stamp stamp = TransactionCache.Stamp.of(transactionPath);
+                        result = transactionCache.get(id, stamp);
+                        if (result == null) {
+                            info().transactionID(id)
+                                    .log("transaction does not exist in in-memory storage, attempting to read from file system");
+                            result = read(transactionPath);
+                            transactionCache.put(id, stamp, result);
                         }
                     }
                 } else {
@@ -147,7 +343,25 @@ public class Transactions {
         }
     }
 
-    public static void listFiles(Transaction transaction) throws IOException {
+    /**
+     * Read a transaction from its transaction file and journal.
+     */
+    private static Transaction read(Path transactionPath) throws IOException {
+        Transaction result;
+        try (InputStream input = Files.newInputStream(transactionPath.resolve(JSON))) {
+            result = objectMapper.readValue(input, Transaction.class);
+        }
+        TransactionJournal.replay(transactionPath, result, objectMapper);
+        return result;
+    }
+
+    /**
+     * List the files on disk in a transaction. The transaction itself is not changed, as a transaction read from disk
+     * may be the cached instance shared with other requests.
+     *
+     * @return the URIs of the files in the content and backup directories of the transaction.
+     */
+    public static Map<String, List<String>> listFiles(Transaction transaction) throws IOException {
         Map<String, List<String>> list = new HashMap<>();
 
         Path content = content(transaction);
@@ -158,13 +372,16 @@ public class Transactions {
         if (Files.isDirectory(backup)) {
             list.put("backup", PathUtils.listUris(backup));
         }
-
-        transaction.files = list;
+        return list;
     }
 
     /**
-     * Queue a task to update the transaction file. This task will only get run if the transaction
-     * is not already committed.
+     * Queue a task to update the transaction on disk. This task will only get run if the transaction
+     * is not already committed. The changes made since the last update are appended to the transaction journal,
+     * which is compacted into the transaction file once it grows larger than the file.
+     * <p>
+     * The task runs once the flush interval has passed. If a task for the transaction is already waiting to run no
+     * new task is queued, the waiting task writes the latest changes and its future is returned instead.
      *
      * @param transactionId
      * @return
@@ -173,43 +390,13 @@ public class Transactions {
     public static Future<Boolean> tryUpdateAsync(final String transactionId) throws IOException {
         Future<Boolean> future = null;
 
-        if (transactionExecutorMap.containsKey(transactionId)) {
-            ExecutorService transactionUpdateExecutor = transactionExecutorMap.get(transactionId);
-
-            future = transactionUpdateExecutor.submit(new Callable<Boolean>() {
-                @Override
-                public Boolean call() throws Exception {
-                    Boolean result = false;
-
-                    try {
-                        if (transactionExecutorMap.containsKey(transactionId)
-                                && transactionMap.containsKey(transactionId)) {
-                            // The transaction passed in should always be an instance from the map
-                            // otherwise there's potential to lose updates.
-                            // NB the unit of synchronization is always a Transaction object.
-                            Transaction read = transactionMap.get(transactionId);
-                            synchronized (read) {
-                                Path transactionPath = path(transactionId);
-                                if (transactionPath != null && Files.exists(transactionPath)) {
-                                    final Path json = transactionPath.resolve(JSON);
-
-                                    try (OutputStream output = Files.newOutputStream(json)) {
-                                        objectMapper.writeValue(output, read);
-                                    }
-                                }
-                                result = true;
-                            }
-                        } else {
-                            // do nothing
-                        }
-                    } catch (IOException exception) {
-                        error().transactionID(transactionId)
-                                .exception(exception)
-                                .log("tryUpdateAsync: unexpected error encountered");
-                    }
-
-                    return result;
+        if (transactionMap.containsKey(transactionId)) {
+            future = pendingWrites.compute(transactionId, (id, pending) -> {
+                if (pending != null) {
+                    coalescedWrites.incrementAndGet();
+                    return pending;
                 }
+                return transactionExecutor.schedule(id, () -> writeChanges(id), flushInterval, MILLISECONDS);
             });
         }
 
@@ -217,37 +404,133 @@ public class Transactions {
     }
 
     /**
-     * Reads the transaction Json specified by the given id.
+     * @return the number of transactions read from disk that were served from the cache. Logged as each transaction
+     * ends.
+     */
+    public static long getCacheHitCount() {
+        return transactionCache.hits();
+    }
+
+    /**
+     * @return the number of transactions read from disk that were not in the cache or whose cached copy was stale.
+     * Logged as each transaction ends.
+     */
+    public static long getCacheMissCount() {
+        return transactionCache.misses();
+    }
+
+    /**
+     * @return the number of calls to {@link #tryUpdateAsync(String)} that were written by an update already
+     * waiting to run rather than queueing an update of their own. Logged as each transaction ends.
+     */
+    public static long getCoalescedWriteCount() {
+        return coalescedWrites.get();
+    }
+
+    private static Boolean writeChanges(String transactionId) {
+        // Changes made to the transaction from here on need a new write. NB this blocks until
+        // the tryUpdateAsync call that scheduled this write has recorded it as pending.
+        pendingWrites.remove(transactionId);
+
+        Boolean result = false;
+
+        try {
+            if (transactionMap.containsKey(transactionId)) {
+                // The transaction passed in should always be an instance from the map
+                // otherwise there's potential to lose updates.
+                // NB the unit of synchronization is always a Transaction object.
+                Transaction read = transactionMap.get(transactionId);
+                synchronized (read) {
+                    Path transactionPath = path(transactionId);
+                    if (transactionPath != null && Files.exists(transactionPath)) {
+                        appendToJournal(read, transactionPath);
+                    }
+                    result = true;
+                }
+            }
+        } catch (IOException exception) {
+            error().transactionID(transactionId)
+                    .exception(exception)
+                    .log("tryUpdateAsync: unexpected error encountered");
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the full transaction to the transaction Json, replacing any journal of changes.
      *
      * @param transaction The {@link Transaction}.
-     * @throws IOException If an error occurs in reading the transaction Json.
+     * @throws IOException If an error occurs in writing the transaction Json.
      */
     public static void update(Transaction transaction) throws IOException {
-        if (transaction != null && transactionMap.containsKey(transaction.id())) {
+        if (transaction != null) {
             // The transaction passed in should always be an instance from the map
-            // otherwise there's potential to lose updates.
+            // otherwise there's potential to lose updates. Once a transaction has
+            // been ended it is no longer in the map, in which case the instance passed
+            // in is written so the outcome of the commit or rollback is kept.
             // NB the unit of synchronization is always a Transaction object.
-            Transaction read = transactionMap.get(transaction.id());
+            Transaction read = transactionMap.getOrDefault(transaction.id(), transaction);
             synchronized (read) {
                 Path transactionPath = path(transaction.id());
                 if (transactionPath != null && Files.exists(transactionPath)) {
-                    final Path json = transactionPath.resolve(JSON);
-
-                    info().transactionID(transaction.id()).data("path", json.toString()).log("writing transaction file");
-
-                    try (OutputStream output = Files.newOutputStream(json)) {
-                        objectMapper.writeValue(output, read);
-                        info().log("writing transaction file completed successfully");
-                    } catch (Exception e) {
-                        error().transactionID(transaction.id()).data("path", json.toString())
-                                .log("error while writing transaction to file");
-                        throw e;
-                    }
+                    info().transactionID(transaction.id())
+                            .data("path", transactionPath.resolve(JSON).toString())
+                            .log("writing transaction file");
+                    writeSnapshot(read, transactionPath, stateDurability);
+                    info().log("writing transaction file completed successfully");
                 }
             }
         }
     }
 
+    /**
+     * Append the changes made to a transaction to its journal, compacting the journal into a new snapshot if it has
+     * grown too large. Callers must hold the lock on the transaction.
+     */
+    private static void appendToJournal(Transaction transaction, Path transactionPath) throws IOException {
+        TransactionDelta delta = transaction.drainChanges();
+        if (delta != null) {
+            try {
+                TransactionJournal.append(transactionPath, delta, objectMapper, progressDurability);
+            } catch (IOException e) {
+                // The drained changes are only held in memory now so fall back to a full snapshot.
+                error().transactionID(transaction.id())
+                        .exception(e)
+                        .log("error appending to transaction journal, writing full transaction file");
+                writeSnapshot(transaction, transactionPath, progressDurability);
+                return;
+            }
+        }
+
+        if (TransactionJournal.needsCompaction(transactionPath)) {
+            info().transactionID(transaction.id()).log("compacting transaction journal");
+            writeSnapshot(transaction, transactionPath, progressDurability);
+        }
+    }
+
+    /**
+     * Replace the transaction file with the full transaction and remove the journal of changes now included in it.
+     * Callers must hold the lock on the transaction.
+     */
+    private static void writeSnapshot(Transaction transaction, Path transactionPath, Durability durability)
+            throws IOException {
+        final Path json = transactionPath.resolve(JSON);
+
+        // Everything pending is included in the snapshot.
+        transaction.drainChanges();
+
+        try {
+            durability.write(json, objectMapper.writeValueAsBytes(transaction));
+        } catch (Exception e) {
+            error().transactionID(transaction.id()).data("path", json.toString())
+                    .log("error while writing transaction to file");
+            throw e;
+        }
+
+        TransactionJournal.delete(transactionPath);
+    }
+
     /**
      * Resolved the path under which content being published will be stored prior to being committed to the website content store.
      *
@@ -287,7 +570,62 @@ public class Transactions {
     }
 
     /**
-     * Determines the directory for a {@link Transaction}.
+     * Resolve the path into which content deleted from the website by a transaction is moved before it is purged.
+     * The directory is not created until the transaction deletes something.
+     *
+     * @param transaction The {@link Transaction} within which to determine the {@value #TRASH} directory.
+     * @return The {@link Path} of the {@value #TRASH} directory for the specified transaction.
+     * @throws IOException If an error occurs in determining the path.
+     */
+    public static Path trash(Transaction transaction) throws IOException {
+        Path result = null;
+        Path path = path(transaction.id());
+        if (path != null) {
+            result = path.resolve(TRASH);
+        }
+        return result;
+    }
+
+    /**
+     * Resolve the path under which resumable uploads are written until every byte of the file has been received and
+     * it is moved into the {@value #CONTENT} directory. The directory is not created until the transaction has a
+     * resumable upload.
+     *
+     * @param transaction The {@link Transaction} within which to determine the {@value #UPLOADS} directory.
+     * @return The {@link Path} of the {@value #UPLOADS} directory for the specified transaction.
+     * @throws IOException If an error occurs in determining the path.
+     */
+    public static Path uploads(Transaction transaction) throws IOException {
+        Path result = null;
+        Path path = path(transaction.id());
+        if (path != null) {
+            result = path.resolve(UPLOADS);
+        }
+        return result;
+    }
+
+    /**
+     * Resolve the path under which the declared size and, once complete, the hash of each resumable upload are
+     * recorded. The directory is not created until the transaction has a resumable upload.
+     *
+     * @param transaction The {@link Transaction} within which to determine the {@value #UPLOAD_STATE} directory.
+     * @return The {@link Path} of the {@value #UPLOAD_STATE} directory for the specified transaction.
+     * @throws IOException If an error occurs in determining the path.
+     */
+    public static Path uploadState(Transaction transaction) throws IOException {
+        Path result = null;
+        Path path = path(transaction.id());
+        if (path != null) {
+            result = path.resolve(UPLOAD_STATE);
+        }
+        return result;
+    }
+
+    /**
+     * Determines the directory for a {@link Transaction}. Transactions are stored under {@value #SHARD_LEVELS} levels
+     * of directories named after the leading characters of the ID (see {@link #shardedPath(Path, String)}) so that
+     * no directory grows too large. Transactions created before the store was sharded are still found directly under
+     * the transaction store until they are migrated with {@link TransactionStoreMigration}.
      *
      * @param id The {@link Transaction} ID.
      * @return The {@link Path} for the specified transaction, or null if the ID is blank.
@@ -296,11 +634,37 @@ public class Transactions {
     static Path path(String id) throws IOException {
         Path result = null;
         if (StringUtils.isNotBlank(id)) {
-            result = transactionStore.resolve(id);
+            result = shardedPath(transactionStore, id);
+            if (!Files.exists(result)) {
+                Path legacy = transactionStore.resolve(id);
+                if (Files.exists(legacy)) {
+                    result = legacy;
+                }
+            }
         }
         return result;
     }
 
+    /**
+     * Determine the directory for a transaction in the sharded layout, for example
+     * <code>ab/cd/abcdef...</code> for the ID <code>abcdef...</code>. IDs too short to shard are not sharded.
+     *
+     * @param store the transaction store.
+     * @param id    the {@link Transaction} ID.
+     * @return The {@link Path} for the specified transaction.
+     */
+    static Path shardedPath(Path store, String id) {
+        if (id.length() <= SHARD_LENGTH * SHARD_LEVELS) {
+            return store.resolve(id);
+        }
+
+        Path result = store;
+        for (int level = 0; level < SHARD_LEVELS; level++) {
+            result = result.resolve(id.substring(level * SHARD_LENGTH, (level + 1) * SHARD_LENGTH));
+        }
+        return result.resolve(id);
+    }
+
     /**
      * For development purposes, if no {@value Configuration#TRANSACTION_STORE} configuration value is set
      * then a temponary folder is created.
@@ -0,0 +1,121 @@
+package com.github.onsdigital.thetrain.storage;
+
+/**
+ * The outcome of writing a range of a resumable upload into a transaction, or how much of an upload has been received.
+ */
+public class UploadProgress {
+
+    /**
+     * The state of an upload after a range is written.
+     */
+    public enum State {
+
+        /**
+         * The range was written and more of the file is still to come.
+         */
+        RECEIVED,
+
+        /**
+         * Every byte of the file has been received and it has been added to the transaction.
+         */
+        COMPLETE,
+
+        /**
+         * The range was not written as it starts after the bytes received so far.
+         */
+        GAP,
+
+        /**
+         * The range was not written as another range of the same upload was being written.
+         */
+        BUSY,
+
+        /**
+         * The range was not written as it does not fit the total size declared for the file by an earlier range.
+         */
+        TOTAL_MISMATCH
+    }
+
+    private final State state;
+    private final long received;
+    private final long total;
+    private final TransactionUpdate update;
+    private final String sha1;
+
+    private UploadProgress(State state, long received, long total, TransactionUpdate update, String sha1) {
+        this.state = state;
+        this.received = received;
+        this.total = total;
+        this.update = update;
+        this.sha1 = sha1;
+    }
+
+    static UploadProgress received(long received, long total) {
+        return new UploadProgress(State.RECEIVED, received, total, null, null);
+    }
+
+    static UploadProgress completed(long received, TransactionUpdate update, String sha1) {
+        return new UploadProgress(State.COMPLETE, received, received, update, sha1);
+    }
+
+    static UploadProgress gap(long received, long total) {
+        return new UploadProgress(State.GAP, received, total, null, null);
+    }
+
+    static UploadProgress busy(long received, long total) {
+        return new UploadProgress(State.BUSY, received, total, null, null);
+    }
+
+    static UploadProgress totalMismatch(long received, long total) {
+        return new UploadProgress(State.TOTAL_MISMATCH, received, total, null, null);
+    }
+
+    /**
+     * @return the state of the upload.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return false if the range was not written.
+     */
+    public boolean isAccepted() {
+        return state == State.RECEIVED || state == State.COMPLETE;
+    }
+
+    /**
+     * @return the number of bytes of the file received so far.
+     */
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * @return the total size of the file declared by the ranges received so far, or -1 if it is not yet known.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return true if the whole file has been received and added to the transaction.
+     */
+    public boolean isComplete() {
+        return state == State.COMPLETE;
+    }
+
+    /**
+     * @return the update adding the file to the transaction when this range completed it, otherwise null.
+     */
+    public TransactionUpdate getUpdate() {
+        return update;
+    }
+
+    /**
+     * @return the SHA-1 hash of the file once it is complete, otherwise null.
+     */
+    public String getSha1() {
+        return sha1;
+    }
+}
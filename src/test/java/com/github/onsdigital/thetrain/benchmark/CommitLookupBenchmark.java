@@ -0,0 +1,76 @@
+package com.github.onsdigital.thetrain.benchmark;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the URI lookups made while committing or rolling back a transaction, one for every file in the
+ * transaction, against the linear scan previously used by the publisher.
+ * <p>
+ * Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args=CommitLookupBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CommitLookupBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    int uris;
+
+    private Transaction transaction;
+    private List<String> files;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transaction = new Transaction();
+        files = new ArrayList<>();
+        List<UriInfo> uriInfos = new ArrayList<>();
+        for (int i = 0; i < uris; i++) {
+            String uri = "/" + i + "/data.json";
+            files.add(uri);
+            uriInfos.add(new UriInfo(uri));
+        }
+        transaction.addUris(uriInfos);
+    }
+
+    @Benchmark
+    public void indexedLookup(Blackhole blackhole) {
+        for (String uri : files) {
+            blackhole.consume(transaction.uri(uri));
+        }
+    }
+
+    @Benchmark
+    public void scanLookup(Blackhole blackhole) {
+        for (String uri : files) {
+            Optional<UriInfo> result = transaction.uris()
+                    .parallelStream()
+                    .filter(uriInfo -> StringUtils.equals(uri, uriInfo.uri()))
+                    .findFirst();
+            blackhole.consume(result);
+        }
+    }
+}
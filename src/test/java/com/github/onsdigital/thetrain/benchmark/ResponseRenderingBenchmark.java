@@ -0,0 +1,107 @@
+package com.github.onsdigital.thetrain.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.onsdigital.thetrain.json.ObjectMapperFactory;
+import com.github.onsdigital.thetrain.json.Result;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import com.github.onsdigital.thetrain.response.JsonTransformer;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Benchmark of rendering a {@link Result} for a transaction: compact Json streamed by the {@link JsonTransformer},
+ * with and without gzip, against a pretty printed String built in full for Spark to write, as previously returned. The
+ * <code>responseBytes</code> counter is the size of one response. Run with the gc profiler for the allocation per
+ * response.
+ * <p>
+ * Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="ResponseRenderingBenchmark -prof gc"</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseRenderingBenchmark {
+
+    @Param({"1000", "10000"})
+    int uris;
+
+    private Result result;
+    private ObjectWriter prettyWriter;
+    private JsonTransformer transformer;
+
+    /**
+     * The size of the last response written, reported as is rather than per operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+        public long responseBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Transaction transaction = new Transaction();
+        for (int i = 0; i < uris; i++) {
+            UriInfo uriInfo = new UriInfo("/economy/inflationandpriceindices/timeseries/" + i + "/data.json",
+                    new Date());
+            uriInfo.stop();
+            uriInfo.setAction(UriInfo.CREATE);
+            transaction.addUri(uriInfo);
+        }
+        result = new Result("Transaction committed.", false, transaction);
+        prettyWriter = ObjectMapperFactory.create().writerWithDefaultPrettyPrinter();
+        transformer = JsonTransformer.get();
+    }
+
+    @Benchmark
+    public void prettyString(ResponseSize size) throws IOException {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        out.write(prettyWriter.writeValueAsString(result).getBytes(StandardCharsets.UTF_8));
+        size.responseBytes = out.getByteCount();
+    }
+
+    @Benchmark
+    public void compactJacksonStream(ResponseSize size) throws IOException {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        write(out);
+        size.responseBytes = out.getByteCount();
+    }
+
+    @Benchmark
+    public void compactJacksonStreamGzip(ResponseSize size) throws IOException {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        write(new GZIPOutputStream(out, 8192));
+        size.responseBytes = out.getByteCount();
+    }
+
+    private void write(OutputStream out) throws IOException {
+        try (JsonGenerator generator = transformer.createGenerator(out, false)) {
+            generator.writeObject(result);
+        }
+    }
+}
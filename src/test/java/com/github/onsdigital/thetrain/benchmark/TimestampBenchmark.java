@@ -0,0 +1,65 @@
+package com.github.onsdigital.thetrain.benchmark;
+
+import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the timestamps recorded for each file added to a transaction: a start and end time stored as epoch
+ * milliseconds and formatted with the shared formatter when serialised, against formatting both with a new
+ * {@link SimpleDateFormat} when the file is started and stopped, as previously done by {@link UriInfo}.
+ * <p>
+ * Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args=TimestampBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TimestampBenchmark {
+
+    private static final String PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    @Param({"10000", "100000"})
+    int uris;
+
+    @Benchmark
+    public void epochTimestamps(Blackhole blackhole) {
+        for (int i = 0; i < uris; i++) {
+            UriInfo uriInfo = new UriInfo("/" + i + "/data.json", new Date());
+            uriInfo.stop();
+            blackhole.consume(uriInfo);
+            blackhole.consume(DateConverter.toString(System.currentTimeMillis()));
+            blackhole.consume(DateConverter.toString(System.currentTimeMillis()));
+        }
+    }
+
+    @Benchmark
+    public void simpleDateFormatPerCall(Blackhole blackhole) {
+        for (int i = 0; i < uris; i++) {
+            Date startDate = new Date();
+            String start = new SimpleDateFormat(PATTERN).format(startDate);
+            Date endDate = new Date();
+            String end = new SimpleDateFormat(PATTERN).format(endDate);
+            blackhole.consume(start);
+            blackhole.consume(end);
+            blackhole.consume(endDate.getTime() - startDate.getTime());
+        }
+    }
+}
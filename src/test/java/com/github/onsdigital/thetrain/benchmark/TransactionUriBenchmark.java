@@ -0,0 +1,69 @@
+package com.github.onsdigital.thetrain.benchmark;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of adding URIs one at a time to a transaction, as happens for a transaction built from single file
+ * uploads, against the copy on write set previously used by {@link Transaction}.
+ * <p>
+ * Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args=TransactionUriBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class TransactionUriBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int uris;
+
+    private UriInfo[] uriInfos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        uriInfos = new UriInfo[uris];
+        for (int i = 0; i < uris; i++) {
+            uriInfos[i] = new UriInfo("/" + i + "/data.json");
+        }
+    }
+
+    @Benchmark
+    public Transaction addUri() {
+        Transaction transaction = new Transaction();
+        for (UriInfo uriInfo : uriInfos) {
+            transaction.addUri(uriInfo);
+        }
+        return transaction;
+    }
+
+    @Benchmark
+    public Set<UriInfo> copyOnWriteAddUri() {
+        Set<UriInfo> set = new HashSet<>();
+        for (UriInfo uriInfo : uriInfos) {
+            Set<UriInfo> updated = new HashSet<>(set);
+            updated.add(uriInfo);
+            set = updated;
+        }
+        return set;
+    }
+}
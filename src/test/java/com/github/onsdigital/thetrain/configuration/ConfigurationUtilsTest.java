@@ -1,11 +1,16 @@
 package com.github.onsdigital.thetrain.configuration;
 
+import com.github.onsdigital.thetrain.storage.FileCopier;
 import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
+import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getEnumEnvVar;
+import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getIntegerEnvVar;
+import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getLongEnvVar;
 import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getValue;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
@@ -72,4 +77,100 @@ public class ConfigurationUtilsTest {
             throw ex;
         }
     }
+
+    @Test
+    public void getIntegerEnvVar_shouldReturnDefault_ifValueNotSet() throws Exception {
+        System.clearProperty(KEY);
+
+        assertThat(getIntegerEnvVar(KEY, 10), equalTo(10));
+    }
+
+    @Test
+    public void getIntegerEnvVar_shouldReturnValue_ifValueSet() throws Exception {
+        System.setProperty(KEY, "20");
+        try {
+            assertThat(getIntegerEnvVar(KEY, 10), equalTo(20));
+        } finally {
+            System.clearProperty(KEY);
+        }
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void getIntegerEnvVar_shouldThrowConfigurationEx_ifValueInvalid() throws Exception {
+        System.setProperty(KEY, VALUE);
+        try {
+            getIntegerEnvVar(KEY, 10);
+        } finally {
+            System.clearProperty(KEY);
+        }
+    }
+
+    @Test
+    public void getLongEnvVar_shouldReturnDefault_ifValueNotSet() throws Exception {
+        System.clearProperty(KEY);
+
+        assertThat(getLongEnvVar(KEY, 10L), equalTo(10L));
+    }
+
+    @Test
+    public void getLongEnvVar_shouldReturnValue_ifValueSet() throws Exception {
+        System.setProperty(KEY, "20");
+        try {
+            assertThat(getLongEnvVar(KEY, 10L), equalTo(20L));
+        } finally {
+            System.clearProperty(KEY);
+        }
+    }
+
+    @Test
+    public void getEnumEnvVar_shouldReturnDefault_ifValueNotSet() throws Exception {
+        System.clearProperty(KEY);
+
+        assertThat(getEnumEnvVar(KEY, TimeUnit.class, TimeUnit.SECONDS), equalTo(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void getEnumEnvVar_shouldReturnValueIgnoringCase_ifValueSet() throws Exception {
+        System.setProperty(KEY, " milliSeconds ");
+        try {
+            assertThat(getEnumEnvVar(KEY, TimeUnit.class, TimeUnit.SECONDS), equalTo(TimeUnit.MILLISECONDS));
+        } finally {
+            System.clearProperty(KEY);
+        }
+    }
+
+    @Test
+    public void getEnumEnvVar_shouldParseFileCopyMode() throws Exception {
+        try {
+            System.setProperty(KEY, "link");
+            assertThat(getEnumEnvVar(KEY, FileCopier.Mode.class, FileCopier.Mode.COPY), equalTo(FileCopier.Mode.LINK));
+            System.setProperty(KEY, " COPY ");
+            assertThat(getEnumEnvVar(KEY, FileCopier.Mode.class, FileCopier.Mode.LINK), equalTo(FileCopier.Mode.COPY));
+            System.setProperty(KEY, "");
+            assertThat(getEnumEnvVar(KEY, FileCopier.Mode.class, FileCopier.Mode.LINK), equalTo(FileCopier.Mode.LINK));
+        } finally {
+            System.clearProperty(KEY);
+        }
+        assertThat(getEnumEnvVar(KEY, FileCopier.Mode.class, FileCopier.Mode.COPY), equalTo(FileCopier.Mode.COPY));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void getEnumEnvVar_shouldThrowConfigurationEx_ifFileCopyModeInvalid() throws Exception {
+        System.setProperty(KEY, "symlink");
+        try {
+            getEnumEnvVar(KEY, FileCopier.Mode.class, FileCopier.Mode.COPY);
+        } finally {
+            System.clearProperty(KEY);
+        }
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void getEnumEnvVar_shouldThrowConfigurationEx_ifValueInvalid() throws Exception {
+        System.setProperty(KEY, VALUE);
+        try {
+            getEnumEnvVar(KEY, TimeUnit.class, TimeUnit.SECONDS);
+        } finally {
+            System.clearProperty(KEY);
+        }
+    }
 }
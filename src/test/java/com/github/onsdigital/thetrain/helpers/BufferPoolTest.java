@@ -0,0 +1,109 @@
+package com.github.onsdigital.thetrain.helpers;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for {@link BufferPool}.
+ */
+public class BufferPoolTest {
+
+    @Test
+    public void shouldReuseReleasedBuffers() throws Exception {
+
+        // Given a pool
+        BufferPool pool = new BufferPool(1024, 4096);
+
+        // When we acquire, release and acquire again
+        byte[] first = pool.acquire();
+        pool.release(first);
+        byte[] second = pool.acquire();
+
+        // Then the released buffer is reused
+        assertSame(first, second);
+        assertEquals(1024, second.length);
+    }
+
+    @Test
+    public void shouldLimitBuffersToMemoryBudget() throws Exception {
+
+        // Given a pool with a budget for 4 buffers
+        BufferPool pool = new BufferPool(1024, 4096);
+
+        // When we acquire all of them
+        for (int i = 0; i < 4; i++) {
+            pool.acquire();
+        }
+
+        // Then the whole budget is in use
+        assertEquals(4, pool.maxBuffers());
+        assertEquals(4096, pool.inUseBytes());
+    }
+
+    @Test
+    public void shouldAllowOneBufferIfBudgetSmallerThanBufferSize() throws Exception {
+        BufferPool pool = new BufferPool(1024, 10);
+
+        assertEquals(1, pool.maxBuffers());
+    }
+
+    @Test
+    public void shouldBlockUntilBufferReleased() throws Exception {
+
+        // Given a pool with a budget for a single buffer that is in use
+        BufferPool pool = new BufferPool(1024, 1024);
+        byte[] buffer = pool.acquire();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch started = new CountDownLatch(1);
+
+        try {
+            // When another caller acquires a buffer
+            Future<byte[]> waiting = executor.submit(() -> {
+                started.countDown();
+                return pool.acquire();
+            });
+            started.await();
+
+            // Then it blocks until the buffer in use is released
+            try {
+                waiting.get(200, TimeUnit.MILLISECONDS);
+                fail("expected acquire to block while the memory budget is used up");
+            } catch (TimeoutException e) {
+                assertFalse(waiting.isDone());
+            }
+
+            pool.release(buffer);
+            assertSame(buffer, waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectForeignBuffers() throws Exception {
+        BufferPool pool = new BufferPool(1024, 4096);
+
+        pool.release(new byte[10]);
+    }
+
+    @Test
+    public void shouldReportNoBytesInUseWhenAllReleased() throws Exception {
+        BufferPool pool = new BufferPool(1024, 4096);
+
+        pool.release(pool.acquire());
+
+        assertEquals(0, pool.inUseBytes());
+        assertEquals(1024, pool.bufferSize());
+    }
+}
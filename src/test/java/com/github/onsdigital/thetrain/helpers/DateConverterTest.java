@@ -3,6 +3,9 @@ package com.github.onsdigital.thetrain.helpers;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
 /**
  * Test for {@link DateConverter}.
  */
@@ -40,6 +43,42 @@ public class DateConverterTest {
         Assert.assertEquals(DateConverter.toDate(date), DateConverter.toDate(reconverted));
     }
 
+    @Test
+    public void shouldFormatAsSimpleDateFormat() throws Exception {
+
+        // Given
+        // Times in winter, in summer and on either side of the epoch
+        long[] times = {1482171213080L, 1434473346264L, 0L, -1L, System.currentTimeMillis()};
+
+        for (long time : times) {
+
+            // When
+            // We format the time
+            String formatted = DateConverter.toString(time);
+
+            // Then
+            // The format should be the same as previously produced by SimpleDateFormat
+            Assert.assertEquals(new SimpleDateFormat(DateConverter.pattern).format(new Date(time)), formatted);
+            Assert.assertEquals(new Date(time), DateConverter.toDate(formatted));
+        }
+    }
+
+    @Test
+    public void shouldNotParseInvalidDate() throws Exception {
+
+        // Given
+        // A String that is not a date
+        String date = "not a date";
+
+        // When
+        // We convert to a date
+        Date result = DateConverter.toDate(date);
+
+        // Then
+        // There should be no result
+        Assert.assertNull(result);
+    }
+
     public static void main(String[] args) {
     }
 }
\ No newline at end of file
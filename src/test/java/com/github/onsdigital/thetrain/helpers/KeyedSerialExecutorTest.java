@@ -0,0 +1,97 @@
+package com.github.onsdigital.thetrain.helpers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link KeyedSerialExecutor}.
+ */
+public class KeyedSerialExecutorTest {
+
+    private KeyedSerialExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new KeyedSerialExecutor("test", 4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldRunTasksForAKeyInOrder() throws Exception {
+
+        // Given tasks submitted for a single key
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        // When they run
+        for (int i = 0; i < 100; i++) {
+            final int n = i;
+            futures.add(executor.submit("key", () -> {
+                boolean alone = running.incrementAndGet() == 1;
+                order.add(n);
+                running.decrementAndGet();
+                return alone;
+            }));
+        }
+
+        // Then they run one at a time in the order submitted
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, order.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void shouldUseFixedNumberOfThreads() throws Exception {
+
+        // Given tasks for many keys
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When they run
+        for (int i = 0; i < 1000; i++) {
+            futures.add(executor.submit("key-" + i, () -> threads.add(Thread.currentThread().getName())));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        // Then they share the configured number of threads
+        assertEquals(4, executor.threads());
+        assertTrue(threads.size() <= 4);
+    }
+
+    @Test
+    public void shouldScheduleTasks() throws Exception {
+        long start = System.nanoTime();
+
+        Future<Long> future = executor.schedule("key", System::nanoTime, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(future.get() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectZeroThreads() {
+        new KeyedSerialExecutor("test", 0);
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.onsdigital.thetrain.helpers;
+
+import com.github.davidcarboni.cryptolite.Random;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SizeLimitInputStream}.
+ */
+public class SizeLimitInputStreamTest {
+
+    @Test
+    public void shouldReadInputUpToLimit() throws IOException {
+
+        // Given
+        // Data exactly the size of the limit
+        byte[] bytes = Random.bytes(500);
+
+        // When
+        // We read the data through the stream
+        byte[] actual;
+        SizeLimitInputStream input = new SizeLimitInputStream(new ByteArrayInputStream(bytes), bytes.length);
+        try (SizeLimitInputStream in = input) {
+            actual = IOUtils.toByteArray(in);
+        }
+
+        // Then
+        // All of the data is read
+        assertArrayEquals(bytes, actual);
+        assertEquals(bytes.length, input.size());
+        assertFalse(input.isLimitExceeded());
+    }
+
+    @Test
+    public void shouldFailOnceLimitIsExceeded() throws IOException {
+
+        // Given
+        // Data one byte larger than the limit
+        byte[] bytes = Random.bytes(501);
+
+        // When
+        // We read the data through the stream
+        try (SizeLimitInputStream input = new SizeLimitInputStream(new ByteArrayInputStream(bytes), 500)) {
+            try {
+                IOUtils.toByteArray(input);
+                fail("expected IOException");
+            } catch (IOException e) {
+
+                // Then
+                // The read fails and the stream records why
+                assertTrue(input.isLimitExceeded());
+            }
+        }
+    }
+
+    @Test
+    public void shouldFailOnceLimitIsExceededReadingBytes() throws IOException {
+
+        // Given
+        // Data one byte larger than the limit
+        byte[] bytes = Random.bytes(11);
+
+        // When
+        // We read the data a byte at a time
+        try (SizeLimitInputStream input = new SizeLimitInputStream(new ByteArrayInputStream(bytes), 10)) {
+            for (int i = 0; i < 10; i++) {
+                input.read();
+            }
+            try {
+                input.read();
+                fail("expected IOException");
+            } catch (IOException e) {
+
+                // Then
+                // The byte over the limit fails
+                assertTrue(input.isLimitExceeded());
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotLimitInputWithoutLimit() throws IOException {
+
+        // Given
+        // Data and no limit
+        byte[] bytes = Random.bytes(5000);
+
+        // When
+        // We read the data through the stream
+        byte[] actual;
+        try (SizeLimitInputStream input = new SizeLimitInputStream(new ByteArrayInputStream(bytes), -1)) {
+            actual = IOUtils.toByteArray(input);
+        }
+
+        // Then
+        // All of the data is read
+        assertArrayEquals(bytes, actual);
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.onsdigital.thetrain.helpers.uploads;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ContentRangeTest {
+
+    @Test
+    public void shouldParseRange() {
+        // Given a range of a file of known size
+        String header = "bytes 100-199/1000";
+
+        // When it is parsed
+        ContentRange range = ContentRange.parse(header);
+
+        // Then the offsets and size are read
+        assertThat(range.start(), equalTo(100L));
+        assertThat(range.end(), equalTo(199L));
+        assertThat(range.length(), equalTo(100L));
+        assertThat(range.total(), equalTo(1000L));
+        assertFalse(range.isComplete(200));
+        assertTrue(range.isComplete(1000));
+    }
+
+    @Test
+    public void shouldParseRangeOfUnknownSize() {
+        // Given a range of a file of unknown size
+        String header = "bytes 0-99/*";
+
+        // When it is parsed
+        ContentRange range = ContentRange.parse(header);
+
+        // Then the upload is never complete
+        assertThat(range.total(), equalTo(-1L));
+        assertFalse(range.isComplete(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectRangeEndingBeforeItStarts() {
+        ContentRange.parse("bytes 100-99/1000");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectRangeEndingAfterTotal() {
+        ContentRange.parse("bytes 0-1000/1000");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnsupportedUnit() {
+        ContentRange.parse("items 0-9/10");
+    }
+}
@@ -16,6 +16,9 @@ import javax.servlet.http.Part;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static com.github.onsdigital.thetrain.helpers.uploads.FilePartSupplier.MULTIPART_CONFIG;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -27,6 +30,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNotNull;
 import static org.mockito.Matchers.notNull;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -155,4 +159,36 @@ public class FilePartSupplierTest {
         assertThat(cfg.getMaxFileSize(), equalTo(fileSizeLimit));
         assertThat(cfg.getMaxRequestSize(), equalTo(requestSizeLimit));
     }
-}
\ No newline at end of file
+
+    @Test (expected = BadRequestException.class)
+    public void givenGetPartsReturnsEmpty_shouldThrowBadRequestException() throws Exception {
+        when(request.raw())
+                .thenReturn(raw);
+        when(raw.getParts())
+                .thenReturn(Collections.emptyList());
+
+        try {
+            supplier.getFileParts(request, transaction);
+        } catch (BadRequestException ex) {
+            assertThat(ex.getMessage(), equalTo("expected multipart file upload request body but was empty"));
+            assertThat(ex.getTransactionID(), equalTo(TRANS_ID));
+            throw ex;
+        }
+    }
+
+    @Test
+    public void givenGetFilePartsIsSuccessful_shouldReturnCloseableParts() throws Exception {
+        Part other = mock(Part.class);
+        when(request.raw())
+                .thenReturn(raw);
+        when(raw.getParts())
+                .thenReturn(Arrays.asList(part, other));
+
+        List<CloseablePart> actual = supplier.getFileParts(request, transaction);
+
+        assertThat(actual.size(), equalTo(2));
+        assertThat(actual.get(0).getPart(), equalTo(part));
+        assertThat(actual.get(1).getPart(), equalTo(other));
+        verify(request, times(1)).attribute(eq(MULTIPART_CONFIG), any(MultipartConfigElement.class));
+    }
+}
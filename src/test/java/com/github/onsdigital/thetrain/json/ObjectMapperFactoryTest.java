@@ -0,0 +1,44 @@
+package com.github.onsdigital.thetrain.json;
+
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.github.onsdigital.thetrain.json.request.Manifest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test for {@link ObjectMapperFactory}.
+ */
+public class ObjectMapperFactoryTest {
+
+    private static final String MANIFEST = "{\"filesToCopy\":[],\"urisToDelete\":[\"/a\"],\"unknown\":true}";
+
+    @Test(expected = UnrecognizedPropertyException.class)
+    public void shouldFailOnUnknownPropertiesReadingModel() throws Exception {
+
+        // Given
+        // Json with a property the model does not have
+
+        // When
+        // We read it with the mapper used for the transaction store
+        ObjectMapperFactory.create().readValue(MANIFEST, Manifest.class);
+
+        // Then
+        // It fails rather than dropping the property
+    }
+
+    @Test
+    public void shouldIgnoreUnknownPropertiesReadingRequests() throws Exception {
+
+        // Given
+        // A request body with a property the model does not have
+
+        // When
+        // We read it with the mapper used for requests
+        Manifest manifest = ObjectMapperFactory.createForRequests().readValue(MANIFEST, Manifest.class);
+
+        // Then
+        // The known properties are read
+        assertEquals(1, manifest.getUrisToDelete().size());
+    }
+}
@@ -1,11 +1,13 @@
 package com.github.onsdigital.thetrain.json;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.davidcarboni.cryptolite.Random;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -14,6 +16,8 @@ import java.util.concurrent.Executors;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -213,4 +217,126 @@ public class TransactionTest {
         assertTrue(StringUtils.isNotBlank(ok.endDate()));
         assertTrue(StringUtils.isNotBlank(error.endDate()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldDrainChanges() {
+
+        // Given
+        // A transaction with changes
+        Transaction transaction = new Transaction();
+        UriInfo uriInfo = new UriInfo("/uri");
+        UriInfo delete = new UriInfo("/delete");
+        transaction.addUri(uriInfo);
+        transaction.addUriDelete(delete);
+        transaction.addError("error");
+
+        // When
+        // We drain the changes
+        TransactionDelta delta = transaction.drainChanges();
+
+        // Then
+        // The delta holds the changes and there are none left to drain
+        assertEquals(Transaction.PUBLISHING, delta.status());
+        assertTrue(delta.uris().contains(uriInfo));
+        assertTrue(delta.urisToDelete().contains(delete));
+        assertTrue(delta.errors().contains("error"));
+        assertNull(transaction.drainChanges());
+    }
+
+    @Test
+    public void shouldApplyChangesIdempotently() {
+
+        // Given
+        // A delta drained from a transaction
+        Transaction source = new Transaction();
+        source.addUri(new UriInfo("/uri"));
+        source.addError("error");
+        TransactionDelta delta = source.drainChanges();
+
+        // When
+        // We apply it to another transaction twice
+        Transaction transaction = new Transaction();
+        transaction.apply(delta);
+        transaction.apply(delta);
+
+        // Then
+        // The changes are only applied once and are not recorded as new changes
+        assertEquals(Transaction.PUBLISHING, transaction.getStatus());
+        assertEquals(1, transaction.uris().size());
+        assertEquals(1, transaction.errors().size());
+        assertNull(transaction.drainChanges());
+    }
+
+    @Test
+    public void shouldLookUpUri() throws Exception {
+
+        // Given
+        // A transaction with URIs
+        Transaction transaction = new Transaction();
+        UriInfo uriInfo = new UriInfo("/a/data.json");
+        transaction.addUri(new UriInfo("/b/data.json"));
+        transaction.addUri(uriInfo);
+
+        // When
+        // We look up URIs
+        UriInfo found = transaction.uri("/a/data.json");
+        UriInfo missing = transaction.uri("/c/data.json");
+
+        // Then
+        // The UriInfo added for the URI is returned, or null if there is none
+        assertTrue(found == uriInfo);
+        assertNull(missing);
+    }
+
+    @Test
+    public void shouldTrackErrors() throws Exception {
+
+        // Given
+        // A transaction with URIs that have not failed
+        Transaction transaction = new Transaction();
+        UriInfo uriInfo = new UriInfo("/a/data.json", new Date());
+        transaction.addUri(uriInfo);
+        transaction.addUri(new UriInfo("/b/data.json", new Date()));
+        assertFalse(transaction.hasErrors());
+
+        // When
+        // A URI fails after being added
+        uriInfo.fail("error");
+
+        // Then
+        // The transaction has errors
+        assertTrue(transaction.hasErrors());
+
+        // And a URI that has failed already is counted when added
+        Transaction other = new Transaction();
+        other.addUri(new UriInfo("/unknown.json"));
+        assertTrue(other.hasErrors());
+
+        // And an error added to the transaction is counted
+        Transaction another = new Transaction();
+        another.addError("error");
+        assertTrue(another.hasErrors());
+    }
+
+    @Test
+    public void shouldTrackErrorsOfDeserialisedTransaction() throws Exception {
+
+        // Given
+        // A serialised transaction with a failed URI
+        Transaction transaction = new Transaction();
+        UriInfo uriInfo = new UriInfo("/a/data.json", new Date());
+        transaction.addUri(uriInfo);
+        transaction.addUri(new UriInfo("/b/data.json", new Date()));
+        uriInfo.fail("error");
+        ObjectMapper objectMapper = ObjectMapperFactory.create();
+        String json = objectMapper.writeValueAsString(transaction);
+
+        // When
+        // We deserialise it
+        Transaction read = objectMapper.readValue(json, Transaction.class);
+
+        // Then
+        // The transaction has errors
+        assertTrue(read.hasErrors());
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.onsdigital.thetrain.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the heap footprint of {@link UriInfo} with JOL.
+ */
+public class UriInfoFootprintTest {
+
+    private static final int ENTRIES = 10000;
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.create();
+
+    @Test
+    public void shouldOnlyHoldTheInstanceAndUri() throws IOException {
+
+        // Given
+        // A committed file read back from the transaction store, whose Strings are all separate copies
+        UriInfo uriInfo = objectMapper.readValue(json(0), UriInfo.class);
+
+        // When
+        // We measure everything reachable from it
+        GraphLayout layout = GraphLayout.parseInstance(uriInfo);
+
+        // Then
+        // It is the instance itself and the URI bytes, no Strings are retained
+        long instanceSize = ClassLayout.parseClass(UriInfo.class).instanceSize();
+        assertEquals(instanceSize + VM.current().sizeOf(uriInfo.uri), layout.totalSize());
+        assertFalse(layout.getClasses().contains(String.class));
+        assertFalse(layout.getClasses().contains(char[].class));
+    }
+
+    @Test
+    public void shouldIndexWithoutSeparateKeys() throws Exception {
+
+        // Given
+        // A large set of files read back from the transaction store
+        UriInfoIndex index = new UriInfoIndex();
+        for (int i = 0; i < ENTRIES; i++) {
+            index.add(objectMapper.readValue(json(i), UriInfo.class));
+        }
+
+        // When
+        // We measure the index
+        GraphLayout layout = GraphLayout.parseInstance(index);
+        long perEntry = layout.totalSize() / ENTRIES;
+
+        // Then
+        // Each entry costs its UriInfo, URI bytes, the map node and table slot and its slot in the order added, with
+        // no key String
+        long uriInfo = GraphLayout.parseInstance(objectMapper.readValue(json(ENTRIES - 1), UriInfo.class)).totalSize();
+        long node = ClassLayout.parseClass(Class.forName("java.util.concurrent.ConcurrentHashMap$Node"))
+                .instanceSize();
+        assertTrue(perEntry <= uriInfo + node + 3 * VM.current().addressSize());
+        assertFalse(layout.getClasses().contains(String.class));
+    }
+
+    @Test
+    public void shouldLookUpWithoutCopyingUri() throws Exception {
+
+        // Given
+        // An index of files read back from the transaction store
+        UriInfoIndex index = new UriInfoIndex();
+        String[] uris = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            index.add(objectMapper.readValue(json(i), UriInfo.class));
+            uris[i] = uri(i);
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // When
+        // We look up every URI
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (String uri : uris) {
+            assertTrue(index.get(uri).hasUri(uri));
+        }
+        long perLookup = (threads.getThreadAllocatedBytes(threadId) - before) / ENTRIES;
+
+        // Then
+        // At most a small probe object is allocated, not a UriInfo and a copy of the URI bytes
+        long uriBytes = VM.current().sizeOf(uris[0].getBytes(StandardCharsets.UTF_8));
+        assertTrue("allocated " + perLookup + " bytes per lookup", perLookup < uriBytes);
+    }
+
+    private static String uri(int i) {
+        return "/economy/inflationandpriceindices/timeseries/" + Integer.toString(i, 36) + "/mm23/data.json";
+    }
+
+    private static String json(int i) {
+        String timestamp = DateConverter.toString(1482171213080L + i);
+        return "{\"status\":\"committed\",\"action\":\"created\",\"uri\":\"" + uri(i) + "\",\"start\":\""
+                + timestamp + "\",\"end\":\"" + timestamp + "\",\"duration\":0}";
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.onsdigital.thetrain.json;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link UriInfoIndex}.
+ */
+public class UriInfoIndexTest {
+
+    @Test
+    public void shouldKeepFirstUriInfoForUri() {
+
+        // Given
+        // An index containing a URI
+        UriInfoIndex index = new UriInfoIndex();
+        UriInfo first = new UriInfo("/uri.json");
+        index.add(first);
+
+        // When
+        // We add another UriInfo for the same URI
+        boolean added = index.add(new UriInfo("/uri.json"));
+
+        // Then
+        // The original is kept, as with a HashSet
+        assertFalse(added);
+        assertEquals(1, index.size());
+        assertTrue(index.iterator().next() == first);
+        assertTrue(index.contains(new UriInfo("/uri.json")));
+    }
+
+    @Test
+    public void shouldGetUriInfoByUri() {
+        // Given an index of URIs including multi-byte characters and an unpaired surrogate
+        String[] uris = {"/a/data.json", "/a/\u00e9t\u00e9/data.json", "/a/\u4e2d\u6587/data.json",
+                "/a/\ud83d\ude00/data.json", "/a/\ud83d/data.json", ""};
+        UriInfoIndex index = new UriInfoIndex();
+        for (String uri : uris) {
+            index.add(new UriInfo(uri));
+        }
+
+        // When each URI is looked up
+        // Then its UriInfo is found and similar URIs are not
+        for (String uri : uris) {
+            byte[] utf8 = uri.getBytes(StandardCharsets.UTF_8);
+            assertEquals(Arrays.hashCode(utf8), UriInfo.hash(uri));
+            assertEquals(new String(utf8, StandardCharsets.UTF_8), index.get(uri).uri());
+            assertTrue(index.get(uri).hasUri(uri));
+            assertNull(index.get(uri + "x"));
+        }
+        assertNull(index.get("/a/data.jso"));
+        assertNull(index.get("/a/\u00e9t\u00e8/data.json"));
+    }
+
+    @Test
+    public void shouldIterateWhileAdding() {
+
+        // Given
+        // An index
+        UriInfoIndex index = new UriInfoIndex();
+        for (int i = 0; i < 100; i++) {
+            index.add(new UriInfo("/" + i + ".json"));
+        }
+
+        // When
+        // We add to it while iterating
+        int count = 0;
+        for (Iterator<UriInfo> iterator = index.iterator(); iterator.hasNext(); iterator.next()) {
+            if (count < 100) {
+                index.add(new UriInfo("/more-" + count + ".json"));
+            }
+            count++;
+        }
+
+        // Then
+        // No ConcurrentModificationException is thrown, every URI is added and those added are iterated too
+        assertEquals(200, count);
+        assertEquals(200, index.size());
+    }
+
+    @Test
+    public void shouldIterateInOrderAdded() {
+
+        // Given
+        // An index with URIs added, one removed and added again
+        UriInfoIndex index = new UriInfoIndex();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            index.add(new UriInfo("/" + i + ".json"));
+            expected.add("/" + i + ".json");
+        }
+        index.remove(new UriInfo("/50.json"));
+        index.add(new UriInfo("/50.json"));
+        expected.remove("/50.json");
+        expected.add("/50.json");
+
+        // When
+        // We iterate it
+        List<String> actual = new ArrayList<>();
+        for (UriInfo uriInfo : index) {
+            actual.add(uriInfo.uri());
+        }
+
+        // Then
+        // The URIs are in the order they were added
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldSerialiseTransactionUrisAsArray() throws Exception {
+
+        // Given
+        // A transaction with URIs
+        Transaction transaction = new Transaction();
+        List<UriInfo> uris = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            uris.add(new UriInfo("/" + i + ".json"));
+        }
+        transaction.addUris(uris);
+        transaction.addUriDelete(new UriInfo("/deleted.json"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+
+        // When
+        // We serialise it with Jackson
+        String jackson = objectMapper.writeValueAsString(transaction);
+
+        // Then
+        // The URIs are arrays that read back into the index
+        assertTrue(objectMapper.readTree(jackson).get("uriInfos").isArray());
+        Transaction fromJackson = objectMapper.readValue(jackson, Transaction.class);
+        assertEquals(transaction.uris(), fromJackson.uris());
+        assertEquals(1, fromJackson.urisToDelete().size());
+    }
+}
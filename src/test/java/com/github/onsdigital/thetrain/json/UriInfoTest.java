@@ -1,10 +1,18 @@
 package com.github.onsdigital.thetrain.json;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.onsdigital.thetrain.helpers.DateConverter;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Test for {@link UriInfo}.
@@ -18,14 +26,14 @@ public class UriInfoTest {
         String uri = "/uri";
 
         // When
-        UriInfo uriInfo = new UriInfo(uri, new Date());
+        Date startDate = new Date();
+        UriInfo uriInfo = new UriInfo(uri, startDate);
 
         // Then
-        Assert.assertNotNull(uriInfo.startDate);
-        Assert.assertEquals(uriInfo.startDate, DateConverter.toDate(uriInfo.start));
-        Assert.assertNull(uriInfo.endDate);
+        Assert.assertEquals(startDate.getTime(), uriInfo.start);
+        Assert.assertEquals(0, uriInfo.end);
         Assert.assertEquals(uriInfo.duration, 0);
-        Assert.assertEquals(UriInfo.STARTED, uriInfo.status);
+        Assert.assertEquals(UriInfo.STARTED, uriInfo.status());
     }
 
     @Test
@@ -39,10 +47,107 @@ public class UriInfoTest {
         uriInfo.stop();
 
         // Then
-        Assert.assertNotNull(uriInfo.endDate);
-        Assert.assertEquals(uriInfo.endDate, DateConverter.toDate(uriInfo.end));
+        Assert.assertTrue(uriInfo.end >= uriInfo.start);
         Assert.assertTrue(uriInfo.duration > 0);
-        Assert.assertEquals(UriInfo.UPLOADED, uriInfo.status);
+        Assert.assertEquals(UriInfo.UPLOADED, uriInfo.status());
+    }
+
+    @Test
+    public void shouldSerialiseTimestampsAsFormattedDates() throws IOException {
+
+        // Given
+        // A started and a stopped file
+        Date startDate = new Date();
+        UriInfo started = new UriInfo("/started", startDate);
+        UriInfo stopped = new UriInfo("/stopped", startDate);
+        stopped.stop();
+
+        // When
+        // We serialise them with Jackson
+        ObjectMapper objectMapper = new ObjectMapper().setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+        JsonNode jacksonStarted = objectMapper.valueToTree(started);
+        JsonNode jacksonStopped = objectMapper.valueToTree(stopped);
+
+        // Then
+        // Timestamps are written in the same format as before and unset timestamps are left out
+        String start = DateConverter.toString(startDate);
+        Assert.assertEquals(start, jacksonStarted.get("start").asText());
+        Assert.assertFalse(jacksonStarted.has("end"));
+        Assert.assertEquals(DateConverter.toString(stopped.end), jacksonStopped.get("end").asText());
+    }
+
+    @Test
+    public void shouldDeserialiseFormattedTimestamps() throws IOException {
+
+        // Given
+        // Json written with formatted timestamps
+        String json = "{\"uri\":\"/uri\",\"start\":\"2016-12-19T18:13:33.080+0000\",\"end\":null,\"duration\":0}";
+        long start = DateConverter.toDate("2016-12-19T18:13:33.080+0000").getTime();
+
+        // When
+        // We deserialise it with Jackson
+        UriInfo jackson = new ObjectMapper().setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .readValue(json, UriInfo.class);
+
+        // Then
+        // The timestamps are read back as epoch milliseconds
+        Assert.assertEquals(start, jackson.start);
+        Assert.assertEquals(0, jackson.end);
+    }
+
+    @Test
+    public void shouldKeepJsonFormat() throws IOException {
+
+        // Given
+        // Json as written when every field was a String, including a status that is not one of the constants
+        String json = "{\"status\":\"commit failed\",\"action\":\"created\",\"uri\":\"/a/b/\u00e9/data.json\","
+                + "\"start\":\"" + DateConverter.toString(1482171213080L) + "\","
+                + "\"end\":\"" + DateConverter.toString(1482171213095L) + "\",\"duration\":15,\"error\":\"boom\"}";
+        String unknownStatus = "{\"status\":\"not a status\",\"uri\":\"/c/data.json\",\"duration\":0}";
+        ObjectMapper objectMapper = ObjectMapperFactory.create();
+
+        // When
+        // We read it and write it back with Jackson
+        UriInfo jackson = objectMapper.readValue(json, UriInfo.class);
+        UriInfo unknown = objectMapper.readValue(unknownStatus, UriInfo.class);
+
+        // Then
+        // The Json is unchanged
+        Assert.assertEquals(json, objectMapper.writeValueAsString(jackson));
+        Assert.assertEquals(unknownStatus, objectMapper.writeValueAsString(unknown));
+        Assert.assertEquals("/a/b/\u00e9/data.json", jackson.uri());
+        Assert.assertEquals(UriInfo.COMMIT_FAILED, jackson.status());
+        Assert.assertEquals(UriInfo.CREATE, jackson.action());
+        Assert.assertEquals("not a status", unknown.status());
+    }
+
+    @Test
+    public void shouldKeepAnyNumberOfUnknownValues() throws IOException {
+
+        // Given
+        // More distinct unknown statuses and actions than there are byte codes
+        ObjectMapper objectMapper = ObjectMapperFactory.create();
+        List<String> json = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            json.add("{\"status\":\"status " + i + "\",\"action\":\"action " + i + "\",\"uri\":\"/" + i
+                    + "/data.json\",\"duration\":0}");
+        }
+
+        // When
+        // We read them all
+        List<UriInfo> uriInfos = new ArrayList<>();
+        for (String value : json) {
+            uriInfos.add(objectMapper.readValue(value, UriInfo.class));
+        }
+
+        // Then
+        // Every value is kept by its own instance and written back unchanged
+        for (int i = 0; i < json.size(); i++) {
+            Assert.assertEquals("status " + i, uriInfos.get(i).status());
+            Assert.assertEquals("action " + i, uriInfos.get(i).action());
+            Assert.assertEquals(json.get(i), objectMapper.writeValueAsString(uriInfos.get(i)));
+        }
     }
 
     @Test
@@ -55,7 +160,7 @@ public class UriInfoTest {
         uriInfo.commit();
 
         // Then
-        Assert.assertEquals(UriInfo.COMMITTED, uriInfo.status);
+        Assert.assertEquals(UriInfo.COMMITTED, uriInfo.status());
     }
 
     @Test
@@ -68,7 +173,7 @@ public class UriInfoTest {
         uriInfo.setAction(UriInfo.UPDATE);
 
         // Then
-        Assert.assertEquals(UriInfo.UPDATE, uriInfo.action);
+        Assert.assertEquals(UriInfo.UPDATE, uriInfo.action());
     }
 
     @Test
@@ -82,8 +187,8 @@ public class UriInfoTest {
         uriInfo.fail(error);
 
         // Then
-        Assert.assertEquals(UriInfo.COMMIT_FAILED, uriInfo.status);
-        Assert.assertEquals(error, uriInfo.error);
+        Assert.assertEquals(UriInfo.COMMIT_FAILED, uriInfo.status());
+        Assert.assertEquals(error, uriInfo.error());
     }
 
     @Test
@@ -0,0 +1,137 @@
+package com.github.onsdigital.thetrain.response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.thetrain.json.ObjectMapperFactory;
+import com.github.onsdigital.thetrain.json.Result;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test for {@link JsonTransformer}.
+ */
+public class JsonTransformerTest {
+
+    @Mock
+    private Request request;
+
+    @Mock
+    private HttpServletRequest raw;
+
+    @Mock
+    private Response response;
+
+    @Mock
+    private HttpServletResponse rawResponse;
+
+    private TestServletOutputStream body;
+    private Transaction transaction;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        body = new TestServletOutputStream();
+        when(request.raw()).thenReturn(raw);
+        when(response.raw()).thenReturn(rawResponse);
+        when(rawResponse.getOutputStream()).thenReturn(body);
+
+        transaction = new Transaction();
+        UriInfo uriInfo = new UriInfo("/a/data.json", new Date());
+        uriInfo.stop();
+        transaction.addUri(uriInfo);
+    }
+
+    @Test
+    public void shouldWriteCompactJson() throws Exception {
+
+        // Given
+        // A client that does not accept gzip
+        Result result = new Result("message", false, transaction);
+
+        // When
+        // We write a response
+        JsonTransformer.get().write(result, request, response);
+
+        // Then
+        // The response is compact and readable as a result
+        String json = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse(json.contains("\n"));
+        ObjectMapper objectMapper = ObjectMapperFactory.create();
+        JsonNode read = objectMapper.readTree(json);
+        assertThat(read.get("message").asText(), equalTo("message"));
+        Transaction readTransaction = objectMapper.treeToValue(read.get("transaction"), Transaction.class);
+        assertThat(readTransaction.id(), equalTo(transaction.id()));
+        assertThat(readTransaction.uris(), equalTo(transaction.uris()));
+        verify(response).type(JsonTransformer.CONTENT_TYPE);
+        verify(response, never()).header(JsonTransformer.CONTENT_ENCODING, JsonTransformer.GZIP);
+    }
+
+    @Test
+    public void shouldWritePrettyJsonWhenRequested() throws Exception {
+
+        // Given
+        // A request for pretty printed Json
+        when(raw.getParameter(JsonTransformer.PRETTY_KEY)).thenReturn("true");
+
+        // When
+        // We write a response
+        JsonTransformer.get().write(new Result("message", false, transaction), request, response);
+
+        // Then
+        // The response is pretty printed
+        assertTrue(new String(body.toByteArray(), StandardCharsets.UTF_8).contains("\n"));
+    }
+
+    @Test
+    public void shouldGzipWhenAccepted() throws Exception {
+
+        // Given
+        // A client that accepts gzip
+        when(request.headers(JsonTransformer.ACCEPT_ENCODING)).thenReturn("deflate, gzip;q=1.0, *;q=0.5");
+
+        // When
+        // We write a response
+        JsonTransformer.get().write(new Result("message", false, null), request, response);
+
+        // Then
+        // The response is gzipped and null fields are left out
+        verify(response).header(JsonTransformer.CONTENT_ENCODING, JsonTransformer.GZIP);
+        String json = IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())),
+                StandardCharsets.UTF_8);
+        assertThat(json, equalTo("{\"message\":\"message\",\"error\":false}"));
+    }
+
+    @Test
+    public void shouldNegotiateGzip() {
+        assertTrue(JsonTransformer.acceptsGzip("gzip"));
+        assertTrue(JsonTransformer.acceptsGzip("deflate, GZIP"));
+        assertTrue(JsonTransformer.acceptsGzip("gzip;q=0.5"));
+        assertFalse(JsonTransformer.acceptsGzip(null));
+        assertFalse(JsonTransformer.acceptsGzip("identity"));
+        assertFalse(JsonTransformer.acceptsGzip("gzip;q=0"));
+        assertFalse(JsonTransformer.acceptsGzip("gzip; q=0.0"));
+    }
+}
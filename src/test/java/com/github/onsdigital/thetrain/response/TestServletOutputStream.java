@@ -0,0 +1,33 @@
+package com.github.onsdigital.thetrain.response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Servlet output stream capturing a response body for tests.
+ */
+public class TestServletOutputStream extends ServletOutputStream {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        // not used
+    }
+
+    public byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
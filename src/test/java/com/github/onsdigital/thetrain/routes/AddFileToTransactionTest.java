@@ -4,12 +4,15 @@ import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.helpers.uploads.CloseablePart;
 import com.github.onsdigital.thetrain.json.Result;
+import com.github.onsdigital.thetrain.json.SummaryResult;
 import com.github.onsdigital.thetrain.storage.TransactionUpdate;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.HttpStatus;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import spark.Route;
 
@@ -21,11 +24,16 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import static com.github.onsdigital.thetrain.routes.AddFileToTransaction.ADD_FILE_ERR_MSG;
+import static com.github.onsdigital.thetrain.routes.AddFileToTransaction.DUPLICATE_PART_ERR;
 import static com.github.onsdigital.thetrain.routes.BaseHandler.URI_MISSING_ERR;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
@@ -34,6 +42,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -55,7 +66,7 @@ public class AddFileToTransactionTest extends BaseRouteTest {
         when(transaction.id())
                 .thenReturn(TRANSACTION_ID);
 
-        route = new AddFileToTransaction(transactionsService, publisherService, filePartSupplier);
+        route = new AddFileToTransaction(transactionsService, publisherService, filePartSupplier, false);
     }
 
     @Test(expected = BadRequestException.class)
@@ -212,10 +223,13 @@ public class AddFileToTransactionTest extends BaseRouteTest {
         when(publisherService.addContentToTransaction(eq(transaction), eq(testURI), any(InputStream.class), any(Date.class)))
                 .thenReturn(update);
 
-        Result actual = (Result) route.handle(request, response);
+        when(transaction.id()).thenReturn(TRANSACTION_ID);
+
+        SummaryResult actual = (SummaryResult) route.handle(request, response);
 
         assertThat(actual.message, equalTo("Published to " + testURI));
-        assertThat(actual.transaction, equalTo(transaction));
+        assertThat(actual.uri, equalTo(testURI));
+        assertThat(actual.transaction.id, equalTo(TRANSACTION_ID));
         assertFalse(actual.error);
 
         verify(transactionsService, times(1)).getTransaction(request);
@@ -227,6 +241,120 @@ public class AddFileToTransactionTest extends BaseRouteTest {
         verify(transactionsService, times(1)).tryUpdateAsync(transaction);
     }
 
+    @Test
+    public void testAddContentToTransactionFullResult() throws Exception {
+        InputStream stream = new ByteArrayInputStream("SOME DATE".getBytes());
+        TransactionUpdate update = new TransactionUpdate();
+        update.setSuccess(true);
+
+        when(request.raw()).thenReturn(raw);
+
+        when(raw.getParameter("uri")).thenReturn(testURI);
+
+        when(raw.getParameter("full")).thenReturn("true");
+
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+
+        when(filePartSupplier.getFilePart(request, transaction)).thenReturn(closeablePart);
+
+        when(closeablePart.getInputStream()).thenReturn(stream);
+
+        when(publisherService.addContentToTransaction(eq(transaction), eq(testURI), any(InputStream.class), any(Date.class)))
+                .thenReturn(update);
+
+        Result actual = (Result) route.handle(request, response);
+
+        assertThat(actual.message, equalTo("Published to " + testURI));
+        assertThat(actual.transaction, equalTo(transaction));
+        assertFalse(actual.error);
+    }
+
+    @Test
+    public void testAddBatchToTransactionSuccessful() throws Exception {
+        CloseablePart other = mock(CloseablePart.class);
+        InputStream stream = new ByteArrayInputStream("SOME DATA".getBytes());
+
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("uri")).thenReturn("/a/b/");
+        when(raw.getParameter("batch")).thenReturn("true");
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(filePartSupplier.getFileParts(request, transaction)).thenReturn(Arrays.asList(closeablePart, other));
+        when(closeablePart.getName()).thenReturn("c/data.json");
+        when(closeablePart.getInputStream()).thenReturn(stream);
+        when(other.getName()).thenReturn("/d/data.json");
+        when(publisherService.addFiles(eq(transaction), any(Map.class))).thenReturn(true);
+
+        SummaryResult actual = (SummaryResult) route.handle(request, response);
+
+        assertThat(actual.message, equalTo("Published to /a/b/"));
+        assertFalse(actual.error);
+
+        ArgumentCaptor<Map> files = ArgumentCaptor.forClass(Map.class);
+        verify(publisherService, times(1)).addFiles(eq(transaction), files.capture());
+        Map<String, Callable<InputStream>> batch = files.getValue();
+        assertThat(new ArrayList<>(batch.keySet()), equalTo(Arrays.asList("/a/b/c/data.json", "/a/b/d/data.json")));
+        assertThat(batch.get("/a/b/c/data.json").call(), equalTo(stream));
+
+        verify(filePartSupplier, never()).getFilePart(request, transaction);
+        verify(closeablePart, times(1)).close();
+        verify(other, times(1)).close();
+        verify(transactionsService, times(1)).tryUpdateAsync(transaction);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testAddBatchDuplicateUri() throws Exception {
+        CloseablePart other = mock(CloseablePart.class);
+
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("uri")).thenReturn("/a/b");
+        when(raw.getParameter("batch")).thenReturn("true");
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(filePartSupplier.getFileParts(request, transaction)).thenReturn(Arrays.asList(closeablePart, other));
+        when(closeablePart.getName()).thenReturn("c/data.json");
+        when(other.getName()).thenReturn("/c/data.json");
+
+        try {
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            assertThat(e.getMessage(), equalTo(String.format(DUPLICATE_PART_ERR, "/a/b/c/data.json")));
+
+            verifyZeroInteractions(publisherService);
+            verify(closeablePart, times(1)).close();
+            verify(other, times(1)).close();
+            verify(transactionsService, times(1)).tryUpdateAsync(transaction);
+            throw e;
+        }
+    }
+
+    @Test(expected = PublishException.class)
+    public void testAddBatchClosesPartsAfterFailedWrite() throws Exception {
+        CloseablePart other = mock(CloseablePart.class);
+        PublishException expected = new PublishException("write failed");
+
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("uri")).thenReturn("/a/b");
+        when(raw.getParameter("batch")).thenReturn("true");
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(filePartSupplier.getFileParts(request, transaction)).thenReturn(Arrays.asList(closeablePart, other));
+        when(closeablePart.getName()).thenReturn("c/data.json");
+        when(other.getName()).thenReturn("d/data.json");
+        when(publisherService.addFiles(eq(transaction), any(Map.class))).thenThrow(expected);
+
+        try {
+            route.handle(request, response);
+        } catch (PublishException e) {
+            assertThat(e, equalTo(expected));
+
+            // The parts are only closed once the publisher has finished with them
+            InOrder inOrder = inOrder(publisherService, closeablePart, other);
+            inOrder.verify(publisherService).addFiles(eq(transaction), any(Map.class));
+            inOrder.verify(closeablePart).close();
+            inOrder.verify(other).close();
+            verify(transactionsService, times(1)).tryUpdateAsync(transaction);
+            throw e;
+        }
+    }
+
     // This test is a beast... sorry
     @Test
     public void handle_timeSeriesZipFile_success() throws Exception {
@@ -264,15 +392,17 @@ public class AddFileToTransactionTest extends BaseRouteTest {
                     .thenReturn(transactionDir);
 
             // When the mock is called write the zip content to the temp dir so we can check it was written correctly.
-            when(publisherService.addFiles(eq(transaction), eq("/a/b/c/timeseries"), any(ZipInputStream.class)))
+            when(publisherService.addFiles(eq(transaction), eq("/a/b/c/timeseries"), any(Path.class)))
                     .thenAnswer(invocationOnMock -> {
-                        ZipInputStream zipIn = invocationOnMock.getArgumentAt(2, ZipInputStream.class);
-                        writeZip(transactionDir.resolve("a/b/c/timeseries"), zipIn);
+                        Path zip = invocationOnMock.getArgumentAt(2, Path.class);
+                        try (ZipInputStream zipIn = new ZipInputStream(Files.newInputStream(zip))) {
+                            writeZip(transactionDir.resolve("a/b/c/timeseries"), zipIn);
+                        }
                         return true;
                     });
 
             // run the test and execute the route handler.
-            Result actual = (Result) route.handle(request, response);
+            SummaryResult actual = (SummaryResult) route.handle(request, response);
 
             // asser the results.
             assertThat(actual.error, is(false));
@@ -296,6 +426,59 @@ public class AddFileToTransactionTest extends BaseRouteTest {
         }
     }
 
+    @Test
+    public void handle_timeSeriesZipFileStreamingEnabled_success() throws Exception {
+        route = new AddFileToTransaction(transactionsService, publisherService, filePartSupplier, true);
+
+        Path srcJsonPath = Paths.get(getClass().getResource("/request-body/zip-content.json").getPath());
+        Path srcZipPath = Paths.get(getClass().getResource("/request-body/timeseries-to-publish.zip").getPath());
+        String uri = "/a/b/c/timeseries";
+
+        try (InputStream requestBody = new FileInputStream(srcZipPath.toFile())) {
+            when(transactionsService.getTransaction(request))
+                    .thenReturn(transaction);
+
+            when(request.raw())
+                    .thenReturn(raw);
+
+            when(raw.getParameter("uri"))
+                    .thenReturn(uri);
+
+            when(raw.getParameter("zip"))
+                    .thenReturn("true");
+
+            when(filePartSupplier.getFilePart(request, transaction)).thenReturn(closeablePart);
+
+            when(closeablePart.getInputStream()).thenReturn(requestBody);
+
+            Path transactionDir = temporaryFolder.newFolder("test-transaction").toPath();
+
+            when(transactionsService.content(transaction))
+                    .thenReturn(transactionDir);
+
+            when(publisherService.addFiles(eq(transaction), eq("/a/b/c/timeseries"), any(ZipInputStream.class)))
+                    .thenAnswer(invocationOnMock -> {
+                        ZipInputStream zipIn = invocationOnMock.getArgumentAt(2, ZipInputStream.class);
+                        writeZip(transactionDir.resolve("a/b/c/timeseries"), zipIn);
+                        return true;
+                    });
+
+            SummaryResult actual = (SummaryResult) route.handle(request, response);
+
+            assertThat(actual.error, is(false));
+
+            // The zip should have been extracted without being written to the transaction.
+            assertFalse(Files.exists(transactionDir.resolve("a/b/c/timeseries-to-publish.zip")));
+
+            Path transactionJsonPath = transactionDir.resolve("a/b/c/timeseries/zip-content.json");
+            assertTrue(Files.exists(transactionJsonPath));
+            assertThat(getSHA1Hash(srcJsonPath), equalTo(getSHA1Hash(transactionJsonPath)));
+
+            verify(closeablePart, times(1)).close();
+            verify(transactionsService, times(1)).tryUpdateAsync(transaction);
+        }
+    }
+
     private void writeZip(Path transactionPath, ZipInputStream zipIn) throws Exception {
         if (Files.notExists(transactionPath)) {
             transactionPath.toFile().mkdirs();
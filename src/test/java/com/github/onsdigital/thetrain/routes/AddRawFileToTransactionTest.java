@@ -0,0 +1,311 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.exception.PublishException;
+import com.github.onsdigital.thetrain.helpers.uploads.ContentRange;
+import com.github.onsdigital.thetrain.json.SummaryResult;
+import com.github.onsdigital.thetrain.json.UploadStatus;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import com.github.onsdigital.thetrain.storage.TransactionUpdate;
+import com.github.onsdigital.thetrain.storage.UploadProgress;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpStatus;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import spark.Route;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static com.github.onsdigital.thetrain.routes.AddRawFileToTransaction.ADD_FILE_ERR_MSG;
+import static com.github.onsdigital.thetrain.routes.AddRawFileToTransaction.CONTENT_RANGE_ERR;
+import static com.github.onsdigital.thetrain.routes.AddRawFileToTransaction.CONTENT_TYPE_ERR;
+import static com.github.onsdigital.thetrain.routes.AddRawFileToTransaction.FILE_SIZE_ERR;
+import static com.github.onsdigital.thetrain.routes.AddRawFileToTransaction.RANGE_NOT_ACCEPTED_ERR;
+import static com.github.onsdigital.thetrain.routes.AddRawFileToTransaction.RANGE_TOTAL_ERR;
+import static com.github.onsdigital.thetrain.routes.AddRawFileToTransaction.UPLOAD_BUSY_ERR;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class AddRawFileToTransactionTest extends BaseRouteTest {
+
+    private static final byte[] BODY = "{\"description\":{\"title\":\"CPI\"}}".getBytes(StandardCharsets.UTF_8);
+
+    private Route route;
+    private String testURI = "/a/b/c/data.json";
+
+    @Override
+    public void customSetUp() throws Exception {
+        when(transaction.id()).thenReturn(TRANSACTION_ID);
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("uri")).thenReturn(testURI);
+        when(raw.getContentType()).thenReturn("application/octet-stream");
+        when(raw.getContentLengthLong()).thenReturn((long) BODY.length);
+        when(raw.getInputStream()).thenReturn(new TestServletInputStream(BODY));
+
+        route = new AddRawFileToTransaction(transactionsService, publisherService, 1024);
+    }
+
+    @Test
+    public void shouldStreamBodyIntoTransaction() throws Exception {
+        // Given a raw file upload
+        TransactionUpdate update = new TransactionUpdate();
+        update.setSuccess(true);
+        when(publisherService.addContentToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(Date.class))).thenReturn(update);
+
+        // When the file is added to the transaction
+        SummaryResult actual = (SummaryResult) route.handle(request, response);
+
+        // Then the request body is passed straight to the publisher
+        ArgumentCaptor<InputStream> body = ArgumentCaptor.forClass(InputStream.class);
+        verify(publisherService, times(1)).addContentToTransaction(
+                eq(transaction), eq(testURI), body.capture(), any(Date.class));
+        assertThat(IOUtils.toByteArray(body.getValue()), equalTo(BODY));
+        verify(transaction, times(1)).addUri(update.getUriInfo());
+        verify(transactionsService, times(1)).tryUpdateAsync(transaction);
+
+        assertThat(actual.message, equalTo("Published to " + testURI));
+        assertThat(actual.uri, equalTo(testURI));
+        assertFalse(actual.error);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectMultipartBody() throws Exception {
+        // Given a multipart request body
+        when(raw.getContentType()).thenReturn("multipart/form-data; boundary=xyz");
+
+        try {
+            // When the file is added to the transaction
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            // Then the request is rejected without touching the transaction
+            assertThat(e.getMessage(), equalTo(CONTENT_TYPE_ERR));
+            verifyZeroInteractions(publisherService);
+            verify(transactionsService, never()).tryUpdateAsync(transaction);
+            throw e;
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectBodyLargerThanMaxFileSize() throws Exception {
+        // Given a body larger than the maximum file size
+        when(raw.getContentLengthLong()).thenReturn(1025L);
+
+        try {
+            // When the file is added to the transaction
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            // Then the request is rejected
+            assertThat(e.getMessage(), equalTo(FILE_SIZE_ERR));
+            verifyZeroInteractions(publisherService);
+            throw e;
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectBodyOfUnknownLengthLargerThanMaxFileSize() throws Exception {
+        // Given a body of unknown length larger than the maximum file size
+        when(raw.getContentLengthLong()).thenReturn(-1L);
+        when(raw.getInputStream()).thenReturn(new TestServletInputStream(new byte[1025]));
+        TransactionUpdate update = new TransactionUpdate();
+        update.setUriInfo(new UriInfo(testURI));
+        when(publisherService.addContentToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(Date.class))).thenAnswer(invocation -> {
+            // The publisher stops writing when reading the body fails
+            try {
+                IOUtils.toByteArray((InputStream) invocation.getArguments()[2]);
+            } catch (IOException e) {
+                update.setSuccess(false);
+            }
+            return update;
+        });
+
+        try {
+            // When the file is added to the transaction
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            // Then the request is rejected and the file is not recorded against the transaction
+            assertThat(e.getMessage(), equalTo(FILE_SIZE_ERR));
+            verify(transaction, never()).addUri(any(UriInfo.class));
+            verify(transactionsService, times(1)).tryUpdateAsync(transaction);
+            throw e;
+        }
+    }
+
+    @Test(expected = PublishException.class)
+    public void shouldThrowPublishExceptionIfWriteFails() throws Exception {
+        // Given the publisher fails to write the file
+        PublishException cause = new PublishException("disk full");
+        when(publisherService.addContentToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(Date.class))).thenThrow(cause);
+
+        try {
+            // When the file is added to the transaction
+            route.handle(request, response);
+        } catch (PublishException e) {
+            // Then a publish exception is thrown and the transaction is still updated
+            assertThat(e.getMessage(), equalTo(ADD_FILE_ERR_MSG));
+            assertThat(e.getStatus(), equalTo(HttpStatus.SC_INTERNAL_SERVER_ERROR));
+            assertThat(e.getCause(), equalTo(cause));
+            verify(transactionsService, times(1)).tryUpdateAsync(transaction);
+            throw e;
+        }
+    }
+
+    @Test
+    public void shouldReturnProgressOfIncompleteRange() throws Exception {
+        // Given the first range of a resumable upload
+        when(raw.getHeader("Content-Range")).thenReturn("bytes 0-" + (BODY.length - 1) + "/100");
+        UploadProgress progress = progress(UploadProgress.State.RECEIVED, BODY.length, null);
+        when(publisherService.addContentRangeToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(ContentRange.class), any(Date.class))).thenReturn(progress);
+
+        // When the range is added to the transaction
+        UploadStatus actual = (UploadStatus) route.handle(request, response);
+
+        // Then the bytes received are returned and the transaction is not updated
+        assertThat(actual.received, equalTo((long) BODY.length));
+        assertFalse(actual.complete);
+        verify(publisherService, never()).addContentToTransaction(eq(transaction), eq(testURI),
+                any(InputStream.class), any(Date.class));
+        verify(transactionsService, never()).tryUpdateAsync(transaction);
+    }
+
+    @Test
+    public void shouldAddCompletedUploadToTransaction() throws Exception {
+        // Given the last range of a resumable upload
+        TransactionUpdate update = new TransactionUpdate();
+        update.setSuccess(true);
+        update.setUriInfo(new UriInfo(testURI));
+        when(raw.getHeader("Content-Range")).thenReturn("bytes 68-99/100");
+        UploadProgress progress = progress(UploadProgress.State.COMPLETE, 100, update);
+        when(publisherService.addContentRangeToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(ContentRange.class), any(Date.class))).thenReturn(progress);
+
+        // When the range is added to the transaction
+        UploadStatus actual = (UploadStatus) route.handle(request, response);
+
+        // Then the file is recorded against the transaction with its hash
+        assertTrue(actual.complete);
+        assertThat(actual.received, equalTo(100L));
+        assertThat(actual.sha1, equalTo("abc"));
+        verify(transaction, times(1)).addUri(update.getUriInfo());
+        verify(transactionsService, times(1)).tryUpdateAsync(transaction);
+    }
+
+    @Test
+    public void shouldNotAddUploadCompletedByEarlierRangeAgain() throws Exception {
+        // Given a range of an upload that an earlier range has already completed
+        when(raw.getHeader("Content-Range")).thenReturn("bytes 68-99/100");
+        UploadProgress progress = progress(UploadProgress.State.COMPLETE, 100, null);
+        when(progress.isComplete()).thenReturn(true);
+        when(progress.getSha1()).thenReturn("abc");
+        when(publisherService.addContentRangeToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(ContentRange.class), any(Date.class))).thenReturn(progress);
+
+        // When the range is added to the transaction
+        UploadStatus actual = (UploadStatus) route.handle(request, response);
+
+        // Then the upload is reported as complete without recording the file against the transaction again
+        assertTrue(actual.complete);
+        assertThat(actual.sha1, equalTo("abc"));
+        verify(transaction, never()).addUri(any(UriInfo.class));
+        verify(transactionsService, never()).tryUpdateAsync(transaction);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectRangeNotAccepted() throws Exception {
+        // Given a range starting after the bytes received so far
+        when(raw.getHeader("Content-Range")).thenReturn("bytes 50-81/100");
+        UploadProgress progress = progress(UploadProgress.State.GAP, 10, null);
+        when(publisherService.addContentRangeToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(ContentRange.class), any(Date.class))).thenReturn(progress);
+
+        try {
+            // When the range is added to the transaction
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            // Then the client is told how many bytes have been received
+            assertThat(e.getMessage(), equalTo(String.format(RANGE_NOT_ACCEPTED_ERR, 50, 10, testURI)));
+            throw e;
+        }
+    }
+
+    @Test(expected = PublishException.class)
+    public void shouldReturnConflictIfAnotherRangeIsBeingWritten() throws Exception {
+        // Given another range of the same upload is being written
+        when(raw.getHeader("Content-Range")).thenReturn("bytes 0-31/100");
+        UploadProgress progress = progress(UploadProgress.State.BUSY, 0, null);
+        when(publisherService.addContentRangeToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(ContentRange.class), any(Date.class))).thenReturn(progress);
+
+        try {
+            // When the range is added to the transaction
+            route.handle(request, response);
+        } catch (PublishException e) {
+            // Then the client is told to retry rather than that the range is invalid
+            assertThat(e.getMessage(), equalTo(String.format(UPLOAD_BUSY_ERR, testURI)));
+            assertThat(e.getStatus(), equalTo(HttpStatus.SC_CONFLICT));
+            throw e;
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectRangeNotFittingDeclaredTotal() throws Exception {
+        // Given a range declaring a different total to an earlier range
+        when(raw.getHeader("Content-Range")).thenReturn("bytes 0-31/200");
+        UploadProgress progress = progress(UploadProgress.State.TOTAL_MISMATCH, 0, null);
+        when(publisherService.addContentRangeToTransaction(eq(transaction), eq(testURI), any(InputStream.class),
+                any(ContentRange.class), any(Date.class))).thenReturn(progress);
+
+        try {
+            // When the range is added to the transaction
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            // Then the client is told the declared total
+            assertThat(e.getMessage(), equalTo(String.format(RANGE_TOTAL_ERR, "bytes 0-31/200", 100, testURI)));
+            throw e;
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectInvalidContentRange() throws Exception {
+        // Given an invalid Content-Range header
+        when(raw.getHeader("Content-Range")).thenReturn("bytes=0-10");
+
+        try {
+            // When the range is added to the transaction
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            // Then the request is rejected
+            assertThat(e.getMessage(), equalTo(CONTENT_RANGE_ERR));
+            verifyZeroInteractions(publisherService);
+            throw e;
+        }
+    }
+
+    private UploadProgress progress(UploadProgress.State state, long received, TransactionUpdate update) {
+        UploadProgress progress = mock(UploadProgress.class);
+        when(progress.getState()).thenReturn(state);
+        when(progress.getTotal()).thenReturn(100L);
+        when(progress.getReceived()).thenReturn(received);
+        when(progress.isComplete()).thenReturn(update != null);
+        when(progress.getUpdate()).thenReturn(update);
+        when(progress.getSha1()).thenReturn(update != null ? "abc" : null);
+        return progress;
+    }
+}
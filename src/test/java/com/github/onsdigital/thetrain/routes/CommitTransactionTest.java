@@ -3,6 +3,8 @@ package com.github.onsdigital.thetrain.routes;
 import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Result;
+import com.github.onsdigital.thetrain.json.SummaryResult;
+import com.github.onsdigital.thetrain.json.Transaction;
 import org.junit.Test;
 import spark.Route;
 
@@ -105,9 +107,16 @@ public class CommitTransactionTest extends BaseRouteTest {
 
         when(publisherService.commit(transaction)).thenReturn(true);
 
-        Result result = (Result) route.handle(request, response);
+        when(request.raw()).thenReturn(raw);
 
-        assertThat(result.transaction, equalTo(transaction));
+        when(transaction.id()).thenReturn(TRANSACTION_ID);
+
+        when(transaction.getStatus()).thenReturn(Transaction.COMMITTED);
+
+        SummaryResult result = (SummaryResult) route.handle(request, response);
+
+        assertThat(result.transaction.id, equalTo(TRANSACTION_ID));
+        assertThat(result.transaction.status, equalTo(Transaction.COMMITTED));
         assertThat(result.message, equalTo(RESULT_SUCCESS_MSG));
         assertFalse(result.error);
 
@@ -115,4 +124,21 @@ public class CommitTransactionTest extends BaseRouteTest {
         verify(transactionsService, times(1)).update(transaction);
         verify(publisherService, times(1)).commit(transaction);
     }
+
+    @Test
+    public void testCommitTransactionFullResult() throws Exception {
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+
+        when(publisherService.commit(transaction)).thenReturn(true);
+
+        when(request.raw()).thenReturn(raw);
+
+        when(raw.getParameter("full")).thenReturn("true");
+
+        Result result = (Result) route.handle(request, response);
+
+        assertThat(result.transaction, equalTo(transaction));
+        assertThat(result.message, equalTo(RESULT_SUCCESS_MSG));
+        assertFalse(result.error);
+    }
 }
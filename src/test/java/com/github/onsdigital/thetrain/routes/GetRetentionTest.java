@@ -0,0 +1,55 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.json.RetentionReport;
+import com.github.onsdigital.thetrain.json.RetentionStatus;
+import com.github.onsdigital.thetrain.storage.TransactionRetention;
+import org.junit.Test;
+import org.mockito.Mock;
+import spark.Route;
+
+import static com.github.onsdigital.thetrain.routes.GetRetention.DRY_RUN_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GetRetentionTest extends BaseRouteTest {
+
+    @Mock
+    private TransactionRetention transactionRetention;
+
+    private Route route;
+
+    @Override
+    public void customSetUp() throws Exception {
+        route = new GetRetention(transactionRetention);
+        when(request.raw()).thenReturn(raw);
+    }
+
+    @Test
+    public void testGetRetentionStatus() throws Exception {
+        RetentionStatus status = new RetentionStatus();
+        when(transactionRetention.status()).thenReturn(status);
+
+        Object actual = route.handle(request, response);
+
+        assertThat(actual, equalTo(status));
+        verify(transactionRetention, never()).preview();
+        verify(response, times(1)).status(200);
+    }
+
+    @Test
+    public void testGetRetentionDryRun() throws Exception {
+        RetentionReport report = new RetentionReport();
+        when(raw.getParameter(DRY_RUN_KEY)).thenReturn("true");
+        when(transactionRetention.preview()).thenReturn(report);
+
+        Object actual = route.handle(request, response);
+
+        assertThat(actual, equalTo(report));
+        verify(transactionRetention, never()).status();
+        verify(response, times(1)).status(200);
+    }
+}
@@ -1,11 +1,21 @@
 package com.github.onsdigital.thetrain.routes;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.exception.PublishException;
-import com.github.onsdigital.thetrain.json.Result;
+import com.github.onsdigital.thetrain.json.ObjectMapperFactory;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import com.github.onsdigital.thetrain.response.JsonTransformer;
+import com.github.onsdigital.thetrain.response.TestServletOutputStream;
 import org.junit.Test;
+import org.mockito.Mock;
 import spark.Route;
 
+import javax.servlet.http.HttpServletResponse;
+import java.util.Date;
+
 import static com.github.onsdigital.thetrain.routes.GetTransaction.GET_TRANS_SUCCESS_RESULT;
 import static java.lang.String.format;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -21,25 +31,127 @@ public class GetTransactionTest extends BaseRouteTest {
 
     private Route route;
 
+    @Mock
+    private HttpServletResponse rawResponse;
+
+    private TestServletOutputStream body;
+    private Transaction committing;
+
     @Override
     public void customSetUp() throws Exception {
-        route = new GetTransaction(transactionsService);
+        route = new GetTransaction(transactionsService, JsonTransformer.get());
+
+        body = new TestServletOutputStream();
+        when(request.raw()).thenReturn(raw);
+        when(response.raw()).thenReturn(rawResponse);
+        when(rawResponse.getOutputStream()).thenReturn(body);
+
+        // A transaction part way through a commit.
+        committing = new Transaction();
+        for (int i = 0; i < 10; i++) {
+            UriInfo uriInfo = new UriInfo("/" + i + "/data.json", new Date());
+            uriInfo.stop();
+            uriInfo.setAction(i < 4 ? UriInfo.CREATE : UriInfo.UPDATE);
+            if (i < 6) {
+                uriInfo.commit();
+            }
+            committing.addUri(uriInfo);
+        }
+        committing.addUriDelete(new UriInfo("/deleted/data.json", new Date()));
     }
 
     @Test
     public void testGetTransactionSuccess() throws Exception {
-        when(transactionsService.getTransaction(request)).thenReturn(transaction);
-        when(transaction.id()).thenReturn(TRANSACTION_ID);
+        when(transactionsService.getTransaction(request)).thenReturn(committing);
 
-        Result actual = (Result) route.handle(request, response);
+        route.handle(request, response);
 
-        assertFalse(actual.error);
-        assertThat(actual.transaction, equalTo(transaction));
-        assertThat(actual.message, equalTo(format(GET_TRANS_SUCCESS_RESULT, TRANSACTION_ID)));
+        ObjectMapper objectMapper = ObjectMapperFactory.create();
+        JsonNode actual = objectMapper.readTree(body.toByteArray());
+        Transaction transaction = objectMapper.treeToValue(actual.get("transaction"), Transaction.class);
+        assertFalse(actual.get("error").asBoolean());
+        assertThat(transaction.id(), equalTo(committing.id()));
+        assertThat(transaction.startDate(), equalTo(committing.startDate()));
+        assertThat(transaction.uris(), equalTo(committing.uris()));
+        assertThat(transaction.urisToDelete(), equalTo(committing.urisToDelete()));
+        assertThat(actual.get("message").asText(), equalTo(format(GET_TRANS_SUCCESS_RESULT, committing.id())));
         verify(transactionsService, times(1)).getTransaction(request);
         verify(response, times(1)).status(200);
     }
 
+    @Test
+    public void testGetTransactionFilteredAndPaged() throws Exception {
+        when(transactionsService.getTransaction(request)).thenReturn(committing);
+        when(raw.getParameter("status")).thenReturn(UriInfo.COMMITTED);
+        when(raw.getParameter("offset")).thenReturn("1");
+        when(raw.getParameter("limit")).thenReturn("3");
+
+        route.handle(request, response);
+
+        JsonNode actual = ObjectMapperFactory.create().readTree(body.toByteArray());
+        JsonNode uriInfos = actual.get("transaction").get("uriInfos");
+        assertThat(uriInfos.size(), equalTo(3));
+        for (JsonNode uriInfo : uriInfos) {
+            assertThat(uriInfo.get("status").asText(), equalTo(UriInfo.COMMITTED));
+        }
+        JsonNode page = actual.get("page");
+        assertThat(page.get("offset").asInt(), equalTo(1));
+        assertThat(page.get("limit").asInt(), equalTo(3));
+        assertThat(page.get("uriInfos").asInt(), equalTo(6));
+        assertThat(page.get("uriDeletes").asInt(), equalTo(0));
+    }
+
+    @Test
+    public void testGetTransactionPageUnchangedByAdds() throws Exception {
+        when(transactionsService.getTransaction(request)).thenReturn(committing);
+        when(raw.getParameter("offset")).thenReturn("2");
+        when(raw.getParameter("limit")).thenReturn("3");
+        for (int i = 10; i < 1000; i++) {
+            committing.addUri(new UriInfo("/" + i + "/data.json", new Date()));
+        }
+
+        route.handle(request, response);
+
+        JsonNode uriInfos = ObjectMapperFactory.create().readTree(body.toByteArray()).get("transaction")
+                .get("uriInfos");
+        assertThat(uriInfos.size(), equalTo(3));
+        for (int i = 0; i < 3; i++) {
+            assertThat(uriInfos.get(i).get("uri").asText(), equalTo("/" + (i + 2) + "/data.json"));
+        }
+    }
+
+    @Test
+    public void testGetTransactionSummary() throws Exception {
+        when(transactionsService.getTransaction(request)).thenReturn(committing);
+        when(raw.getParameter("summary")).thenReturn("true");
+        when(raw.getParameter("action")).thenReturn(UriInfo.UPDATE);
+
+        route.handle(request, response);
+
+        JsonNode actual = ObjectMapperFactory.create().readTree(body.toByteArray());
+        JsonNode summary = actual.get("transaction");
+        assertFalse(summary.has("uriInfos"));
+        assertThat(summary.get("fileCount").asInt(), equalTo(10));
+        assertThat(summary.get("deleteCount").asInt(), equalTo(1));
+        JsonNode statuses = summary.get("fileStatuses");
+        assertThat(statuses.get(UriInfo.COMMITTED).asInt(), equalTo(2));
+        assertThat(statuses.get(UriInfo.UPLOADED).asInt(), equalTo(4));
+        assertThat(actual.get("page").get("uriInfos").asInt(), equalTo(6));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testGetTransactionInvalidLimit() throws Exception {
+        when(transactionsService.getTransaction(request)).thenReturn(committing);
+        when(raw.getParameter("limit")).thenReturn("-1");
+
+        try {
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            verify(response, never()).status(anyInt());
+            throw e;
+        }
+    }
+
     @Test(expected = BadRequestException.class)
     public void testGetTransaction_transactionServiceBadRequestEx() throws Exception {
         try {
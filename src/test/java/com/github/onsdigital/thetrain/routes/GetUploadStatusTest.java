@@ -0,0 +1,82 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.json.UploadStatus;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import com.github.onsdigital.thetrain.storage.UploadProgress;
+import org.junit.Test;
+import spark.Route;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GetUploadStatusTest extends BaseRouteTest {
+
+    private Route route;
+    private String testURI = "/a/b/c/data.csv";
+
+    @Override
+    public void customSetUp() throws Exception {
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("uri")).thenReturn(testURI);
+
+        route = new GetUploadStatus(transactionsService, publisherService);
+    }
+
+    @Test
+    public void shouldReturnBytesReceived() throws Exception {
+        // Given an upload in progress
+        UploadProgress progress = progress(1024L, false, null);
+        when(publisherService.uploadProgress(transaction, testURI)).thenReturn(progress);
+
+        // When the upload status is requested
+        UploadStatus actual = (UploadStatus) route.handle(request, response);
+
+        // Then the number of bytes received is returned
+        assertThat(actual.uri, equalTo(testURI));
+        assertThat(actual.received, equalTo(1024L));
+        assertFalse(actual.complete);
+    }
+
+    @Test
+    public void shouldReturnCompleteIfUploadCompleted() throws Exception {
+        // Given a completed upload
+        UploadProgress progress = progress(2048L, true, "abc");
+        when(publisherService.uploadProgress(transaction, testURI)).thenReturn(progress);
+
+        // When the upload status is requested
+        UploadStatus actual = (UploadStatus) route.handle(request, response);
+
+        // Then the upload is complete with the size and hash of the file
+        assertTrue(actual.complete);
+        assertThat(actual.received, equalTo(2048L));
+        assertThat(actual.sha1, equalTo("abc"));
+    }
+
+    @Test
+    public void shouldNotReturnCompleteForFileAddedWithoutUpload() throws Exception {
+        // Given a file added to the transaction some other way and no upload of it
+        UploadProgress progress = progress(0L, false, null);
+        when(publisherService.uploadProgress(transaction, testURI)).thenReturn(progress);
+        when(transaction.uri(testURI)).thenReturn(new UriInfo(testURI));
+
+        // When the upload status is requested
+        UploadStatus actual = (UploadStatus) route.handle(request, response);
+
+        // Then no bytes of the upload have been received
+        assertFalse(actual.complete);
+        assertThat(actual.received, equalTo(0L));
+    }
+
+    private UploadProgress progress(long received, boolean complete, String sha1) {
+        UploadProgress progress = mock(UploadProgress.class);
+        when(progress.getReceived()).thenReturn(received);
+        when(progress.isComplete()).thenReturn(complete);
+        when(progress.getSha1()).thenReturn(sha1);
+        return progress;
+    }
+}
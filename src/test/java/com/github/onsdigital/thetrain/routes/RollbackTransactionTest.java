@@ -6,6 +6,10 @@ import com.github.onsdigital.thetrain.json.Result;
 import org.junit.Test;
 import spark.Route;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import static com.github.onsdigital.thetrain.routes.RollbackTransaction.ROLLBACK_SUCCESS_MSG;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -30,11 +34,14 @@ public class RollbackTransactionTest extends BaseRouteTest {
     public void testRollbackTransactionSuccess() throws Exception {
         when(transactionsService.getTransaction(request)).thenReturn(transaction);
         when(publisherService.rollback(transaction)).thenReturn(true);
+        Map<String, List<String>> files = Collections.singletonMap("content", Collections.singletonList("/a.json"));
+        when(transactionsService.listFiles(transaction)).thenReturn(files);
 
         Result result = (Result) route.handle(request, response);
 
         assertThat(result.message, equalTo(ROLLBACK_SUCCESS_MSG));
         assertThat(result.transaction, equalTo(transaction));
+        assertThat(result.files, equalTo(files));
         assertFalse(result.error);
 
         verify(transactionsService, times(1)).getTransaction(request);
@@ -0,0 +1,37 @@
+package com.github.onsdigital.thetrain.routes;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+
+/**
+ * Servlet input stream supplying a request body for tests.
+ */
+public class TestServletInputStream extends ServletInputStream {
+
+    private final ByteArrayInputStream in;
+
+    public TestServletInputStream(byte[] body) {
+        this.in = new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public int read() {
+        return in.read();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return in.available() == 0;
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+        // not used
+    }
+}
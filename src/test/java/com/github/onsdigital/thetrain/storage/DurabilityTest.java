@@ -0,0 +1,126 @@
+package com.github.onsdigital.thetrain.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for {@link Durability}.
+ */
+public class DurabilityTest {
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("durability");
+    }
+
+    @Test
+    public void shouldReplaceFile() throws IOException {
+        for (Durability durability : Durability.values()) {
+
+            // Given an existing file
+            Path file = Files.write(dir.resolve(durability + ".json"), "old content".getBytes());
+
+            // When we write new content
+            durability.write(file, "new".getBytes());
+
+            // Then the content is replaced and no temporary file is left behind
+            assertArrayEquals("new".getBytes(), Files.readAllBytes(file));
+        }
+        assertNoTempFiles();
+    }
+
+    @Test
+    public void shouldWriteSameFileConcurrently() throws Exception {
+
+        // Given a file written by many threads at once
+        Path file = dir.resolve("concurrent.json");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> writes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) {
+                byte[] content = ("content " + i).getBytes();
+                writes.add(executor.submit(() -> {
+                    Durability.FILE.write(file, content);
+                    return null;
+                }));
+            }
+
+            // When every write completes
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then no write failed, the file holds one of them in full and no temporary file is left behind
+        assertTrue(new String(Files.readAllBytes(file)).matches("content \\d+"));
+        assertNoTempFiles();
+    }
+
+    @Test
+    public void shouldRemoveTempFileIfWriteFails() throws IOException {
+
+        // Given a target that cannot be replaced
+        Path target = Files.createDirectories(dir.resolve("target.json"));
+        Files.createFile(target.resolve("child"));
+
+        try {
+            // When we write to it
+            Durability.NONE.write(target, "content".getBytes());
+            fail("expected IOException");
+        } catch (IOException e) {
+            // Then the write fails without leaving a temporary file behind
+            assertNoTempFiles();
+        }
+    }
+
+    private void assertNoTempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            assertFalse(files.anyMatch(p -> p.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void shouldCreateFile() throws IOException {
+        Path file = dir.resolve("created.json");
+
+        Durability.FILE_AND_DIRECTORY.write(file, "content".getBytes());
+
+        assertArrayEquals("content".getBytes(), Files.readAllBytes(file));
+    }
+
+    @Test
+    public void shouldAppendToFile() throws IOException {
+        for (Durability durability : Durability.values()) {
+
+            // Given a file that does not exist yet
+            Path file = dir.resolve(durability + ".journal");
+
+            // When we append to it twice
+            durability.append(file, "a\n".getBytes());
+            durability.append(file, "b\n".getBytes());
+
+            // Then it holds both appends in order
+            assertEquals("a\nb\n", new String(Files.readAllBytes(file)));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.davidcarboni.cryptolite.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileCopierTest {
+
+    private Path source;
+    private Path target;
+
+    @Before
+    public void setUp() throws Exception {
+        Path root = Files.createTempDirectory("file-copier");
+        source = root.resolve("source");
+        target = root.resolve("target");
+        Files.createDirectories(source);
+    }
+
+    @Test
+    public void shouldCopyFile() throws IOException {
+
+        // Given a file
+        byte[] content = Random.bytes(5000);
+        Path file = Files.write(source.resolve("data.json"), content);
+
+        // When we copy it in copy mode
+        Path copy = target.resolve("a/b/data.json");
+        new FileCopier(FileCopier.Mode.COPY).copy(file, copy);
+
+        // Then the copy has the same content but is a separate file
+        assertArrayEquals(content, Files.readAllBytes(copy));
+        assertFalse(Files.isSameFile(file, copy));
+        assertNoTempFiles(copy.getParent());
+    }
+
+    @Test
+    public void shouldLinkFile() throws IOException {
+
+        // Given a file
+        byte[] content = Random.bytes(5000);
+        Path file = Files.write(source.resolve("data.json"), content);
+
+        // When we copy it in link mode
+        Path link = target.resolve("data.json");
+        FileCopier copier = new FileCopier(FileCopier.Mode.LINK);
+        copier.copy(file, link);
+
+        // Then the target is a hard link to the source
+        assertTrue(copier.isLinking());
+        assertTrue(Files.isSameFile(file, link));
+        assertArrayEquals(content, Files.readAllBytes(link));
+        assertNoTempFiles(link.getParent());
+    }
+
+    @Test
+    public void shouldReplaceTargetWithoutModifyingLinkedFile() throws IOException {
+
+        // Given a file that has been linked to a backup
+        byte[] original = Random.bytes(5000);
+        Path file = Files.write(source.resolve("data.json"), original);
+        Path backup = target.resolve("backup/data.json");
+        new FileCopier(FileCopier.Mode.LINK).copy(file, backup);
+
+        // When the file is replaced with new content
+        Path update = Files.write(target.resolve("update.json"), Random.bytes(100));
+        new FileCopier(FileCopier.Mode.COPY).copy(update, file);
+
+        // Then the backup still has the original content
+        assertArrayEquals(Files.readAllBytes(update), Files.readAllBytes(file));
+        assertArrayEquals(original, Files.readAllBytes(backup));
+    }
+
+    @Test
+    public void shouldCopyDirectory() throws IOException {
+
+        // Given a directory tree
+        byte[] first = Random.bytes(100);
+        byte[] second = Random.bytes(100);
+        Files.write(source.resolve("first.json"), first);
+        Files.createDirectories(source.resolve("nested/empty"));
+        Files.write(source.resolve("nested/second.json"), second);
+
+        // When we copy it in link mode
+        new FileCopier(FileCopier.Mode.LINK).copyDirectory(source, target);
+
+        // Then the tree is recreated under the target
+        assertArrayEquals(first, Files.readAllBytes(target.resolve("first.json")));
+        assertArrayEquals(second, Files.readAllBytes(target.resolve("nested/second.json")));
+        assertTrue(Files.isDirectory(target.resolve("nested/empty")));
+    }
+
+    private static void assertNoTempFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            assertFalse(files.anyMatch(p -> p.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+}
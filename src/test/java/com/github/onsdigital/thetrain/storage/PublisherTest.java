@@ -3,22 +3,45 @@ package com.github.onsdigital.thetrain.storage;
 import com.github.davidcarboni.cryptolite.Random;
 import com.github.onsdigital.thetrain.helpers.Hash;
 import com.github.onsdigital.thetrain.helpers.PathUtils;
+import com.github.onsdigital.thetrain.helpers.SizeLimitInputStream;
+import com.github.onsdigital.thetrain.helpers.uploads.ContentRange;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.UriInfo;
 import com.github.onsdigital.thetrain.json.request.Manifest;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -29,6 +52,9 @@ import static org.junit.Assert.assertTrue;
 
 public class PublisherTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private Transaction transaction;
     private Path websiteTestPath;
 
@@ -165,6 +191,26 @@ public class PublisherTest {
     }
 
 
+    @Test
+    public void shouldRemovePartialFileIfContentFails() throws IOException {
+
+        // Given
+        // Content that fails part way through
+        String uri = "/oversized.json";
+        InputStream input = new SizeLimitInputStream(new ByteArrayInputStream(Random.bytes(64 * 1024)), 1024);
+
+        // When
+        // We add the content to the transaction
+        TransactionUpdate update = Publisher.getInstance().addContentToTransaction(transaction, uri, input, new Date(),
+                websiteTestPath);
+
+        // Then
+        // The write fails and no partial file is left in the transaction
+        assertFalse(update.isSuccess());
+        assertNull(Publisher.getInstance().getFile(transaction, uri));
+    }
+
+
     @Test
     public void shouldGetFile() throws IOException {
 
@@ -277,6 +323,40 @@ public class PublisherTest {
         }
     }
 
+    @Test
+    public void shouldCommitTransactionWithLinks() throws IOException {
+
+        // Given
+        // A publisher that links backups and committed files
+        Publisher.init(20, Publisher.DEFAULT_BUFFER_SIZE, Publisher.DEFAULT_BUFFER_MEMORY_BUDGET,
+                FileCopier.Mode.LINK, FileCopier.Mode.LINK);
+
+        try {
+            // A transaction updating an existing file on the website
+            Transaction transaction = Transactions.create();
+            String update = "/update-" + Random.id() + ".txt";
+            Path website = PathUtils.toPath(update, websiteTestPath);
+            Files.copy(tempFile(), website);
+            byte[] original = Files.readAllBytes(website);
+
+            Publisher.getInstance().addFile(transaction, update, data(), websiteTestPath);
+
+            // When
+            // We commit the transaction
+            Publisher.getInstance().commit(transaction, websiteTestPath);
+
+            // Then
+            // The website file is the file in the transaction and the backup still has the original content
+            Path content = PathUtils.toPath(update, Transactions.content(transaction));
+            Path backup = PathUtils.toPath(update, Transactions.backup(transaction));
+            assertFalse(transaction.hasErrors());
+            assertTrue(Files.isSameFile(content, website));
+            assertTrue(Arrays.equals(original, Files.readAllBytes(backup)));
+        } finally {
+            Publisher.init(20);
+        }
+    }
+
     @Test
     public void shouldCommitDeletesInTransaction() throws IOException {
 
@@ -305,6 +385,35 @@ public class PublisherTest {
         assertFalse(Files.exists(targetPath.getParent()));
     }
 
+    @Test
+    public void shouldPurgeTrashAfterCommittingDeletes() throws Exception {
+
+        // Given a transaction deleting a directory with nested content
+        Transaction transaction = Transactions.create();
+        String uri = "/some/other/uri";
+        Path targetPath = PathUtils.toPath(uri + "/nested/data.json", websiteTestPath);
+        Files.createDirectories(targetPath.getParent());
+        Files.copy(tempFile(), targetPath);
+
+        Manifest manifest = new Manifest();
+        manifest.addUriToDelete(uri);
+        manifest.addUriToDelete("/does/not/exist");
+        Publisher.getInstance().addFilesToDelete(transaction, manifest, websiteTestPath);
+
+        // When we commit the transaction
+        assertTrue(Publisher.getInstance().commit(transaction, websiteTestPath));
+
+        // Then the directory is removed from the website and purged from the transaction trash
+        assertFalse(Files.exists(PathUtils.toPath(uri, websiteTestPath)));
+
+        Path trash = Transactions.trash(transaction);
+        long timeout = System.currentTimeMillis() + 5000;
+        while (trash.toFile().list().length > 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, trash.toFile().list().length);
+    }
+
     @Test
     public void shouldReturnZeroFilesToDeleteForNullCollection() throws IOException {
 
@@ -436,6 +545,427 @@ public class PublisherTest {
 
     }
 
+    @Test
+    public void shouldAddFilesFromZip() throws IOException {
+
+        // Given a zip on disk containing a directory, small files and a file larger than the buffer size
+        Path zip = temporaryFolder.newFile("timeseries.zip").toPath();
+        byte[] large = Random.bytes(300 * 1024);
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zip))) {
+            zipOut.putNextEntry(new ZipEntry("dir/"));
+            zipOut.closeEntry();
+            for (int i = 0; i < 10; i++) {
+                zipOut.putNextEntry(new ZipEntry("dir/small-" + i + ".json"));
+                zipOut.write(Random.bytes(1024));
+                zipOut.closeEntry();
+            }
+            zipOut.putNextEntry(new ZipEntry("large.csv"));
+            zipOut.write(large);
+            zipOut.closeEntry();
+        }
+
+        // When we add the zip content to the transaction
+        boolean result = Publisher.getInstance().addFiles(transaction, "/timeseries", zip, websiteTestPath);
+
+        // Then every file entry is extracted into the transaction and recorded against it
+        assertTrue(result);
+        assertEquals(11, transaction.uris().size());
+        assertTrue(transaction.uris().contains(new UriInfo("/timeseries/large.csv")));
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(Publisher.getInstance().getFile(transaction, "/timeseries/dir/small-" + i + ".json"));
+        }
+
+        Path extracted = Publisher.getInstance().getFile(transaction, "/timeseries/large.csv");
+        assertNotNull(extracted);
+        assertTrue(Arrays.equals(large, Files.readAllBytes(extracted)));
+    }
+
+    @Test
+    public void shouldFinishAllZipEntriesWhenOneFails() throws IOException {
+
+        // Given a zip on disk with many entries and a pair of entries that cannot both be written, as one is a file
+        // and the other needs it to be a directory
+        Path zip = temporaryFolder.newFile("conflict.zip").toPath();
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zip))) {
+            zipOut.putNextEntry(new ZipEntry("conflict.json"));
+            zipOut.write(Random.bytes(1024));
+            zipOut.closeEntry();
+            zipOut.putNextEntry(new ZipEntry("conflict.json/child.json"));
+            zipOut.write(Random.bytes(1024));
+            zipOut.closeEntry();
+            for (int i = 0; i < 100; i++) {
+                byte[] bytes = Random.bytes(64 * 1024);
+                content.put("/timeseries/file-" + i + ".json", bytes);
+                zipOut.putNextEntry(new ZipEntry("file-" + i + ".json"));
+                zipOut.write(bytes);
+                zipOut.closeEntry();
+            }
+        }
+
+        // When we add the zip content to the transaction
+        boolean result;
+        try {
+            result = Publisher.getInstance().addFiles(transaction, "/timeseries", zip, websiteTestPath);
+        } catch (IOException e) {
+            result = false;
+        }
+
+        // Then the zip is not closed under the other entries, which are all extracted in full and recorded
+        assertFalse(result);
+        for (Map.Entry<String, byte[]> file : content.entrySet()) {
+            Path extracted = Publisher.getInstance().getFile(transaction, file.getKey());
+            assertNotNull(extracted);
+            assertTrue(Arrays.equals(file.getValue(), Files.readAllBytes(extracted)));
+            assertNotNull(transaction.uri(file.getKey()));
+        }
+    }
+
+    @Test
+    public void shouldAddFilesFromZipStream() throws IOException {
+
+        // Given a zip stream containing small files and a file larger than the buffer size
+        byte[] large = Random.bytes(300 * 1024);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOut = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < 50; i++) {
+                zipOut.putNextEntry(new ZipEntry("small-" + i + ".json"));
+                zipOut.write(Random.bytes(1024));
+                zipOut.closeEntry();
+            }
+            zipOut.putNextEntry(new ZipEntry("large.csv"));
+            zipOut.write(large);
+            zipOut.closeEntry();
+        }
+
+        // When we add the zip content to the transaction
+        boolean result;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            result = Publisher.getInstance().addFiles(transaction, "/timeseries", zip, websiteTestPath);
+        }
+
+        // Then every entry is extracted into the transaction and recorded against it
+        assertTrue(result);
+        assertEquals(51, transaction.uris().size());
+        for (int i = 0; i < 50; i++) {
+            assertNotNull(Publisher.getInstance().getFile(transaction, "/timeseries/small-" + i + ".json"));
+        }
+
+        Path extracted = Publisher.getInstance().getFile(transaction, "/timeseries/large.csv");
+        assertNotNull(extracted);
+        assertTrue(Arrays.equals(large, Files.readAllBytes(extracted)));
+    }
+
+    @Test
+    public void shouldSkipDirectoriesInZipStream() throws IOException {
+
+        // Given a zip stream with directory entries ahead of its files
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOut = new ZipOutputStream(bytes)) {
+            zipOut.putNextEntry(new ZipEntry("a/"));
+            zipOut.closeEntry();
+            zipOut.putNextEntry(new ZipEntry("a/data.json"));
+            zipOut.write(Random.bytes(1024));
+            zipOut.closeEntry();
+            zipOut.putNextEntry(new ZipEntry("b/"));
+            zipOut.closeEntry();
+            zipOut.putNextEntry(new ZipEntry("b/data.json"));
+            zipOut.write(Random.bytes(1024));
+            zipOut.closeEntry();
+        }
+
+        // When we add the zip content to the transaction
+        boolean result;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            result = Publisher.getInstance().addFiles(transaction, "/timeseries", zip, websiteTestPath);
+        }
+
+        // Then the files after the directories are extracted and recorded
+        assertTrue(result);
+        assertEquals(2, transaction.uris().size());
+        assertNotNull(Publisher.getInstance().getFile(transaction, "/timeseries/a/data.json"));
+        assertNotNull(Publisher.getInstance().getFile(transaction, "/timeseries/b/data.json"));
+    }
+
+    @Test
+    public void shouldRecordFilesWrittenBeforeZipStreamFails() throws IOException {
+
+        // Given a zip stream that fails part way through its entries
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOut = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < 50; i++) {
+                zipOut.putNextEntry(new ZipEntry("small-" + i + ".json"));
+                zipOut.write(Random.bytes(1024));
+                zipOut.closeEntry();
+            }
+        }
+        byte[] zipped = bytes.toByteArray();
+        InputStream failing = new SequenceInputStream(new ByteArrayInputStream(zipped, 0, zipped.length / 2),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("connection reset");
+                    }
+                });
+
+        // When we add the zip content to the transaction
+        try (ZipInputStream zip = new ZipInputStream(failing)) {
+            Publisher.getInstance().addFiles(transaction, "/timeseries", zip, websiteTestPath);
+            Assert.fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+
+        // Then the files written before the failure are recorded against the transaction
+        assertFalse(transaction.uris().isEmpty());
+        for (UriInfo uriInfo : transaction.uris()) {
+            assertNotNull(Publisher.getInstance().getFile(transaction, uriInfo.uri()));
+        }
+    }
+
+    @Test
+    public void shouldAddBatchOfFiles() throws IOException {
+
+        // Given a batch of files keyed by their URIs
+        Map<String, Callable<InputStream>> files = new LinkedHashMap<>();
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            byte[] bytes = Random.bytes(1024);
+            String uri = "/economy/page-" + i + "/data.json";
+            content.put(uri, bytes);
+            files.put(uri, () -> new ByteArrayInputStream(bytes));
+        }
+
+        // When we add the batch to the transaction
+        boolean result = Publisher.getInstance().addFiles(transaction, files, websiteTestPath);
+
+        // Then every file is written into the transaction and recorded against it
+        assertTrue(result);
+        assertEquals(50, transaction.uris().size());
+        for (Map.Entry<String, byte[]> file : content.entrySet()) {
+            Path written = Publisher.getInstance().getFile(transaction, file.getKey());
+            assertNotNull(written);
+            assertTrue(Arrays.equals(file.getValue(), Files.readAllBytes(written)));
+        }
+    }
+
+    @Test
+    public void shouldRecordRestOfBatchWhenOneFileFails() throws IOException {
+
+        // Given a batch in which one file cannot be read
+        Map<String, Callable<InputStream>> files = new LinkedHashMap<>();
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        files.put("/economy/broken/data.json", () -> {
+            throw new IOException("part temp file missing");
+        });
+        for (int i = 0; i < 50; i++) {
+            byte[] bytes = Random.bytes(64 * 1024);
+            String uri = "/economy/page-" + i + "/data.json";
+            content.put(uri, bytes);
+            files.put(uri, () -> new ByteArrayInputStream(bytes));
+        }
+
+        // When we add the batch to the transaction
+        try {
+            Publisher.getInstance().addFiles(transaction, files, websiteTestPath);
+            Assert.fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+
+        // Then every other file was written in full and recorded before the failure was reported
+        assertEquals(50, transaction.uris().size());
+        for (Map.Entry<String, byte[]> file : content.entrySet()) {
+            Path written = Publisher.getInstance().getFile(transaction, file.getKey());
+            assertNotNull(written);
+            assertTrue(Arrays.equals(file.getValue(), Files.readAllBytes(written)));
+        }
+    }
+
+    @Test
+    public void shouldResumeInterruptedUpload() throws Exception {
+
+        // Given the first range of a file is interrupted part way through
+        byte[] file = Random.bytes(300 * 1024);
+        String uri = "/datasets/large.csv";
+        InputStream interrupted = new SequenceInputStream(new ByteArrayInputStream(file, 0, 1000),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("connection reset");
+                    }
+                });
+        try {
+            Publisher.getInstance().addContentRangeToTransaction(transaction, uri, interrupted,
+                    ContentRange.parse("bytes 0-" + (file.length - 1) + "/" + file.length), new Date(),
+                    websiteTestPath);
+        } catch (IOException e) {
+            // expected
+        }
+
+        // When the rest of the file is sent from the bytes received so far
+        long received = Publisher.getInstance().uploadProgress(transaction, uri).getReceived();
+        UploadProgress progress = Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                new ByteArrayInputStream(file, (int) received, file.length - (int) received),
+                ContentRange.parse("bytes " + received + "-" + (file.length - 1) + "/" + file.length), new Date(),
+                websiteTestPath);
+
+        // Then only the missing bytes were sent and the complete file is added to the transaction and hashed
+        assertEquals(1000, received);
+        assertTrue(progress.isAccepted());
+        assertTrue(progress.isComplete());
+        assertEquals(file.length, progress.getReceived());
+        assertEquals(DigestUtils.sha1Hex(file), progress.getSha1());
+        assertEquals(uri, progress.getUpdate().getUriInfo().uri());
+        UploadProgress status = Publisher.getInstance().uploadProgress(transaction, uri);
+        assertTrue(status.isComplete());
+        assertEquals(file.length, status.getReceived());
+        assertEquals(DigestUtils.sha1Hex(file), status.getSha1());
+
+        Path published = Publisher.getInstance().getFile(transaction, uri);
+        assertNotNull(published);
+        assertTrue(Arrays.equals(file, Files.readAllBytes(published)));
+    }
+
+    @Test
+    public void shouldRejectRangeAfterBytesReceived() throws Exception {
+
+        // Given the first 100 bytes of a file have been received
+        byte[] file = Random.bytes(1000);
+        String uri = "/datasets/small.csv";
+        UploadProgress first = Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                new ByteArrayInputStream(file, 0, 100), ContentRange.parse("bytes 0-99/1000"), new Date(),
+                websiteTestPath);
+
+        // When a range leaving a gap is sent
+        UploadProgress gap = Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                new ByteArrayInputStream(file, 200, 800), ContentRange.parse("bytes 200-999/1000"), new Date(),
+                websiteTestPath);
+
+        // Then it is rejected and the file is not added to the transaction
+        assertTrue(first.isAccepted());
+        assertFalse(first.isComplete());
+        assertEquals(100, first.getReceived());
+        assertFalse(gap.isAccepted());
+        assertEquals(UploadProgress.State.GAP, gap.getState());
+        assertEquals(100, gap.getReceived());
+        assertNull(Publisher.getInstance().getFile(transaction, uri));
+    }
+
+    @Test
+    public void shouldRejectRangeNotFittingDeclaredTotal() throws Exception {
+
+        // Given the first range of a file declaring its total size
+        byte[] file = Random.bytes(1000);
+        String uri = "/datasets/sized.csv";
+        Publisher.getInstance().addContentRangeToTransaction(transaction, uri, new ByteArrayInputStream(file, 0, 100),
+                ContentRange.parse("bytes 0-99/1000"), new Date(), websiteTestPath);
+
+        // When later ranges declare a different total or run past it
+        UploadProgress otherTotal = Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                new ByteArrayInputStream(file, 100, 100), ContentRange.parse("bytes 100-199/2000"), new Date(),
+                websiteTestPath);
+        UploadProgress pastTotal = Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                new ByteArrayInputStream(new byte[1000]), ContentRange.parse("bytes 100-1099/*"), new Date(),
+                websiteTestPath);
+
+        // Then both are rejected
+        assertEquals(UploadProgress.State.TOTAL_MISMATCH, otherTotal.getState());
+        assertEquals(1000, otherTotal.getTotal());
+        assertEquals(UploadProgress.State.TOTAL_MISMATCH, pastTotal.getState());
+        assertEquals(100, Publisher.getInstance().uploadProgress(transaction, uri).getReceived());
+
+        // And a range without a total completes the file once it reaches the declared total
+        UploadProgress last = Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                new ByteArrayInputStream(file, 100, 900), ContentRange.parse("bytes 100-999/*"), new Date(),
+                websiteTestPath);
+        assertTrue(last.isComplete());
+        assertEquals(DigestUtils.sha1Hex(file), last.getSha1());
+    }
+
+    @Test
+    public void shouldReportBusyWhileAnotherRangeIsWritten() throws Exception {
+
+        // Given a range of an upload being written
+        String uri = "/datasets/busy.csv";
+        Publisher.getInstance().addContentRangeToTransaction(transaction, uri, new ByteArrayInputStream(new byte[10]),
+                ContentRange.parse("bytes 0-9/100"), new Date(), websiteTestPath);
+        Path partial = PathUtils.toPath(uri, Transactions.uploads(transaction));
+
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+
+            // When another range of the same upload is sent
+            UploadProgress busy = Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                    new ByteArrayInputStream(new byte[10]), ContentRange.parse("bytes 10-19/100"), new Date(),
+                    websiteTestPath);
+
+            // Then it is reported as busy rather than as a gap
+            assertFalse(busy.isAccepted());
+            assertEquals(UploadProgress.State.BUSY, busy.getState());
+        }
+    }
+
+    @Test
+    public void shouldNotWriteToUploadCompletedByConcurrentRange() throws Exception {
+
+        // Given the last range of an upload sent several times at once, as a client retrying a request might
+        byte[] file = Random.bytes(1000);
+        List<Callable<UploadProgress>> ranges = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            String uri = "/datasets/concurrent" + i + ".csv";
+            Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                    new ByteArrayInputStream(file, 0, 900), ContentRange.parse("bytes 0-899/1000"), new Date(),
+                    websiteTestPath);
+            ranges.clear();
+            for (int j = 0; j < 4; j++) {
+                ranges.add(() -> Publisher.getInstance().addContentRangeToTransaction(transaction, uri,
+                        new ByteArrayInputStream(file, 900, 100), ContentRange.parse("bytes 900-999/1000"), new Date(),
+                        websiteTestPath));
+            }
+
+            // When the ranges are written concurrently
+            ExecutorService pool = Executors.newFixedThreadPool(ranges.size());
+            int completed = 0;
+            try {
+                for (Future<UploadProgress> result : pool.invokeAll(ranges)) {
+
+                    // Then each one either completes the upload, finds it complete or is told to retry
+                    UploadProgress progress = result.get();
+                    assertTrue(progress.getState().toString(), progress.getState() == UploadProgress.State.COMPLETE
+                            || progress.getState() == UploadProgress.State.BUSY);
+                    if (progress.getUpdate() != null) {
+                        completed++;
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+
+            // And the upload is added to the transaction once, intact
+            assertEquals(1, completed);
+            Path content = PathUtils.toPath(uri, Transactions.content(transaction));
+            assertTrue(Arrays.equals(file, Files.readAllBytes(content)));
+            assertFalse(Files.exists(PathUtils.toPath(uri, Transactions.uploads(transaction))));
+        }
+    }
+
+    @Test
+    public void shouldNotReportFileAddedWithoutUploadAsComplete() throws IOException {
+
+        // Given a file added to the transaction without a resumable upload
+        String uri = "/datasets/added.csv";
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+
+        // When the upload progress is requested
+        UploadProgress progress = Publisher.getInstance().uploadProgress(transaction, uri);
+
+        // Then nothing has been uploaded
+        assertFalse(progress.isComplete());
+        assertEquals(0, progress.getReceived());
+    }
+
     private static InputStream data() throws IOException {
         return Random.inputStream(5000);
     }
@@ -0,0 +1,119 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TransactionCache}.
+ */
+public class TransactionCacheTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("transaction-cache");
+    }
+
+    @Test
+    public void shouldReturnCachedTransactionWhileFilesAreUnchanged() throws IOException {
+
+        // Given
+        // A cached transaction
+        Path transactionPath = transactionFiles("a", 100);
+        TransactionCache cache = new TransactionCache(1000);
+        Transaction transaction = new Transaction();
+        cache.put("a", TransactionCache.Stamp.of(transactionPath), transaction);
+
+        // When
+        // We look it up with the current stamp of its files
+        Transaction cached = cache.get("a", TransactionCache.Stamp.of(transactionPath));
+
+        // Then
+        // The cached transaction is returned
+        assertTrue(cached == transaction);
+        assertEquals(1, cache.hits());
+        assertEquals(0, cache.misses());
+        assertEquals(100, cache.weight());
+    }
+
+    @Test
+    public void shouldNotReturnStaleTransaction() throws IOException {
+
+        // Given
+        // A cached transaction
+        Path transactionPath = transactionFiles("a", 100);
+        TransactionCache cache = new TransactionCache(1000);
+        cache.put("a", TransactionCache.Stamp.of(transactionPath), new Transaction());
+
+        // When
+        // The journal is written and we look the transaction up
+        Files.write(transactionPath.resolve(TransactionJournal.JOURNAL), new byte[10]);
+        Transaction cached = cache.get("a", TransactionCache.Stamp.of(transactionPath));
+
+        // Then
+        // The stale entry is removed
+        assertNull(cached);
+        assertEquals(1, cache.misses());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedTransactions() throws IOException {
+
+        // Given
+        // A cache with room for two transactions
+        TransactionCache cache = new TransactionCache(250);
+        TransactionCache.Stamp a = TransactionCache.Stamp.of(transactionFiles("a", 100));
+        TransactionCache.Stamp b = TransactionCache.Stamp.of(transactionFiles("b", 100));
+        TransactionCache.Stamp c = TransactionCache.Stamp.of(transactionFiles("c", 100));
+        cache.put("a", a, new Transaction());
+        cache.put("b", b, new Transaction());
+
+        // When
+        // We use the first and add a third
+        cache.get("a", a);
+        cache.put("c", c, new Transaction());
+
+        // Then
+        // The least recently used is evicted
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+        assertEquals(200, cache.weight());
+        assertNull(cache.get("b", b));
+    }
+
+    @Test
+    public void shouldNotCacheTransactionLargerThanCache() throws IOException {
+
+        // Given
+        // A transaction larger than the cache
+        TransactionCache cache = new TransactionCache(50);
+        TransactionCache.Stamp stamp = TransactionCache.Stamp.of(transactionFiles("a", 100));
+
+        // When
+        // We cache it
+        cache.put("a", stamp, new Transaction());
+
+        // Then
+        // It is not cached
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a", stamp));
+    }
+
+    private Path transactionFiles(String id, int size) throws IOException {
+        Path transactionPath = Files.createDirectory(directory.resolve(id));
+        Files.write(transactionPath.resolve(Transactions.JSON), new byte[size]);
+        return transactionPath;
+    }
+}
@@ -0,0 +1,272 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.github.onsdigital.thetrain.json.RetentionReport;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.request.Manifest;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TransactionRetention}.
+ */
+public class TransactionRetentionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Path transactionStore;
+    private Path archiveDir;
+
+    @BeforeClass
+    public static void preSetup() {
+        Publisher.init(4);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        transactionStore = Files.createTempDirectory("transaction-store");
+        archiveDir = Files.createTempDirectory("transaction-archive");
+        Transactions.init(transactionStore);
+    }
+
+    @Test
+    public void shouldPreviewWithoutArchiving() throws Exception {
+
+        // Given
+        // Closed transactions closed one day apart and an open transaction
+        List<Transaction> closed = closedTransactions(3);
+        Transaction open = Transactions.create();
+        TransactionRetention retention = new TransactionRetention(transactionStore, archiveDir,
+                new RetentionPolicy(0, 1, 0), 0, 0);
+
+        // When
+        // We preview the policy
+        RetentionReport report = retention.preview();
+
+        // Then
+        // The older closed transactions would be archived but nothing is changed
+        assertTrue(report.dryRun);
+        assertEquals(4, report.scanned);
+        assertEquals(1, report.retained);
+        assertEquals(2, report.expired.size());
+        assertEquals(closed.get(1).id(), report.expired.get(0).id);
+        assertEquals(closed.get(2).id(), report.expired.get(1).id);
+        assertTrue(report.expired.get(0).bytes > 0);
+        for (Transaction transaction : closed) {
+            assertTrue(Files.exists(Transactions.path(transaction.id())));
+        }
+        assertTrue(Files.exists(Transactions.path(open.id())));
+    }
+
+    @Test
+    public void shouldArchiveTransactionsOutsidePolicy() throws Exception {
+
+        // Given
+        // Closed transactions closed one day apart
+        List<Transaction> closed = closedTransactions(3);
+        TransactionRetention retention = new TransactionRetention(transactionStore, archiveDir,
+                new RetentionPolicy(TimeUnit.HOURS.toMillis(36), 0, 0), 1024 * 1024, 0);
+
+        // When
+        // We apply a policy keeping transactions for a day and a half
+        RetentionReport report = retention.run();
+
+        // Then
+        // The transactions closed two or more days ago are archived and removed
+        assertFalse(report.dryRun);
+        assertEquals(2, report.retained);
+        assertEquals(1, report.archived);
+        assertEquals(0, report.failed);
+        Transaction archived = closed.get(2);
+        assertFalse(Files.exists(Transactions.path(archived.id())));
+        assertNull(Transactions.get(archived.id()));
+        assertTrue(Files.exists(Transactions.path(closed.get(1).id())));
+
+        // And the archive holds the whole transaction directory
+        Path archive = TransactionRetention.archivePath(archiveDir, archived.id());
+        Set<String> entries = new HashSet<>();
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                entries.add(entry.getName());
+            }
+        }
+        assertTrue(entries.contains(Transactions.JSON));
+        assertTrue(entries.contains(Transactions.CONTENT + "/"));
+        assertTrue(entries.contains(Transactions.CONTENT + "/data.json"));
+        assertNotNull(retention.status().lastRun);
+    }
+
+    @Test
+    public void shouldKeepTransactionsWithinSizeLimit() throws Exception {
+
+        // Given
+        // Closed transactions of the same size
+        List<Transaction> closed = closedTransactions(3);
+        long size = transactionSize(closed.get(0));
+        TransactionRetention retention = new TransactionRetention(transactionStore, archiveDir,
+                new RetentionPolicy(0, 0, size * 2), 0, 0);
+
+        // When
+        // We preview a policy with room for two of them
+        RetentionReport report = retention.preview();
+
+        // Then
+        // The oldest is archived
+        assertEquals(2, report.retained);
+        assertEquals(1, report.expired.size());
+        assertEquals(closed.get(2).id(), report.expired.get(0).id);
+    }
+
+    @Test
+    public void shouldArchiveTransactionOnceTrashIsPurged() throws Exception {
+
+        // Given
+        // A committed transaction that deleted content from the website
+        Path website = Files.createTempDirectory("website");
+        Path deleted = website.resolve("some/uri/data.json");
+        Files.createDirectories(deleted.getParent());
+        Files.write(deleted, "{}".getBytes());
+        Transaction transaction = Transactions.create();
+        Manifest manifest = new Manifest();
+        manifest.addUriToDelete("/some/uri");
+        Publisher.getInstance().addFilesToDelete(transaction, manifest, website);
+        assertTrue(Publisher.getInstance().commit(transaction, website));
+        Transactions.update(transaction);
+
+        // And
+        // The deleted content has been purged from the trash
+        Path trash = Transactions.trash(transaction);
+        long timeout = System.currentTimeMillis() + 5000;
+        while (trash.toFile().list().length > 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(10);
+
+        // When
+        // We apply a policy that archives every closed transaction
+        TransactionRetention retention = new TransactionRetention(transactionStore, archiveDir,
+                new RetentionPolicy(1, 0, 0), 0, 0);
+        RetentionReport report = retention.run();
+
+        // Then
+        // The transaction is archived despite its empty trash directory
+        assertEquals(1, report.archived);
+        assertFalse(Files.exists(Transactions.path(transaction.id())));
+        assertTrue(Files.exists(TransactionRetention.archivePath(archiveDir, transaction.id())));
+    }
+
+    @Test
+    public void shouldNotBeEnabledWithoutPolicy() {
+
+        // Given
+        // A retention service with an interval but no limits
+        TransactionRetention retention = new TransactionRetention(transactionStore, archiveDir,
+                new RetentionPolicy(0, 0, 0), 0, 1000);
+
+        // Then
+        // It does not run in the background
+        assertFalse(retention.isEnabled());
+        assertFalse(retention.status().enabled);
+    }
+
+    @Test
+    public void shouldFallBackToTransactionFileTimeWithoutEndDate() throws Exception {
+
+        // Given
+        // Closed transactions without a recorded end date, whose transaction files were written a day apart
+        List<Transaction> closed = closedTransactions(3);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < closed.size(); i++) {
+            Path json = Transactions.path(closed.get(i).id()).resolve(Transactions.JSON);
+            ObjectNode node = (ObjectNode) objectMapper.readTree(json.toFile());
+            node.remove("endDate");
+            objectMapper.writeValue(json.toFile(), node);
+            Files.setLastModifiedTime(json, FileTime.fromMillis(now - TimeUnit.DAYS.toMillis(i)));
+        }
+        TransactionRetention retention = new TransactionRetention(transactionStore, archiveDir,
+                new RetentionPolicy(TimeUnit.HOURS.toMillis(36), 0, 0), 0, 0);
+
+        // When
+        // We preview a policy keeping transactions for a day and a half
+        RetentionReport report = retention.preview();
+
+        // Then
+        // The transaction whose file was written two days ago would be archived
+        assertEquals(1, report.expired.size());
+        assertEquals(closed.get(2).id(), report.expired.get(0).id);
+    }
+
+    @Test
+    public void shouldOnlySizeClosedTransactionsOnce() throws Exception {
+
+        // Given
+        // A policy that sizes every transaction, previewed once
+        List<Transaction> closed = closedTransactions(2);
+        long size = transactionSize(closed.get(0));
+        TransactionRetention retention = new TransactionRetention(transactionStore, archiveDir,
+                new RetentionPolicy(0, 0, size * 2), 0, 0);
+        assertEquals(0, retention.preview().expired.size());
+
+        // When
+        // A file appears in a transaction and the policy is previewed again
+        Files.write(Transactions.path(closed.get(0).id()).resolve(Transactions.CONTENT).resolve("more.json"),
+                new byte[1024]);
+        RetentionReport report = retention.preview();
+
+        // Then
+        // The cached size is used rather than walking the transaction again
+        assertEquals(2, report.retained);
+        assertEquals(0, report.expired.size());
+    }
+
+    /**
+     * Create closed transactions, newest first, each closed a day before the last. The transaction files are all
+     * written now, so only the recorded end date tells them apart.
+     */
+    private List<Transaction> closedTransactions(int count) throws IOException {
+        List<Transaction> result = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = Transactions.create();
+            Files.write(Transactions.path(transaction.id()).resolve(Transactions.CONTENT).resolve("data.json"),
+                    "{}".getBytes());
+            transaction.commit(true);
+            Transactions.end(transaction);
+            Transactions.update(transaction);
+            Path json = Transactions.path(transaction.id()).resolve(Transactions.JSON);
+            ObjectNode node = (ObjectNode) objectMapper.readTree(json.toFile());
+            node.put("endDate", DateConverter.toString(now - TimeUnit.DAYS.toMillis(i)));
+            objectMapper.writeValue(json.toFile(), node);
+            result.add(transaction);
+        }
+        return result;
+    }
+
+    private long transactionSize(Transaction transaction) throws IOException {
+        Path path = Transactions.path(transaction.id());
+        return Files.size(path.resolve(Transactions.JSON))
+                + Files.size(path.resolve(Transactions.CONTENT).resolve("data.json"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TransactionStoreMigration}.
+ */
+public class TransactionStoreMigrationTest {
+
+    @Test
+    public void shouldMoveLegacyTransactionsIntoShardedLayout() throws Exception {
+
+        // Given
+        // Transactions in the legacy flat layout
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Transaction transaction = Transactions.create();
+            transaction.addUri(new UriInfo("/" + i + ".json"));
+            Transactions.update(transaction);
+            Transactions.end(transaction);
+            Files.move(Transactions.path(transaction.id()), transactionStore.resolve(transaction.id()));
+            transactions.add(transaction);
+        }
+
+        // When
+        // We migrate the store
+        int failed = TransactionStoreMigration.migrate(transactionStore, 4);
+
+        // Then
+        // Every transaction is moved into the sharded layout intact
+        assertEquals(0, failed);
+        for (Transaction transaction : transactions) {
+            assertFalse(Files.exists(transactionStore.resolve(transaction.id())));
+            Path sharded = Transactions.shardedPath(transactionStore, transaction.id());
+            assertEquals(sharded, Transactions.path(transaction.id()));
+            assertTrue(Files.isDirectory(sharded.resolve(Transactions.CONTENT)));
+            assertEquals(1, Transactions.get(transaction.id()).uris().size());
+        }
+
+        // And migrating again has nothing to do
+        assertEquals(0, TransactionStoreMigration.migrate(transactionStore, 4));
+        assertEquals(20, Transactions.transactionDirectories(transactionStore).size());
+    }
+}
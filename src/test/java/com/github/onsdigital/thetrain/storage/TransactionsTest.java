@@ -11,7 +11,14 @@ import org.junit.Test;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -109,6 +116,30 @@ public class TransactionsTest {
         }
     }
 
+    @Test
+    public void shouldListFilesWithoutChangingSharedTransaction() throws IOException {
+
+        // Given
+        // A closed transaction with a file, read from disk twice
+        Transaction transaction = Transactions.create();
+        Files.write(Transactions.content(transaction).resolve("data.json"), "{}".getBytes());
+        transaction.commit(true);
+        Transactions.end(transaction);
+        Transactions.update(transaction);
+        Transaction first = Transactions.get(transaction.id());
+        Transaction second = Transactions.get(transaction.id());
+
+        // When
+        // We list the files of one of them
+        Map<String, List<String>> files = Transactions.listFiles(second);
+
+        // Then
+        // The files are listed and the other reference is unchanged
+        assertEquals(Collections.singletonList("/data.json"), files.get("content"));
+        assertNull(first.files);
+        assertNull(second.files);
+    }
+
     /**
      * Tests that a transaction can be created and ended.
      */
@@ -120,16 +151,14 @@ public class TransactionsTest {
         Transaction transaction = Transactions.create();
 
         assertTrue(Transactions.getTransactionMap().containsKey(transaction.id()));
-        assertTrue(Transactions.getTransactionExecutorMap().containsKey(transaction.id()));
 
         // When
         // We end the transaction
         Transactions.end(transaction);
 
         // Then
-        // The transaction maps should not contain entries for the transaction
+        // The transaction map should not contain an entry for the transaction
         assertFalse(Transactions.getTransactionMap().containsKey(transaction.id()));
-        assertFalse(Transactions.getTransactionExecutorMap().containsKey(transaction.id()));
     }
 
     /**
@@ -356,4 +385,347 @@ public class TransactionsTest {
         assertNull(backup);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldJournalAsyncUpdates() throws Exception {
+
+        // Given
+        // A transaction with URIs and an error added
+        Transaction transaction = Transactions.create();
+        Path json = Transactions.path(transaction.id()).resolve(Transactions.JSON);
+        Path journal = Transactions.path(transaction.id()).resolve(TransactionJournal.JOURNAL);
+        byte[] snapshot = Files.readAllBytes(json);
+
+        UriInfo first = new UriInfo("/first.json");
+        UriInfo second = new UriInfo("/second.json");
+        transaction.addUri(first);
+        assertTrue(Transactions.tryUpdateAsync(transaction.id()).get());
+        transaction.addUri(second);
+        transaction.addError("error");
+        assertTrue(Transactions.tryUpdateAsync(transaction.id()).get());
+
+        // When
+        // We read the transaction back from disk
+        Transactions.end(transaction);
+        Transaction read = Transactions.get(transaction.id());
+
+        // Then
+        // The changes were appended to the journal rather than rewriting the transaction file
+        assertEquals(2, Files.readAllLines(journal).size());
+        assertTrue(Arrays.equals(snapshot, Files.readAllBytes(json)));
+
+        // And replaying the journal restores the changes
+        assertEquals(Transaction.PUBLISHING, read.getStatus());
+        assertEquals(2, read.uris().size());
+        assertTrue(read.uris().contains(first));
+        assertTrue(read.uris().contains(second));
+        assertEquals(1, read.errors().size());
+    }
+
+    @Test
+    public void shouldReplayJournalIdempotently() throws Exception {
+
+        // Given
+        // A transaction whose journal changes are also in the transaction file,
+        // as happens if compaction is interrupted before the journal is deleted
+        Transaction transaction = Transactions.create();
+        transaction.addUri(new UriInfo("/uri.json"));
+        transaction.addError("error");
+        Transactions.tryUpdateAsync(transaction.id()).get();
+
+        Path transactionPath = Transactions.path(transaction.id());
+        Path journal = transactionPath.resolve(TransactionJournal.JOURNAL);
+        byte[] journalled = Files.readAllBytes(journal);
+        Transactions.update(transaction);
+        Files.write(journal, journalled);
+
+        // When
+        // We read the transaction back from disk
+        Transactions.end(transaction);
+        Transaction read = Transactions.get(transaction.id());
+
+        // Then
+        // The changes are only applied once
+        assertEquals(1, read.uris().size());
+        assertEquals(1, read.errors().size());
+    }
+
+    @Test
+    public void shouldIgnorePartialJournalEntry() throws Exception {
+
+        // Given
+        // A transaction journal ending with a partially written entry
+        Transaction transaction = Transactions.create();
+        transaction.addUri(new UriInfo("/uri.json"));
+        Transactions.tryUpdateAsync(transaction.id()).get();
+
+        Path journal = Transactions.path(transaction.id()).resolve(TransactionJournal.JOURNAL);
+        Files.write(journal, "{\"uriInfos\":[{\"ur".getBytes(), StandardOpenOption.APPEND);
+
+        // When
+        // We read the transaction back from disk
+        Transactions.end(transaction);
+        Transaction read = Transactions.get(transaction.id());
+
+        // Then
+        // The complete entries are replayed
+        assertEquals(1, read.uris().size());
+    }
+
+    @Test
+    public void shouldKeepChangesAppendedAfterPartialJournalEntry() throws Exception {
+
+        // Given
+        // A recovered transaction whose journal ended with a partially written entry
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+        Transaction transaction = Transactions.create();
+        transaction.addUri(new UriInfo("/uri.json"));
+        Transactions.tryUpdateAsync(transaction.id()).get();
+
+        Path journal = Transactions.path(transaction.id()).resolve(TransactionJournal.JOURNAL);
+        Files.write(journal, "{\"uriInfos\":[{\"ur".getBytes(), StandardOpenOption.APPEND);
+
+        Transactions.init(transactionStore);
+        Transactions.recover(1);
+        Transaction recovered = Transactions.getTransactionMap().get(transaction.id());
+
+        // When
+        // A further change is appended to the journal and the transaction is read back from disk
+        recovered.addUri(new UriInfo("/another.json"));
+        assertTrue(Transactions.tryUpdateAsync(transaction.id()).get());
+        Transactions.end(recovered);
+        Transaction read = Transactions.get(transaction.id());
+
+        // Then
+        // The partial entry was discarded and the new change is replayed
+        assertEquals(2, Files.readAllLines(journal).size());
+        assertEquals(2, read.uris().size());
+    }
+
+    @Test
+    public void shouldRemoveJournalOnUpdate() throws Exception {
+
+        // Given
+        // A transaction with journalled changes
+        Transaction transaction = Transactions.create();
+        transaction.addUri(new UriInfo("/uri.json"));
+        Transactions.tryUpdateAsync(transaction.id()).get();
+        Path journal = Transactions.path(transaction.id()).resolve(TransactionJournal.JOURNAL);
+        assertTrue(Files.exists(journal));
+
+        // When
+        // We write the full transaction
+        Transactions.update(transaction);
+
+        // Then
+        // The journal is removed and the transaction file holds the changes
+        assertFalse(Files.exists(journal));
+        Transactions.end(transaction);
+        assertEquals(1, Transactions.get(transaction.id()).uris().size());
+    }
+
+    @Test
+    public void shouldCompactJournal() throws Exception {
+
+        // Given
+        // A transaction with enough URIs added to outgrow the minimum journal size
+        Transaction transaction = Transactions.create();
+        Path journal = Transactions.path(transaction.id()).resolve(TransactionJournal.JOURNAL);
+        int uris = 0;
+        boolean compacted = false;
+
+        // When
+        // We add them in batches, updating asynchronously after each batch
+        while (uris < 50000 && !compacted) {
+            List<UriInfo> batch = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                batch.add(new UriInfo("/" + Random.id() + ".json", new Date()));
+            }
+            transaction.addUris(batch);
+            uris += batch.size();
+            assertTrue(Transactions.tryUpdateAsync(transaction.id()).get());
+            compacted = !Files.exists(journal);
+        }
+
+        // Then
+        // The journal is compacted into the transaction file without losing any changes
+        assertTrue(compacted);
+        Transactions.end(transaction);
+        assertEquals(uris, Transactions.get(transaction.id()).uris().size());
+    }
+
+    @Test
+    public void shouldCoalesceAsyncUpdates() throws Exception {
+
+        // Given
+        // A transaction store with a flush interval
+        Transactions.init(Files.createTempDirectory("transaction-store"), 200, 1, Durability.NONE,
+                Durability.FILE_AND_DIRECTORY, Transactions.DEFAULT_CACHE_SIZE);
+        Transaction transaction = Transactions.create();
+        long coalesced = Transactions.getCoalescedWriteCount();
+
+        // When
+        // We make a burst of changes, updating after each
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            transaction.addUri(new UriInfo("/" + i + ".json"));
+            futures.add(Transactions.tryUpdateAsync(transaction.id()));
+        }
+
+        // Then
+        // A single write covers every change
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+            assertTrue(future == futures.get(0));
+        }
+        assertEquals(9, Transactions.getCoalescedWriteCount() - coalesced);
+
+        Path journal = Transactions.path(transaction.id()).resolve(TransactionJournal.JOURNAL);
+        assertEquals(1, Files.readAllLines(journal).size());
+
+        // And changes made after the write has run are written by a new update
+        transaction.addUri(new UriInfo("/last.json"));
+        Future<Boolean> next = Transactions.tryUpdateAsync(transaction.id());
+        assertTrue(next != futures.get(0));
+        assertTrue(next.get());
+        assertEquals(2, Files.readAllLines(journal).size());
+
+        Transactions.end(transaction);
+        assertEquals(11, Transactions.get(transaction.id()).uris().size());
+    }
+
+    @Test
+    public void shouldCacheTransactionReadFromDisk() throws Exception {
+
+        // Given
+        // An ended transaction that is only on disk
+        Transaction transaction = Transactions.create();
+        transaction.addUri(new UriInfo("/uri.json"));
+        Transactions.end(transaction);
+        long hits = Transactions.getCacheHitCount();
+        long misses = Transactions.getCacheMissCount();
+
+        // When
+        // We read it twice
+        Transaction first = Transactions.get(transaction.id());
+        Transaction second = Transactions.get(transaction.id());
+
+        // Then
+        // The second read is served from the cache
+        assertTrue(first == second);
+        assertEquals(1, Transactions.getCacheMissCount() - misses);
+        assertEquals(1, Transactions.getCacheHitCount() - hits);
+
+        // And a change to the transaction files is picked up by the next read
+        transaction.addUri(new UriInfo("/other.json"));
+        Transactions.update(transaction);
+        Transaction third = Transactions.get(transaction.id());
+        assertTrue(third != second);
+        assertEquals(2, third.uris().size());
+        assertEquals(2, Transactions.getCacheMissCount() - misses);
+    }
+
+    @Test
+    public void shouldRecoverOpenTransactions() throws Exception {
+
+        // Given
+        // An open transaction with journalled changes, a closed transaction and a directory that is not a transaction
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+        Transaction open = Transactions.create();
+        open.addUri(new UriInfo("/open.json"));
+        Transactions.tryUpdateAsync(open.id()).get();
+        Transaction closed = Transactions.create();
+        closed.commit(true);
+        Transactions.end(closed);
+        Transactions.update(closed);
+        Files.createDirectory(transactionStore.resolve("not-a-transaction"));
+
+        // When
+        // The store is reinitialised, as on a restart, and recovered
+        Transactions.init(transactionStore);
+        TransactionRecovery recovery = Transactions.recover(2);
+
+        // Then
+        // Only the open transaction is back in memory, with its changes
+        assertEquals(3, recovery.scanned());
+        assertEquals(1, recovery.recovered());
+        assertEquals(2, recovery.skipped());
+        assertEquals(0, recovery.failed());
+        assertEquals(1, Transactions.getTransactionMap().size());
+        Transaction recovered = Transactions.getTransactionMap().get(open.id());
+        assertEquals(1, recovered.uris().size());
+
+        // And further changes are written again
+        recovered.addUri(new UriInfo("/another.json"));
+        assertTrue(Transactions.tryUpdateAsync(open.id()).get());
+        Transactions.end(recovered);
+        assertEquals(2, Transactions.get(open.id()).uris().size());
+    }
+
+    @Test
+    public void shouldCountUnreadableTransactionsAsFailed() throws Exception {
+
+        // Given
+        // A transaction file that cannot be read
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+        Path transactionPath = Files.createDirectory(transactionStore.resolve("corrupt"));
+        Files.write(transactionPath.resolve(Transactions.JSON), "[]".getBytes());
+
+        // When
+        // We recover
+        TransactionRecovery recovery = Transactions.recover(1);
+
+        // Then
+        // The transaction is counted as failed
+        assertEquals(1, recovery.failed());
+        assertEquals(0, recovery.recovered());
+        assertTrue(Transactions.getTransactionMap().isEmpty());
+    }
+
+    @Test
+    public void shouldStoreTransactionInShardedDirectory() throws Exception {
+
+        // Given
+        // A transaction store
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+
+        // When
+        // We create a transaction
+        Transaction transaction = Transactions.create();
+
+        // Then
+        // It is stored under directories named after the start of its ID
+        String id = transaction.id();
+        Path expected = transactionStore.resolve(id.substring(0, 2)).resolve(id.substring(2, 4)).resolve(id);
+        assertEquals(expected, Transactions.path(id));
+        assertTrue(Files.exists(expected.resolve(Transactions.JSON)));
+    }
+
+    @Test
+    public void shouldGetTransactionInLegacyLayout() throws Exception {
+
+        // Given
+        // A transaction stored directly under the transaction store
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+        Transaction transaction = Transactions.create();
+        Transactions.end(transaction);
+        Path legacy = transactionStore.resolve(transaction.id());
+        Files.move(Transactions.path(transaction.id()), legacy);
+
+        // When
+        // We get the transaction and recover open transactions
+        Transaction read = Transactions.get(transaction.id());
+        TransactionRecovery recovery = Transactions.recover(1);
+
+        // Then
+        // It is found in the legacy location
+        assertEquals(legacy, Transactions.path(transaction.id()));
+        assertNotNull(read);
+        assertEquals(transaction.id(), read.id());
+        assertEquals(1, recovery.recovered());
+    }
+}